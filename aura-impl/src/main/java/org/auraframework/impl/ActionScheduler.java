@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.auraframework.annotations.Annotations.ServiceComponent;
+import org.auraframework.impl.java.controller.JavaAction;
+import org.auraframework.instance.Action;
+import org.auraframework.service.LoggingService;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Thread pools for running server actions off the request thread, one per lane.
+ *
+ * Each lane is a bounded pool with a bounded queue, sized with system properties. Background and caboose work gets
+ * its own few threads by default, at a lower priority, so that it can never take the threads that interactive
+ * actions run on. The foreground lane is off (zero threads) unless configured. When a lane is full its actions are not admitted, see {@link #submit(Lane, Callable)}.
+ */
+@ServiceComponent
+public class ActionScheduler {
+
+    /**
+     * The lanes, with the system property giving their number of threads.
+     */
+    public enum Lane {
+        /**
+         * Interactive actions marked as concurrent.
+         */
+        FOREGROUND("aura.actions.concurrency", 0, Thread.NORM_PRIORITY),
+
+        /**
+         * Background actions, which the client sends on their own.
+         */
+        BACKGROUND("aura.actions.background", 2, Thread.MIN_PRIORITY),
+
+        /**
+         * Caboose actions, which the client holds back until something else is sent, e.g. logging.
+         */
+        CABOOSE("aura.actions.caboose", 1, Thread.MIN_PRIORITY);
+
+        private final String property;
+        private final int defaultThreads;
+        private final int priority;
+        private final String queueTimeKey;
+        private final String queueDepthKey;
+        private final String rejectedKey;
+        private final String averageQueueTimeKey;
+        private final String averageRunTimeKey;
+
+        private Lane(String property, int defaultThreads, int priority) {
+            this.property = property;
+            this.defaultThreads = defaultThreads;
+            this.priority = priority;
+            String prefix = name().toLowerCase();
+            this.queueTimeKey = prefix + "QueueTime";
+            this.queueDepthKey = prefix + "QueueDepth";
+            this.rejectedKey = prefix + "Rejected";
+            this.averageQueueTimeKey = prefix + "AvgQueueTime";
+            this.averageRunTimeKey = prefix + "AvgRunTime";
+        }
+
+        /**
+         * @return the name the time actions spent queued in this lane is logged under.
+         */
+        public String getQueueTimeKey() {
+            return queueTimeKey;
+        }
+    }
+
+    /**
+     * Counters for a lane, since startup.
+     */
+    private static class LaneStats {
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong queueNanos = new AtomicLong();
+        private final AtomicLong runNanos = new AtomicLong();
+    }
+
+    /**
+     * A task that remembers when it was queued.
+     */
+    private static class TimedTask<T> implements Callable<T> {
+        private final Callable<T> task;
+        private final LaneStats stats;
+        private final long queued = System.nanoTime();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private volatile long queueNanos;
+
+        TimedTask(Callable<T> task, LaneStats stats) {
+            this.task = task;
+            this.stats = stats;
+        }
+
+        @Override
+        public T call() throws Exception {
+            if (!claimed.compareAndSet(false, true)) {
+                // withdrawn before it got a thread.
+                return null;
+            }
+            long start = System.nanoTime();
+            queueNanos = start - queued;
+            stats.queueNanos.addAndGet(queueNanos);
+            try {
+                return task.call();
+            } finally {
+                stats.runNanos.addAndGet(System.nanoTime() - start);
+                stats.completed.incrementAndGet();
+                finished.countDown();
+            }
+        }
+
+        /**
+         * Keep the task from starting, or wait for it to finish if it already has.
+         */
+        void withdraw() throws InterruptedException {
+            if (!claimed.compareAndSet(false, true)) {
+                finished.await();
+            }
+        }
+    }
+
+    /**
+     * The handle of a submitted action.
+     */
+    public static class Scheduled {
+        private final Lane lane;
+        private final Future<?> future;
+        private final TimedTask<?> task;
+
+        private Scheduled(Lane lane, Future<?> future, TimedTask<?> task) {
+            this.lane = lane;
+            this.future = future;
+            this.task = task;
+        }
+
+        /**
+         * @return a handle for an action that was dealt with without running it.
+         */
+        static Scheduled done(Lane lane) {
+            return new Scheduled(lane, Futures.immediateFuture(null), null);
+        }
+
+        public Lane getLane() {
+            return lane;
+        }
+
+        public Future<?> getFuture() {
+            return future;
+        }
+
+        /**
+         * Keep the action from starting, or wait for it to finish if it is already running.
+         *
+         * Used when the request gives up on its actions, so that none of them is still running once it has ended.
+         * If this thread is interrupted while waiting, it stops waiting and keeps its interrupt status. An action
+         * that was cancelled at the deadline of the request is not waited for, it runs on in a fork of the context
+         * that is never joined.
+         */
+        public void withdraw() {
+            if (task == null || future.isCancelled()) {
+                return;
+            }
+            try {
+                task.withdraw();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * @return the time the action waited for a thread, in milliseconds, or 0 if it hasn't started.
+         */
+        public long getQueueMillis() {
+            return task == null ? 0 : TimeUnit.NANOSECONDS.toMillis(task.queueNanos);
+        }
+    }
+
+    private final Map<Lane, ThreadPoolExecutor> executors = new EnumMap<>(Lane.class);
+    private final Map<Lane, LaneStats> stats = new EnumMap<>(Lane.class);
+
+    @PostConstruct
+    public void createExecutors() {
+        for (Lane lane : Lane.values()) {
+            stats.put(lane, new LaneStats());
+            int threads = Integer.getInteger(lane.property, lane.defaultThreads);
+            if (threads > 0) {
+                ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<Runnable>(Integer.getInteger(lane.property + ".queue", threads * 4)),
+                        new ThreadFactoryBuilder().setNameFormat("aura-" + lane.name().toLowerCase() + "-%d")
+                                .setPriority(lane.priority).setDaemon(true).build());
+                executor.allowCoreThreadTimeOut(true);
+                executors.put(lane, executor);
+            }
+        }
+    }
+
+    /**
+     * Get the lane an action runs in.
+     *
+     * Background and caboose actions run in their lanes. Other actions only leave the request thread when they are
+     * declared with {@link org.auraframework.system.Annotations.ConcurrentAction}.
+     *
+     * @return the lane, or null if the action runs on the request thread.
+     */
+    public Lane getLane(Action action) {
+        if (!(action instanceof JavaAction)) {
+            return null;
+        }
+        JavaAction javaAction = (JavaAction) action;
+        Lane lane;
+        if (javaAction.isCaboose()) {
+            lane = Lane.CABOOSE;
+        } else if (javaAction.isBackground()) {
+            lane = Lane.BACKGROUND;
+        } else if (javaAction.isConcurrent()) {
+            lane = Lane.FOREGROUND;
+        } else {
+            return null;
+        }
+        return executors.containsKey(lane) ? lane : null;
+    }
+
+    /**
+     * Queue a task in a lane.
+     *
+     * @throws RejectedExecutionException if the lane is full. Foreground work should then run on the request thread,
+     *             while background work is better refused, so that it does not tie up request threads instead.
+     */
+    public <T> Scheduled submit(Lane lane, Callable<T> task) {
+        LaneStats laneStats = stats.get(lane);
+        TimedTask<T> timed = new TimedTask<>(task, laneStats);
+        try {
+            return new Scheduled(lane, executors.get(lane).submit(timed), timed);
+        } catch (RejectedExecutionException ree) {
+            laneStats.rejected.incrementAndGet();
+            throw ree;
+        }
+    }
+
+    /**
+     * @return the number of actions waiting for a thread in a lane.
+     */
+    public int getQueueDepth(Lane lane) {
+        ThreadPoolExecutor executor = executors.get(lane);
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    /**
+     * @return the number of actions a lane turned away since startup.
+     */
+    public long getRejectedCount(Lane lane) {
+        return stats.get(lane).rejected.get();
+    }
+
+    /**
+     * @return the average time actions waited for a thread in a lane, in milliseconds.
+     */
+    public double getAverageQueueMillis(Lane lane) {
+        LaneStats laneStats = stats.get(lane);
+        return average(laneStats.queueNanos.get(), laneStats.completed.get());
+    }
+
+    /**
+     * @return the average time actions ran for in a lane, in milliseconds.
+     */
+    public double getAverageRunMillis(Lane lane) {
+        LaneStats laneStats = stats.get(lane);
+        return average(laneStats.runNanos.get(), laneStats.completed.get());
+    }
+
+    /**
+     * Put the state of the lanes in the log line of the current request, so that a full or slow lane shows up next
+     * to the requests that used it.
+     *
+     * @param lanes the lanes to log.
+     * @param loggingService the logging service of the request.
+     */
+    public void logStats(Set<Lane> lanes, LoggingService loggingService) {
+        for (Lane lane : lanes) {
+            loggingService.setNum(lane.queueDepthKey, Long.valueOf(getQueueDepth(lane)));
+            loggingService.setNum(lane.rejectedKey, Long.valueOf(getRejectedCount(lane)));
+            loggingService.setValue(lane.averageQueueTimeKey, Double.valueOf(getAverageQueueMillis(lane)));
+            loggingService.setValue(lane.averageRunTimeKey, Double.valueOf(getAverageRunMillis(lane)));
+        }
+    }
+
+    private static double average(long nanos, long count) {
+        return count == 0 ? 0.0 : nanos / 1000000.0 / count;
+    }
+}
@@ -38,6 +38,7 @@ import javax.inject.Inject;
 
 import java.lang.ref.WeakReference;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
@@ -60,9 +61,18 @@ public class CachingServiceImpl implements CachingService {
     private final static int STRING_CACHE_SIZE = 100;
     private final static int ALT_STRINGS_CACHE_SIZE = 100;
 
+    /** Default size of the definition hashes cache, in number of application uids */
+    private final static int DEFINITION_HASHES_CACHE_SIZE = 200;
+
     /** Default size of client lib caches, in number of entries */
     private final static int CLIENT_LIB_CACHE_SIZE = 30;
 
+    /** Default size of the action result cache, in number of entries */
+    private final static int ACTION_CACHE_SIZE = 1024;
+
+    /** Default lifetime of action results, in seconds */
+    private final static int ACTION_CACHE_TTL = 300;
+
     @Configuration
     public static class BeanConfiguration {
         private static final CachingServiceImpl INSTANCE  = new CachingServiceImpl();
@@ -88,10 +98,13 @@ public class CachingServiceImpl implements CachingService {
     private Cache<DefDescriptor<?>, Optional<? extends Definition>> defsCache;
     private Cache<String, String> stringsCache;
     private Cache<String, String> altStringsCache;
+    private Cache<String, byte[]> compressedStringsCache;
+    private Cache<String, Map<String, String>> definitionHashesCache;
     private Cache<String, Set<DefDescriptor<?>>> descriptorFilterCache;
     private Cache<String, DependencyEntry> depsCache;
     private Cache<String, String> clientLibraryOutputCache;
     private Cache<DefDescriptor.DescriptorKey, DefDescriptor<? extends Definition>> defDescriptorByNameCache;
+    private Cache<String, Optional<Object>> actionCache;
 
     private static final Logger logger = Logger.getLogger(CachingServiceImpl.class);
 
@@ -134,6 +147,23 @@ public class CachingServiceImpl implements CachingService {
                 .setName("altStringsCache")
                 .setSoftValues(true).build();
 
+        compressedStringsCache = this.<String, byte[]> getCacheBuilder()
+                .setInitialSize(size)
+                .setLoggingAdapter(loggingAdapter)
+                .setMaximumSize(size)
+                .setRecordStats(true)
+                .setName("compressedStringsCache")
+                .setSoftValues(true).build();
+
+        size = getCacheSize("aura.cache.definitionHashesCacheSize", DEFINITION_HASHES_CACHE_SIZE);
+        definitionHashesCache = this.<String, Map<String, String>> getCacheBuilder()
+                .setInitialSize(size)
+                .setLoggingAdapter(loggingAdapter)
+                .setMaximumSize(size)
+                .setRecordStats(true)
+                .setName("definitionHashesCache")
+                .setSoftValues(true).build();
+
         size = getCacheSize("aura.cache.filterCacheSize", FILTER_CACHE_SIZE);
         descriptorFilterCache = this
                 .<String, Set<DefDescriptor<?>>> getCacheBuilder()
@@ -171,6 +201,16 @@ public class CachingServiceImpl implements CachingService {
                         .setConcurrencyLevel(20)
                         .setName("defDescByNameCache")
                         .build();
+
+        size = getCacheSize("aura.cache.actionCacheSize", ACTION_CACHE_SIZE);
+        actionCache = this.<String, Optional<Object>> getCacheBuilder()
+                .setInitialSize(Math.min(size, 128))
+                .setLoggingAdapter(loggingAdapter)
+                .setMaximumSize(size)
+                .setExpireAfterWrite(Integer.getInteger("aura.cache.actionCacheTtl", ACTION_CACHE_TTL), TimeUnit.SECONDS)
+                .setRecordStats(true)
+                .setName("actionCache")
+                .setSoftValues(true).build();
     }
 
     @Override
@@ -193,6 +233,16 @@ public class CachingServiceImpl implements CachingService {
         return altStringsCache;
     }
 
+    @Override
+    public final Cache<String, byte[]> getCompressedStringsCache() {
+        return compressedStringsCache;
+    }
+
+    @Override
+    public final Cache<String, Map<String, String>> getDefinitionHashesCache() {
+        return definitionHashesCache;
+    }
+
     @Override
     public final Cache<String, Set<DefDescriptor<?>>> getDescriptorFilterCache() {
         return descriptorFilterCache;
@@ -213,6 +263,11 @@ public class CachingServiceImpl implements CachingService {
         return defDescriptorByNameCache;
     }
 
+    @Override
+    public final Cache<String, Optional<Object>> getActionCache() {
+        return actionCache;
+    }
+
     @Override
     public Lock getReadLock() {
         return rwLock.readLock();
@@ -277,7 +332,9 @@ public class CachingServiceImpl implements CachingService {
         descriptorFilterCache.invalidateAll();
         stringsCache.invalidateAll();
         altStringsCache.invalidateAll();
+        compressedStringsCache.invalidateAll();
         clientLibraryOutputCache.invalidateAll();
+        actionCache.invalidateAll();
 
         if (descriptor == null) {
             defsCache.invalidateAll();
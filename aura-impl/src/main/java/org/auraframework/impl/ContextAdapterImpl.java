@@ -82,6 +82,12 @@ public class ContextAdapterImpl implements ContextAdapter {
         return context;
     }
 
+    @Override
+    public AuraContext attach(AuraContext context) {
+        currentContext.set(context);
+        return context;
+    }
+
     protected AuraContext buildSystemContext(AuraContext original) {
         AuraContext context = new AuraContextImpl(original.getMode(), original.getDefRegistry(), original.getDefaultPrefixes(),
                 original.getFormat(), original.getAccess(), original.getJsonSerializationContext(),
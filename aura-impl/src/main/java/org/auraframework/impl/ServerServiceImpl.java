@@ -15,13 +15,26 @@
  */
 package org.auraframework.impl;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPOutputStream;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
@@ -30,6 +43,7 @@ import org.auraframework.adapter.ConfigAdapter;
 import org.auraframework.adapter.ExceptionAdapter;
 import org.auraframework.adapter.ServletUtilAdapter;
 import org.auraframework.annotations.Annotations.ServiceComponent;
+import org.auraframework.cache.Cache;
 import org.auraframework.css.StyleContext;
 import org.auraframework.def.BaseComponentDef;
 import org.auraframework.def.BaseStyleDef;
@@ -37,6 +51,10 @@ import org.auraframework.def.ComponentDef;
 import org.auraframework.def.ControllerDef;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.impl.ActionScheduler.Lane;
+import org.auraframework.impl.ActionScheduler.Scheduled;
+import org.auraframework.impl.cache.ActionResultCache;
+import org.auraframework.impl.java.controller.JavaAction;
 import org.auraframework.impl.util.TemplateUtil;
 import org.auraframework.impl.util.TemplateUtil.Script;
 import org.auraframework.def.Definition;
@@ -45,8 +63,11 @@ import org.auraframework.def.IncludeDefRef;
 import org.auraframework.def.LibraryDef;
 import org.auraframework.def.SVGDef;
 import org.auraframework.def.StyleDef;
+import org.auraframework.expression.PropertyReference;
 import org.auraframework.http.ManifestUtil;
+import org.auraframework.http.ResourceCacheKey;
 import org.auraframework.instance.Action;
+import org.auraframework.instance.Action.State;
 import org.auraframework.instance.BaseComponent;
 import org.auraframework.instance.Component;
 import org.auraframework.instance.Event;
@@ -56,6 +77,7 @@ import org.auraframework.service.DefinitionService;
 import org.auraframework.service.InstanceService;
 import org.auraframework.service.LoggingService;
 import org.auraframework.service.MetricsService;
+import org.auraframework.service.RenderingService;
 import org.auraframework.service.SerializationService;
 import org.auraframework.service.ServerService;
 import org.auraframework.system.AuraContext;
@@ -65,16 +87,23 @@ import org.auraframework.system.LoggingContext.KeyValueLogger;
 import org.auraframework.system.MasterDefRegistry;
 import org.auraframework.system.Message;
 import org.auraframework.throwable.AuraExecutionException;
+import org.auraframework.throwable.AuraHandledException;
+import org.auraframework.throwable.AuraRuntimeException;
+import org.auraframework.throwable.DeadlineExceededException;
 import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.javascript.Literal;
+import org.auraframework.util.json.BinaryJsonEncoder;
 import org.auraframework.util.json.JsonEncoder;
 import org.auraframework.util.json.JsonSerializationContext;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
 
 @ServiceComponent
 public class ServerServiceImpl implements ServerService {
@@ -100,6 +129,12 @@ public class ServerServiceImpl implements ServerService {
     @Inject
     private CachingService cachingService;
 
+    @Inject
+    private ActionResultCache actionResultCache;
+
+    @Inject
+    private ActionScheduler actionScheduler;
+
     @Inject
     private DefinitionService definitionService;
     
@@ -109,13 +144,31 @@ public class ServerServiceImpl implements ServerService {
     @Inject
     private InstanceService instanceService;
     
+    @Inject
+    private RenderingService renderingService;
+    
     private ManifestUtil manifestUtil;
 
+    /**
+     * The time budget of each action, in milliseconds. Unset or 0 for none.
+     */
+    private static final String ACTION_TIMEOUT_PROPERTY = "aura.actions.timeout";
+
+    /**
+     * The time budget for all the actions of a request, in milliseconds. Unset or 0 for none.
+     */
+    private static final String REQUEST_TIMEOUT_PROPERTY = "aura.request.timeout";
+
+    private final long actionTimeout = TimeUnit.MILLISECONDS.toNanos(Long.getLong(ACTION_TIMEOUT_PROPERTY, 0));
+
+    private final long requestTimeout = TimeUnit.MILLISECONDS.toNanos(Long.getLong(REQUEST_TIMEOUT_PROPERTY, 0));
+
     @PostConstruct
     public void createManifestUtil() {
         manifestUtil = new ManifestUtil(definitionService, contextService, configAdapter);
     }
 
+
     private static final long serialVersionUID = -2779745160285710414L;
 
     @Override
@@ -125,9 +178,22 @@ public class ServerServiceImpl implements ServerService {
         if (message == null) {
             return;
         }
+        run(message, context, JsonEncoder.createJsonStream(out, context.getJsonSerializationContext()), extras);
+    }
+
+    @Override
+    public void runBinary(Message message, AuraContext context, OutputStream out, Map<?,?> extras) throws IOException {
+        loggingService.startTimer(LoggingService.TIMER_AURA_RUN);
+
+        if (message == null) {
+            return;
+        }
+        run(message, context, BinaryJsonEncoder.createBinaryStream(out, context.getJsonSerializationContext()), extras);
+    }
+
+    private void run(Message message, AuraContext context, JsonEncoder json, Map<?,?> extras) throws IOException {
         List<Action> actions = message.getActions();
-        JsonSerializationContext serializationContext = context.getJsonSerializationContext();
-        JsonEncoder json = JsonEncoder.createJsonStream(out, serializationContext);
+        startRequestDeadline(context);
         try {
             json.writeMapBegin();
             if (extras != null && extras.size() > 0) {
@@ -137,38 +203,46 @@ public class ServerServiceImpl implements ServerService {
             }
             json.writeMapKey("actions");
             json.writeArrayBegin();
-            run(actions, json, 0);
+            run(actions, json, null, 0);
             json.writeArrayEnd();
+            loggingService.incrementNumBy(LoggingService.JSON_REF_HITS, Long.valueOf(json.getReferenceHits()));
 
-            loggingService.startTimer(LoggingService.TIMER_SERIALIZATION);
-            loggingService.startTimer(LoggingService.TIMER_SERIALIZATION_AURA);
+            writeTrailer(context, json);
+
+            json.writeMapEnd();
+        } finally {
+            context.setRequestDeadline(0);
             try {
-                serializationContext.pushRefSupport(false);
-                json.writeMapEntry("context", context);
-                List<Event> clientEvents = contextService.getCurrentContext().getClientEvents();
-                if (clientEvents != null && !clientEvents.isEmpty()) {
-                    json.writeMapEntry("events", clientEvents);
-                }
-                serializationContext.popRefSupport();
-            } finally {
-                loggingService.stopTimer(LoggingService.TIMER_SERIALIZATION_AURA);
-                loggingService.stopTimer(LoggingService.TIMER_SERIALIZATION);
+                json.close();
+            } catch (Throwable ignored) {
+                loggingService.error("Error closing json", ignored);
             }
+        }
+    }
 
-            loggingService.stopTimer(LoggingService.TIMER_AURA_RUN);
+    @Override
+    public void runStreaming(Message message, AuraContext context, Writer out, Map<?,?> extras) throws IOException {
+        loggingService.startTimer(LoggingService.TIMER_AURA_RUN);
 
-            // MetricsService for Non PROD environments
-            if (context.getMode() != Mode.PROD) {
-                try {
-                    metricsService.serializeMetrics(json);
-                    metricsService.clearMetrics();
-                } catch (Exception e) {
-                    loggingService.error("Error parsing MetricsService", e);
-                }
+        if (message == null) {
+            return;
+        }
+        JsonEncoder json = JsonEncoder.createSingleLineJsonStream(out, context.getJsonSerializationContext());
+        startRequestDeadline(context);
+        try {
+            if (extras != null && extras.size() > 0) {
+                json.writeMap(extras);
+                endEnvelope(out);
             }
+            run(message.getActions(), json, out, 0);
+            loggingService.incrementNumBy(LoggingService.JSON_REF_HITS, Long.valueOf(json.getReferenceHits()));
 
+            json.writeMapBegin();
+            writeTrailer(context, json);
             json.writeMapEnd();
+            endEnvelope(out);
         } finally {
+            context.setRequestDeadline(0);
             try {
                 json.close();
             } catch (Throwable ignored) {
@@ -177,59 +251,428 @@ public class ServerServiceImpl implements ServerService {
         }
     }
 
-    private int run(List<Action> actions, JsonEncoder json, int idx) throws IOException {
+    /**
+     * Terminate a line of a streamed response and push it to the client.
+     */
+    private void endEnvelope(Writer out) throws IOException {
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Write the context, client events and (outside of PROD) metrics into the current map.
+     */
+    private void writeTrailer(AuraContext context, JsonEncoder json) throws IOException {
+        JsonSerializationContext serializationContext = context.getJsonSerializationContext();
+
+        loggingService.startTimer(LoggingService.TIMER_SERIALIZATION);
+        loggingService.startTimer(LoggingService.TIMER_SERIALIZATION_AURA);
+        try {
+            serializationContext.pushRefSupport(false);
+            json.writeMapEntry("context", context);
+            List<Event> clientEvents = contextService.getCurrentContext().getClientEvents();
+            if (clientEvents != null && !clientEvents.isEmpty()) {
+                json.writeMapEntry("events", clientEvents);
+            }
+            serializationContext.popRefSupport();
+        } finally {
+            loggingService.stopTimer(LoggingService.TIMER_SERIALIZATION_AURA);
+            loggingService.stopTimer(LoggingService.TIMER_SERIALIZATION);
+        }
+
+        loggingService.stopTimer(LoggingService.TIMER_AURA_RUN);
+
+        // MetricsService for Non PROD environments
+        if (context.getMode() != Mode.PROD) {
+            try {
+                metricsService.serializeMetrics(json);
+                metricsService.clearMetrics();
+            } catch (Exception e) {
+                loggingService.error("Error parsing MetricsService", e);
+            }
+        }
+    }
+
+    /**
+     * Run the actions, writing each one as it completes.
+     *
+     * @param actions the actions to run.
+     * @param json the encoder to write to.
+     * @param stream if not null, each action is written as its own line and flushed to this writer, otherwise it is
+     *            written as an entry in the current array.
+     * @param idx the index of the previous action, for logging.
+     * @return the index of the last action run.
+     */
+    private int run(List<Action> actions, JsonEncoder json, Writer stream, int idx) throws IOException {
         AuraContext context = contextService.getCurrentContext();
-        for (Action action : actions) {
-            StringBuffer actionAndParams = new StringBuffer(action.getDescriptor().getQualifiedName());
-            KeyValueLogger logger = loggingService.getKeyValueLogger(actionAndParams);
-            if (logger != null) {
-                action.logParams(logger);
-            }
-            String aap = String.valueOf(++idx)+"$"+actionAndParams.toString();
-            loggingService.startAction(aap);
-            Action oldAction = context.setCurrentAction(action);
+        List<Scheduled> scheduled = startConcurrentActions(actions, context);
+        List<List<JavaAction>> bulk = groupBulkActions(actions, scheduled);
+        int position = 0;
+        try {
+            for (Action action : actions) {
+                Scheduled running = scheduled != null ? scheduled.get(position) : null;
+                List<JavaAction> group = bulk != null ? bulk.get(position) : null;
+                position++;
+                idx = run(action, running, group, context, json, stream, idx);
+            }
+        } finally {
+            if (scheduled != null) {
+                // only does anything if we are bailing out early, the request must not end with actions running.
+                for (Scheduled running : scheduled) {
+                    if (running != null) {
+                        running.withdraw();
+                    }
+                }
+            }
+        }
+        return idx;
+    }
+
+    private int run(Action action, Scheduled running, List<JavaAction> bulk, AuraContext context, JsonEncoder json,
+            Writer stream, int idx) throws IOException {
+        StringBuffer actionAndParams = new StringBuffer(action.getDescriptor().getQualifiedName());
+        KeyValueLogger logger = loggingService.getKeyValueLogger(actionAndParams);
+        if (logger != null) {
+            action.logParams(logger);
+        }
+        String aap = String.valueOf(++idx)+"$"+actionAndParams.toString();
+        loggingService.startAction(aap);
+        if (running != null) {
+            // already under way in its lane, what we log here is the time spent waiting for it.
             try {
-                //
-                // We clear out action centric references here.
-                //
-                json.clearReferences();
-                // DCHASMAN TODO Look into a common base for Action
-                // implementations that we can move the call to
-                // context.setCurrentAction() into!
-                action.run();
-            } catch (AuraExecutionException x) {
-                exceptionAdapter.handleException(x, action);
+                AuraContext fork = (AuraContext) awaitAction(running.getFuture(), context);
+                if (fork != null) {
+                    contextService.joinContext(context, fork);
+                }
+            } catch (DeadlineExceededException dee) {
+                // given up on, its fork is never joined.
+                ((JavaAction) action).addException(dee, State.ERROR, false, false, exceptionAdapter);
             } finally {
-                context.setCurrentAction(oldAction);
                 loggingService.stopAction(aap);
             }
-            loggingService.startTimer(LoggingService.TIMER_SERIALIZATION);
-            loggingService.startTimer(LoggingService.TIMER_SERIALIZATION_AURA);
+            loggingService.incrementNumBy(running.getLane().getQueueTimeKey(), Long.valueOf(running.getQueueMillis()));
+        } else if (bulk != null) {
+            // the whole group runs with its first action, the others only have their results written.
             try {
-                json.writeArrayEntry(action);
+                if (action.getState() == State.NEW) {
+                    runBulk(bulk, context);
+                }
             } finally {
-                loggingService.stopTimer(LoggingService.TIMER_SERIALIZATION_AURA);
-                loggingService.stopTimer(LoggingService.TIMER_SERIALIZATION);
+                loggingService.stopAction(aap);
             }
+        } else {
+            String cacheKey = actionResultCache.getKey(action);
+            try {
+                if (cacheKey == null) {
+                    run(action, context);
+                } else if (actionResultCache.restore(cacheKey, action)) {
+                    loggingService.incrementNum(LoggingService.ACTION_CACHE_HITS);
+                } else {
+                    ActionResultCache.Flight flight = actionResultCache.startOrJoin(cacheKey, action, context);
+                    if (flight == null) {
+                        loggingService.incrementNum(LoggingService.ACTION_COALESCED);
+                    } else {
+                        try {
+                            run(action, context);
+                        } finally {
+                            actionResultCache.complete(cacheKey, flight, action);
+                        }
+                    }
+                }
+            } finally {
+                loggingService.stopAction(aap);
+            }
+        }
+        if (action instanceof JavaAction && ((JavaAction) action).isDeadlineExceeded()) {
+            loggingService.incrementNum(LoggingService.ACTION_DEADLINE_EXCEEDED);
+        }
+        //
+        // We clear out action centric references here.
+        //
+        json.clearReferences();
+        loggingService.startTimer(LoggingService.TIMER_SERIALIZATION);
+            loggingService.startTimer(LoggingService.TIMER_SERIALIZATION_AURA);
+        try {
+            if (stream == null) {
+                json.writeArrayEntry(action);
+            } else {
+                json.writeMapBegin();
+                json.writeMapEntry("action", action);
+                json.writeMapEnd();
+                endEnvelope(stream);
+            }
+        } finally {
+            loggingService.stopTimer(LoggingService.TIMER_SERIALIZATION_AURA);
+            loggingService.stopTimer(LoggingService.TIMER_SERIALIZATION);
+        }
 
-            List<Action> additionalActions = action.getActions();
+        List<Action> additionalActions = action.getActions();
 
-            // Recursively process any additional actions created by the
-            // action
-            if (additionalActions != null && !additionalActions.isEmpty()) {
-                idx = run(additionalActions, json, idx);
-            }
+        // Recursively process any additional actions created by the
+        // action
+        if (additionalActions != null && !additionalActions.isEmpty()) {
+            idx = run(additionalActions, json, stream, idx);
         }
         return idx;
     }
 
+    private void run(Action action, AuraContext context) {
+        Action oldAction = context.setCurrentAction(action);
+        startActionDeadline(context);
+        try {
+            // DCHASMAN TODO Look into a common base for Action
+            // implementations that we can move the call to
+            // context.setCurrentAction() into!
+            action.run();
+        } catch (AuraExecutionException x) {
+            exceptionAdapter.handleException(x, action);
+        } finally {
+            endActionDeadline(context);
+            context.setCurrentAction(oldAction);
+        }
+    }
+
+    private void runBulk(List<JavaAction> actions, AuraContext context) {
+        Action oldAction = context.setCurrentAction(actions.get(0));
+        startActionDeadline(context);
+        try {
+            JavaAction.runBulk(actions);
+        } finally {
+            endActionDeadline(context);
+            context.setCurrentAction(oldAction);
+        }
+    }
+
+    /**
+     * Start the time budget of the request, if there is one. Actions check it through the context, and once it has
+     * passed the remaining actions fail without running.
+     */
+    private void startRequestDeadline(AuraContext context) {
+        if (requestTimeout > 0) {
+            context.setRequestDeadline(System.nanoTime() + requestTimeout);
+        }
+    }
+
+    /**
+     * Start the time budget of an action on this thread, if there is one. A bulk call gets the budget of one action.
+     */
+    private void startActionDeadline(AuraContext context) {
+        if (actionTimeout > 0) {
+            context.setActionDeadline(System.nanoTime() + actionTimeout);
+        }
+    }
+
+    private void endActionDeadline(AuraContext context) {
+        if (actionTimeout > 0) {
+            context.setActionDeadline(0);
+        }
+    }
+
+    /**
+     * Group the calls of each bulk action, so that they can be run with a single call of its bulk method.
+     *
+     * Only consecutive calls of the same action are grouped, so that no action runs before one that came ahead of it
+     * in the list. Only actions that run in line are grouped, and an action that appears more than once in the list
+     * is only grouped once, its repeats run on their own. Storable actions are left to the action cache.
+     *
+     * @param actions the actions about to be run.
+     * @param scheduled the actions already started by the scheduler, as returned by startConcurrentActions.
+     * @return one entry per action, with the group of calls it belongs to or null to run it on its own, or null if
+     *         there are no groups.
+     */
+    static List<List<JavaAction>> groupBulkActions(List<Action> actions, List<Scheduled> scheduled) {
+        List<List<JavaAction>> groups = Lists.newArrayListWithCapacity(actions.size());
+        List<JavaAction> current = null;
+        Set<Action> seen = Sets.newIdentityHashSet();
+        int position = 0;
+        for (Action action : actions) {
+            if (action instanceof JavaAction && ((JavaAction) action).isBulk() && !action.isStorable()
+                    && (scheduled == null || scheduled.get(position) == null) && seen.add(action)) {
+                JavaAction call = (JavaAction) action;
+                if (current == null || !current.get(0).isBulkWith(call)) {
+                    current = Lists.newArrayList();
+                }
+                current.add(call);
+            } else {
+                // anything else in between ends the run.
+                current = null;
+            }
+            groups.add(current);
+            position++;
+        }
+
+        boolean grouped = false;
+        for (int i = 0; i < groups.size(); i++) {
+            List<JavaAction> group = groups.get(i);
+            if (group != null && group.size() < 2) {
+                // nothing to gain from a bulk call.
+                groups.set(i, null);
+            } else if (group != null) {
+                grouped = true;
+            }
+        }
+        return grouped ? groups : null;
+    }
+
+    /**
+     * Hand the actions that have a lane over to the action scheduler.
+     *
+     * The first action always runs in line: the request thread works on it while the later ones run in their lanes,
+     * so a lone action never leaves the request thread. An action that appears more than once in the list is only
+     * started once, its repeats run in line. Storable actions also run in line, where their results can come from
+     * the action cache. Foreground actions run in line when their lane is full, while background and caboose actions
+     * that don't fit in their lane fail, to be retried by the client.
+     *
+     * @param actions the actions about to be run.
+     * @param context the context of the request, each action started gets a fork of it.
+     * @return one entry per action, with the scheduled action or null for one to be run in line, or null if nothing
+     *         was scheduled.
+     */
+    private List<Scheduled> startConcurrentActions(List<Action> actions, AuraContext context) {
+        List<Scheduled> started = null;
+        Set<Lane> lanes = EnumSet.noneOf(Lane.class);
+        Set<Action> seen = Sets.newIdentityHashSet();
+        if (!actions.isEmpty()) {
+            seen.add(actions.get(0));
+        }
+        int position = 0;
+        for (Action action : actions) {
+            Lane lane = actionScheduler.getLane(action);
+            if (lane != null && !action.isStorable() && seen.add(action)) {
+                Scheduled scheduled = schedule(lane, action, context);
+                lanes.add(lane);
+                if (scheduled != null) {
+                    if (started == null) {
+                        started = Lists.newArrayList(Collections.<Scheduled> nCopies(actions.size(), null));
+                    }
+                    started.set(position, scheduled);
+                }
+            }
+            position++;
+        }
+        if (!lanes.isEmpty()) {
+            actionScheduler.logStats(lanes, loggingService);
+        }
+        return started;
+    }
+
+    private Scheduled schedule(Lane lane, final Action action, AuraContext context) {
+        final AuraContext fork = contextService.forkContext(context);
+        try {
+            return actionScheduler.submit(lane, new Callable<AuraContext>() {
+                @Override
+                public AuraContext call() {
+                    runAttached(action, fork);
+                    return fork;
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            if (lane == Lane.FOREGROUND) {
+                // the lane is full, so it runs in line like any other action.
+                return null;
+            }
+            ((JavaAction) action).addException(new AuraHandledException("The server is busy, try again later"),
+                    State.ERROR, false, false, exceptionAdapter);
+            return Scheduled.done(lane);
+        }
+    }
+
+    /**
+     * Run an action on a pool thread, in a fork of the request context and with its own logging context.
+     *
+     * The fork is joined back into the request context on the request thread once the action is done, see
+     * {@link ContextService#forkContext(AuraContext)}.
+     */
+    private void runAttached(Action action, AuraContext context) {
+        contextService.attachContext(context);
+        try {
+            String name = action.getDescriptor().getQualifiedName();
+            loggingService.startAction(name);
+            context.setCurrentAction(action);
+            startActionDeadline(context);
+            try {
+                action.run();
+            } catch (AuraExecutionException x) {
+                exceptionAdapter.handleException(x, action);
+            } finally {
+                endActionDeadline(context);
+                context.setCurrentAction(null);
+                loggingService.stopAction(name);
+            }
+        } finally {
+            contextService.endContext();
+        }
+    }
+
+    /**
+     * Wait for an action running in its lane, for no longer than the deadline of the request.
+     *
+     * @throws DeadlineExceededException if the deadline passes first, the action is then cancelled.
+     */
+    private Object awaitAction(Future<?> running, AuraContext context) {
+        try {
+            return running.get(Math.max(0, context.getRemainingNanos()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException te) {
+            running.cancel(true);
+            throw new DeadlineExceededException();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new AuraRuntimeException("Interrupted while waiting for an action", ie);
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new AuraRuntimeException(cause);
+        }
+    }
+
     @Override
     public void writeAppCss(final Set<DefDescriptor<?>> dependencies, Writer out) throws IOException, QuickFixException {
         AuraContext context = contextService.getCurrentContext();
         boolean minify = context.getMode().minify();
 
         StyleContext styleContext = context.getStyleContext();
+        DefDescriptor<?> appDesc = context.getLoadingApplicationDescriptor();
+        final String uid = context.getUid(appDesc);
+        final String key = getAppCssKey(styleContext, minify, uid);
+        context.setPreloading(true);
 
+        String cached = null;
+        final boolean skipCache = styleContext.getTokens().hasDynamicTokens(); // TODONM undo this cache skipping
+        if (skipCache) {
+            cached = getAppCssString(dependencies);
+        } else {
+            cached = context.getDefRegistry().getAltCachedString(uid, appDesc, key,
+                new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return getAppCssString(dependencies);
+                    }
+                }
+            );
+        }
+
+        if (out != null) {
+            out.append(cached);
+        }
+    }
+
+    @Override
+    public byte[] getCompressedAppCss(Set<DefDescriptor<?>> dependencies) throws IOException, QuickFixException {
+        writeAppCss(dependencies, null);
+
+        AuraContext context = contextService.getCurrentContext();
+        DefDescriptor<?> appDesc = context.getLoadingApplicationDescriptor();
+        String uid = context.getUid(appDesc);
+        String key = getAppCssKey(context.getStyleContext(), context.getMode().minify(), uid);
+        return getCompressedString(context, appDesc, uid, key, "", "");
+    }
+
+    private String getAppCssKey(StyleContext styleContext, boolean minify, String uid) {
         // build cache key
         final StringBuilder keyBuilder = new StringBuilder(64);
         keyBuilder.append("CSS:");
@@ -264,31 +707,9 @@ public class ServerServiceImpl implements ServerService {
         keyBuilder.append(mKey);
 
         // app uid
-        DefDescriptor<?> appDesc = context.getLoadingApplicationDescriptor();
-        final String uid = context.getUid(appDesc);
         keyBuilder.append(uid);
 
-        final String key = keyBuilder.toString();
-        context.setPreloading(true);
-
-        String cached = null;
-        final boolean skipCache = styleContext.getTokens().hasDynamicTokens(); // TODONM undo this cache skipping
-        if (skipCache) {
-            cached = getAppCssString(dependencies);
-        } else {
-            cached = context.getDefRegistry().getAltCachedString(uid, appDesc, key,
-                new Callable<String>() {
-                    @Override
-                    public String call() throws Exception {
-                        return getAppCssString(dependencies);
-                    }
-                }
-            );
-        }
-
-        if (out != null) {
-            out.append(cached);
-        }
+        return keyBuilder.toString();
     }
 
     private String getAppCssString(Set<DefDescriptor<?>> dependencies) throws QuickFixException, IOException {
@@ -366,16 +787,238 @@ public class ServerServiceImpl implements ServerService {
                        return res;
                    }
                });
+        cacheResource(context, appDesc, uid, key);
 
         if (out != null) {
            out.append(cached);
         }
     }
+
+    @Override
+    public byte[] getCompressedDefinitions(Set<DefDescriptor<?>> dependencies, String prefix, String suffix)
+            throws IOException, QuickFixException {
+        writeDefinitions(dependencies, null);
+
+        AuraContext context = contextService.getCurrentContext();
+        DefDescriptor<?> appDesc = context.getLoadingApplicationDescriptor();
+        String uid = context.getUid(appDesc);
+        String key = "JS:" + (context.getMode().minify() ? "MIN:" : "DEV:") + uid;
+        return getCompressedString(context, appDesc, uid, key, prefix, suffix);
+    }
+
+    /**
+     * Gzip an entry of the alt strings cache, once.
+     *
+     * Nothing is compressed for an entry that the registry did not cache, it would have to be compressed again on
+     * every request.
+     */
+    private byte[] getCompressedString(AuraContext context, DefDescriptor<?> appDesc, String uid, String key,
+            final String prefix, final String suffix) throws IOException {
+        final String cached = context.getDefRegistry().getAltCachedString(uid, appDesc, key);
+        if (cached == null) {
+            return null;
+        }
+        try {
+            return cachingService.getCompressedStringsCache().get("GZIP:" + appDesc.getQualifiedName() + "@" + key,
+                    new Callable<byte[]>() {
+                        @Override
+                        public byte[] call() throws Exception {
+                            ByteArrayOutputStream bytes = new ByteArrayOutputStream(cached.length() / 4);
+                            try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytes, 8192),
+                                    StandardCharsets.UTF_8)) {
+                                writer.write(prefix);
+                                writer.write(cached);
+                                writer.write(suffix);
+                            }
+                            return bytes.toByteArray();
+                        }
+                    });
+        } catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Make app.js output for a cacheable app reachable under its {@link ResourceCacheKey}, so that the context
+     * filter can serve the next request for it without building a context.
+     *
+     * Only output that the registry itself caches is shared, anything it refuses to cache (e.g. in dev mode) has to
+     * go through the full request every time.
+     */
+    private void cacheResource(AuraContext context, DefDescriptor<?> appDesc, String uid, String jsKey) {
+        if (!ResourceCacheKey.ENABLED || appDesc == null || appDesc.getDefType() != DefType.APPLICATION
+                || !configAdapter.getAuraFrameworkNonce().equals(context.getFrameworkUID())) {
+            return;
+        }
+        String cached = context.getDefRegistry().getAltCachedString(uid, appDesc, jsKey);
+        if (cached == null) {
+            return;
+        }
+        Cache<String, String> cache = cachingService.getAltStringsCache();
+        String key = ResourceCacheKey.appJs(context.getMode(), context.getAccess(), appDesc.getQualifiedName(), uid,
+                context.getFrameworkUID());
+        if (cache.getIfPresent(key) == null) {
+            cache.put(key, cached);
+        }
+    }
     
 
     private String getDefinitionsString (Set<DefDescriptor<?>> dependencies, String key)
             throws QuickFixException, IOException {
 
+        AuraContext context = contextService.getCurrentContext();
+        List<DefinitionCode> definitions = getDefinitionCode(dependencies);
+
+        // remembered so that a later uid of the app can be sent as a delta.
+        Map<String, String> hashes = Maps.newHashMapWithExpectedSize(definitions.size());
+        for (DefinitionCode definition : definitions) {
+            hashes.put(definition.name, definition.getHash());
+        }
+        DefDescriptor<?> appDesc = context.getLoadingApplicationDescriptor();
+        if (appDesc != null) {
+            cachingService.getDefinitionHashesCache().put(getDefinitionHashesKey(appDesc, key), hashes);
+        }
+
+        StringBuilder sb = new StringBuilder();
+
+        // component code goes to one chunk per namespace, and only the rest stays in app.js.
+        Map<String, StringBuilder> chunks = null;
+        if (ResourceCacheKey.CHUNKS && !context.getMode().isDevMode() && !context.getMode().isTestMode()) {
+            chunks = Maps.newTreeMap();
+        }
+        for (DefinitionCode definition : definitions) {
+            getChunk(chunks, definition.namespace, sb).append(definition.code);
+        }
+        if (chunks != null) {
+            writeChunkLoader(context, storeChunks(chunks), sb);
+        }
+        if (appDesc != null && appDesc.getDefType() == DefType.APPLICATION) {
+            // remember the uid of this app.js in the browser, a later uid is then loaded as a delta on top of it.
+            sb.append("document.cookie=");
+            sb.append(JsonEncoder.serialize(ResourceCacheKey.appJsCookie(appDesc.getQualifiedName()) + "="
+                    + context.getUid(appDesc) + ";path=" + context.getContextPath() + "/l/;max-age=31536000"));
+            sb.append(";\n");
+        }
+
+        return sb.toString();
+    }
+
+    @Override
+    public boolean writeChunk(Set<DefDescriptor<?>> dependencies, String hash, Writer out)
+            throws IOException, QuickFixException {
+        AuraContext context = contextService.getCurrentContext();
+        String code = cachingService.getAltStringsCache().getIfPresent(ResourceCacheKey.chunk(hash));
+        if (code == null) {
+            if (!ResourceCacheKey.CHUNKS || context.getMode().isDevMode() || context.getMode().isTestMode()) {
+                return false;
+            }
+            // split the definitions again, which stores every chunk of the app that was evicted with this one.
+            context.setPreloading(true);
+            Map<String, StringBuilder> chunks = Maps.newTreeMap();
+            StringBuilder rest = new StringBuilder();
+            for (DefinitionCode definition : getDefinitionCode(dependencies)) {
+                getChunk(chunks, definition.namespace, rest).append(definition.code);
+            }
+            code = storeChunks(chunks).get(hash);
+            if (code == null) {
+                // the app has changed since, and no longer has this chunk.
+                return false;
+            }
+        }
+        out.append(code);
+        return true;
+    }
+
+    @Override
+    public boolean writeDefinitionsDelta(final Set<DefDescriptor<?>> dependencies, String previousUid, Writer out)
+            throws IOException, QuickFixException {
+        AuraContext context = contextService.getCurrentContext();
+        final String mKey = context.getMode().minify() ? "MIN:" : "DEV:";
+
+        DefDescriptor<?> appDesc = context.getLoadingApplicationDescriptor();
+        final Map<String, String> previous = getPreviousDefinitionHashes(context, appDesc, previousUid);
+        if (previous == null) {
+            return false;
+        }
+
+        context.setPreloading(true);
+        String uid = context.getUid(appDesc);
+        String key = "JS:DELTA:" + mKey + previousUid + ":" + uid;
+        String delta = context.getDefRegistry().getAltCachedString(uid, appDesc, key,
+                new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return getDefinitionsDeltaString(dependencies, previous);
+                    }
+                });
+        out.append(delta);
+        return true;
+    }
+
+    @Override
+    public boolean hasDefinitionsDelta(String previousUid) {
+        AuraContext context = contextService.getCurrentContext();
+        DefDescriptor<?> appDesc = context.getLoadingApplicationDescriptor();
+        if (ResourceCacheKey.CHUNKS || context.getMode().isDevMode() || context.getMode().isTestMode()
+                || appDesc == null || appDesc.getDefType() != DefType.APPLICATION
+                || previousUid == null || previousUid.equals(context.getUid(appDesc))) {
+            return false;
+        }
+        return getPreviousDefinitionHashes(context, appDesc, previousUid) != null;
+    }
+
+    /**
+     * The hashes of the definitions in app.js for an earlier uid of the app, or null if they are not known.
+     */
+    private Map<String, String> getPreviousDefinitionHashes(AuraContext context, DefDescriptor<?> appDesc,
+            String previousUid) {
+        if (appDesc == null || previousUid == null) {
+            return null;
+        }
+        String mKey = context.getMode().minify() ? "MIN:" : "DEV:";
+        return cachingService.getDefinitionHashesCache().getIfPresent(
+                getDefinitionHashesKey(appDesc, "JS:" + mKey + previousUid));
+    }
+
+    /**
+     * The code of the definitions that are new or changed since the previous hashes, after a script that drops the
+     * ones that are gone from the framework.
+     */
+    private String getDefinitionsDeltaString(Set<DefDescriptor<?>> dependencies, Map<String, String> previous)
+            throws QuickFixException, IOException {
+        List<DefinitionCode> definitions = getDefinitionCode(dependencies);
+        Set<String> deleted = Sets.newTreeSet(previous.keySet());
+        StringBuilder changed = new StringBuilder();
+        for (DefinitionCode definition : definitions) {
+            deleted.remove(definition.name);
+            if (!definition.getHash().equals(previous.get(definition.name))) {
+                changed.append(definition.code);
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        if (!deleted.isEmpty()) {
+            sb.append("(function(d){var s=$A.componentService;if(s.removeDefinition){for(var i=0;i<d.length;i++){");
+            sb.append("s.removeDefinition(d[i]);}}})(");
+            sb.append(JsonEncoder.serialize(deleted));
+            sb.append(");\n");
+        }
+        sb.append(changed);
+        return sb.toString();
+    }
+
+    private String getDefinitionHashesKey(DefDescriptor<?> appDesc, String key) {
+        return appDesc.getQualifiedName() + "@" + key;
+    }
+
+    /**
+     * The code that app.js is made of, one entry per library include and component, followed by one each for the
+     * event, library and controller definitions.
+     */
+    private List<DefinitionCode> getDefinitionCode(Set<DefDescriptor<?>> dependencies)
+            throws QuickFixException, IOException {
+
         AuraContext context = contextService.getCurrentContext();
         boolean minify = context.getMode().minify();
         
@@ -384,24 +1027,29 @@ public class ServerServiceImpl implements ServerService {
         // no ref support needed for defs
         serializationContext.pushRefSupport(false);
         
-        StringBuilder sb = new StringBuilder();
+        List<DefinitionCode> definitions = Lists.newArrayList();
+        StringBuilder sb;
         
         // Process Libraries with a lower granularity level, to prevent duplication of external includes.
         Collection<LibraryDef> libraryDefs = filterAndLoad(LibraryDef.class, dependencies, null);
         for (LibraryDef libraryDef : libraryDefs) {
             List<IncludeDefRef> includeDefs = libraryDef.getIncludes();
             for (IncludeDefRef defRef : includeDefs) {
+                sb = new StringBuilder();
             	sb.append("$A.componentService.addLibraryExporter(\"" + defRef.getClientDescriptor() + "\", function (){/*");
                 sb.append(defRef.getCode(minify));
                 sb.append("*/});");
                 	
                 context.setClientClassLoaded(defRef.getDescriptor(), true);
+                definitions.add(new DefinitionCode(defRef.getClientDescriptor(),
+                        libraryDef.getDescriptor().getNamespace(), sb.toString()));
             }
         }
         
         // Append component classes.
         Collection<BaseComponentDef> componentDefs = filterAndLoad(BaseComponentDef.class, dependencies, null);
         for (BaseComponentDef def : componentDefs) {
+            sb = new StringBuilder();
             sb.append("$A.componentService.addComponent(\"" + def.getDescriptor() + "\", function (){/*");
             
             	// Mark class as loaded in the client
@@ -416,31 +1064,135 @@ public class ServerServiceImpl implements ServerService {
             	sb.append(";");
 
             sb.append("*/});\n");
+            definitions.add(new DefinitionCode(def.getDescriptor().toString(), def.getDescriptor().getNamespace(),
+                    sb.toString()));
         }
 
         // Append event definitions
+        sb = new StringBuilder();
         sb.append("$A.componentService.initEventDefs(");
         Collection<EventDef> events = filterAndLoad(EventDef.class, dependencies, null);
         serializationService.writeCollection(events, EventDef.class, sb, "JSON");
         sb.append(");\n");
+        definitions.add(new DefinitionCode("initEventDefs", null, sb.toString()));
 
         // Append library definitions
+        sb = new StringBuilder();
         sb.append("$A.componentService.initLibraryDefs(");
         serializationService.writeCollection(libraryDefs, LibraryDef.class, sb, "JSON");
         sb.append(");\n");
+        definitions.add(new DefinitionCode("initLibraryDefs", null, sb.toString()));
 
         // Append controller definitions
         // Dunno how this got to be this way. The code in the Format adaptor was twisted and stupid,
         // as it walked the namespaces looking up the same descriptor, with a string.format that had
         // the namespace but did not use it. This ends up just getting a single controller.
+        sb = new StringBuilder();
         sb.append("$A.componentService.initControllerDefs(");
         Collection<ControllerDef> controllers = filterAndLoad(ControllerDef.class, dependencies, ACF);
         serializationService.writeCollection(controllers, ControllerDef.class, sb, "JSON");
         sb.append(");\n");
+        definitions.add(new DefinitionCode("initControllerDefs", null, sb.toString()));
 
         serializationContext.popRefSupport();
 
-        return sb.toString();
+        return definitions;
+    }
+
+    /**
+     * The code for one definition in app.js.
+     *
+     * The hash is over the code rather than the definition's own hash, so that a change to a helper or renderer in
+     * the bundle also counts as a change to the component.
+     */
+    private static final class DefinitionCode {
+        private final String name;
+        private final String namespace;
+        private final String code;
+
+        private DefinitionCode(String name, String namespace, String code) {
+            this.name = name;
+            this.namespace = namespace;
+            this.code = code;
+        }
+
+        private String getHash() {
+            return Hashing.murmur3_128().hashString(code, StandardCharsets.UTF_8).toString();
+        }
+    }
+
+    /**
+     * The buffer that the code for a namespace goes to: its chunk, or app.js itself.
+     */
+    private StringBuilder getChunk(Map<String, StringBuilder> chunks, String namespace, StringBuilder sb) {
+        if (chunks == null || namespace == null) {
+            return sb;
+        }
+        StringBuilder chunk = chunks.get(namespace);
+        if (chunk == null) {
+            chunk = new StringBuilder();
+            chunks.put(namespace, chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * Store the chunks under their content hash.
+     *
+     * Applications that share a namespace with the same components in it get the same chunk, so it is stored once
+     * here and downloaded once by the browser.
+     *
+     * @return the code of the chunks by their hash.
+     */
+    private Map<String, String> storeChunks(Map<String, StringBuilder> chunks) {
+        Cache<String, String> cache = cachingService.getAltStringsCache();
+        Map<String, String> stored = Maps.newLinkedHashMap();
+        for (StringBuilder chunk : chunks.values()) {
+            String code = chunk.toString();
+            String hash = Hashing.murmur3_128().hashString(code, StandardCharsets.UTF_8).toString();
+            String key = ResourceCacheKey.chunk(hash);
+            if (cache.getIfPresent(key) == null) {
+                cache.put(key, code);
+            }
+            stored.put(hash, code);
+        }
+        return stored;
+    }
+
+    /**
+     * Have app.js load its chunks.
+     *
+     * A chunk can be evicted long before the app.js that loads it, so the app it came from is remembered next to the
+     * definition hashes, for {@link #writeChunk(Set, String, Writer)} to make it again. The loader holds back
+     * Aura.appJsReady until every chunk has run, the definitions are only handed to the framework after that. A
+     * chunk that fails to load leaves the app unready and is reported as an error, rather than starting the app with
+     * components missing.
+     */
+    private void writeChunkLoader(AuraContext context, Map<String, String> chunks, StringBuilder sb) {
+        if (chunks.isEmpty()) {
+            return;
+        }
+        DefDescriptor<?> appDesc = context.getLoadingApplicationDescriptor();
+        Map<String, String> source = null;
+        if (appDesc != null && appDesc.getDefType() == DefType.APPLICATION) {
+            source = ImmutableMap.of(ResourceCacheKey.CHUNK_MODE, context.getMode().name(),
+                    ResourceCacheKey.CHUNK_ACCESS, context.getAccess().name(),
+                    ResourceCacheKey.CHUNK_APP, appDesc.getQualifiedName());
+        }
+        List<String> urls = Lists.newArrayListWithCapacity(chunks.size());
+        for (String hash : chunks.keySet()) {
+            if (source != null) {
+                cachingService.getDefinitionHashesCache().put(ResourceCacheKey.chunkSource(hash), source);
+            }
+            urls.add(ResourceCacheKey.chunkUrl(context.getContextPath(), hash));
+        }
+        sb.append("(function(u){var n=u.length;Aura.appJsPending=n;");
+        sb.append("function d(){if(!--Aura.appJsPending){Aura.appJsReady=true;Aura.appDefsReady&&Aura.appDefsReady();}}");
+        sb.append("function f(){Aura.appJsFailed=true;throw new Error(\"Failed to load app.js chunk \"+this.src);}");
+        sb.append("for(var i=0;i<n;i++){var s=document.createElement(\"script\");s.src=u[i];s.onload=d;s.onerror=f;");
+        sb.append("document.head.appendChild(s);}})(");
+        sb.append(JsonEncoder.serialize(urls));
+        sb.append(");\n");
     }
 
     @Override
@@ -502,10 +1254,126 @@ public class ServerServiceImpl implements ServerService {
     
     private TemplateUtil templateUtil = new TemplateUtil();
     
+    /**
+     * Set aura.template.shellCache to false to render the template on every page.
+     */
+    private static final boolean TEMPLATE_SHELL_CACHE = Boolean.parseBoolean(System.getProperty(
+            "aura.template.shellCache", "true"));
+
+    /**
+     * Stand-ins for the per-request values of auraInit in a cached template. They are written as literals, so that
+     * the JSON of the real values replaces them whole.
+     */
+    private static final String TOKEN_PLACEHOLDER = "AURA_TOKEN_" + UUID.randomUUID().toString().replace('-', '_');
+    private static final String CONTEXT_PLACEHOLDER = "AURA_CONTEXT_" + UUID.randomUUID().toString().replace('-', '_');
+
     @Override
     public <T extends BaseComponentDef> Component writeTemplate(AuraContext context,
             T value, Map<String, Object> componentAttributes, Appendable out)
             throws IOException, QuickFixException {
+        return getTemplate(context, value, componentAttributes, configAdapter.getCSRFToken(),
+                new Literal(context.serialize(AuraContext.EncodingStyle.Full)));
+    }
+
+    @Override
+    public <T extends BaseComponentDef> Component getSharedTemplate(AuraContext context,
+            T value, Map<String, Object> componentAttributes)
+            throws IOException, QuickFixException {
+        return getTemplate(context, value, componentAttributes, new Literal(TOKEN_PLACEHOLDER),
+                new Literal(context.serialize(AuraContext.EncodingStyle.Full)));
+    }
+
+    @Override
+    public void writeWithToken(String rendered, Appendable out) throws IOException {
+        spliceTemplate(rendered, JsonEncoder.serialize(configAdapter.getCSRFToken()), null, out);
+    }
+
+    @Override
+    public <T extends BaseComponentDef> void writeTemplateHtml(AuraContext context,
+            T value, Map<String, Object> componentAttributes, Appendable out)
+            throws IOException, QuickFixException {
+        Mode mode = context.getMode();
+        if (!TEMPLATE_SHELL_CACHE || mode.isDevMode() || mode.isTestMode()
+                || (componentAttributes != null && !componentAttributes.isEmpty())
+                || (mode.allowLocalRendering() && value.isLocallyRenderable())
+                || !isShellCacheable(value.getTemplateDef())) {
+            renderingService.render(writeTemplate(context, value, componentAttributes, out), out, null);
+            return;
+        }
+
+        // The encoded URLs cover everything else the page depends on: the app and its uid, the framework uid, the
+        // locales, and the style context with the client type.
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("HTML:").append(context.getAccess()).append(':').append(context.getContextPath()).append(':');
+        sb.append(context.serialize(AuraContext.EncodingStyle.Normal));
+        sb.append(context.serialize(AuraContext.EncodingStyle.Css));
+        String key = sb.toString();
+
+        Cache<String, String> cache = cachingService.getAltStringsCache();
+        String shell = cache.getIfPresent(key);
+        if (shell == null) {
+            Component template = getTemplate(context, value, null, new Literal(TOKEN_PLACEHOLDER),
+                    new Literal(CONTEXT_PLACEHOLDER));
+            sb.setLength(0);
+            renderingService.render(template, sb, null);
+            shell = sb.toString();
+            cache.put(key, shell);
+        }
+        spliceTemplate(shell, JsonEncoder.serialize(configAdapter.getCSRFToken()),
+                context.serialize(AuraContext.EncodingStyle.Full), out);
+    }
+
+    /**
+     * Whether a template renders the same for every user of a context, like aura:template does.
+     *
+     * The shell is shared by everyone with the same encoded context, so the template and the templates it extends may
+     * not have a model, a provider or a server side renderer, and their expressions may only read attributes. Globals
+     * like $Browser or $Label can differ between users of one context.
+     */
+    private boolean isShellCacheable(ComponentDef templateDef) throws QuickFixException {
+        BaseComponentDef def = templateDef;
+        while (def != null) {
+            if (def.getLocalModelDefDescriptor() != null || def.getLocalProviderDef() != null
+                    || def.getLocalRendererDef() != null) {
+                return false;
+            }
+            for (PropertyReference ref : def.getExpressionRefs()) {
+                if (!"v".equals(ref.getRoot())) {
+                    return false;
+                }
+            }
+            DefDescriptor<? extends BaseComponentDef> parent = def.getExtendsDescriptor();
+            def = parent == null ? null : definitionService.getDefinition(parent);
+        }
+        return true;
+    }
+
+    /**
+     * Write a rendered template, replacing the placeholders with the values of this request.
+     */
+    private static void spliceTemplate(String shell, String token, String serializedContext, Appendable out)
+            throws IOException {
+        int start = 0;
+        while (true) {
+            int tokenAt = shell.indexOf(TOKEN_PLACEHOLDER, start);
+            int contextAt = shell.indexOf(CONTEXT_PLACEHOLDER, start);
+            if (tokenAt < 0 && contextAt < 0) {
+                break;
+            }
+            if (tokenAt >= 0 && (contextAt < 0 || tokenAt < contextAt)) {
+                out.append(shell, start, tokenAt).append(token);
+                start = tokenAt + TOKEN_PLACEHOLDER.length();
+            } else {
+                out.append(shell, start, contextAt).append(serializedContext);
+                start = contextAt + CONTEXT_PLACEHOLDER.length();
+            }
+        }
+        out.append(shell, start, shell.length());
+    }
+
+    private <T extends BaseComponentDef> Component getTemplate(AuraContext context, T value,
+            Map<String, Object> componentAttributes, Object token, Literal serializedContext)
+            throws IOException, QuickFixException {
         
         ComponentDef templateDef = value.getTemplateDef();
         Map<String, Object> attributes = Maps.newHashMap();
@@ -558,14 +1426,14 @@ public class ServerServiceImpl implements ServerService {
             auraInit.put("descriptor", value.getDescriptor());
             auraInit.put("deftype", value.getDescriptor().getDefType());
             auraInit.put("host", context.getContextPath());
-            auraInit.put("token", configAdapter.getCSRFToken());
+            auraInit.put("token", token);
             
             String lockerWorkerURL = configAdapter.getLockerWorkerURL();
             if (lockerWorkerURL != null) {
                 auraInit.put("safeEvalWorker", lockerWorkerURL);
             }
             
-            auraInit.put("context", new Literal(context.serialize(AuraContext.EncodingStyle.Full)));
+            auraInit.put("context", serializedContext);
             attributes.put("auraInit", JsonEncoder.serialize(auraInit));
         }
         
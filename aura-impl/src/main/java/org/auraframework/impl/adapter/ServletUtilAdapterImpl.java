@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import javax.inject.Inject;
 import javax.servlet.ServletContext;
@@ -42,6 +43,7 @@ import org.auraframework.def.BaseComponentDef;
 import org.auraframework.def.ClientLibraryDef;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.http.AuraResourceServlet;
 import org.auraframework.http.CSP;
 import org.auraframework.instance.InstanceStack;
 import org.auraframework.service.ContextService;
@@ -60,6 +62,8 @@ import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.AuraTextUtil;
 import org.auraframework.util.json.JsonEncoder;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
@@ -106,6 +110,14 @@ public class ServletUtilAdapterImpl implements ServletUtilAdapter {
      */
     protected static final String HDR_FRAME_ALLOWALL = "ALLOWALL";
 
+    /** A frame ancestor that names only a protocol, such as "https:" */
+    private static final Pattern PROTOCOL_ONLY = Pattern.compile("^[a-z]+:$");
+
+    /**
+     * Headers of the cacheable policies, by top level descriptor and policy key.
+     */
+    private final Cache<String, CSPHeaders> cspHeadersCache = CacheBuilder.newBuilder().maximumSize(1000).build();
+
     /**
      * Handle an exception in the servlet.
      *
@@ -470,33 +482,73 @@ public class ServletUtilAdapterImpl implements ServletUtilAdapter {
      */
     @Override
     public void setCSPHeaders(DefDescriptor<?> top, HttpServletRequest req, HttpServletResponse rsp) {
-        ContentSecurityPolicy csp = configAdapter.getContentSecurityPolicy(
-                top == null ? null : top.getQualifiedName(), req);
+        String app = top == null ? null : top.getQualifiedName();
+        ContentSecurityPolicy csp = configAdapter.getContentSecurityPolicy(app, req);
 
         if (csp != null) {
-            rsp.setHeader(CSP.Header.SECURE, csp.getCspHeaderValue());
+            String cacheKey = csp.getCacheKey();
+            CSPHeaders headers;
+            if (cacheKey == null) {
+                headers = new CSPHeaders(csp);
+            } else {
+                String key = app + '$' + cacheKey;
+                headers = cspHeadersCache.getIfPresent(key);
+                if (headers == null) {
+                    headers = new CSPHeaders(csp);
+                    cspHeadersCache.put(key, headers);
+                }
+            }
+            headers.apply(rsp);
+        }
+    }
+
+    /**
+     * The header values for a policy, computed once for cacheable policies.
+     */
+    private static final class CSPHeaders {
+        private final String cspValue;
+        private final String frameOptions;
+        private final boolean replaceFrameOptions;
+
+        private CSPHeaders(ContentSecurityPolicy csp) {
+            cspValue = csp.getCspHeaderValue();
+            String options = null;
+            boolean replace = false;
             Collection<String> terms = csp.getFrameAncestors();
             if (terms != null) {
                 // not open to the world; figure whether we can express an X-FRAME-OPTIONS header:
                 if (terms.size() == 0) {
                     // closed to any framing at all
-                    rsp.setHeader(HDR_FRAME_OPTIONS, HDR_FRAME_DENY);
+                    options = HDR_FRAME_DENY;
+                    replace = true;
                 } else if (terms.size() == 1) {
                     // With one ancestor term, we're either SAMEORIGIN or ALLOWFROM
-                    for (String site : terms) {
-                        if (site == null) {
-                            // Add same-origin headers and policy terms
-                            rsp.addHeader(HDR_FRAME_OPTIONS, HDR_FRAME_SAMEORIGIN);
-                        } else if (!site.contains("*") && !site.matches("^[a-z]+:$")) {
-                            // XFO can't express wildcards or protocol-only, so set only for a specific site:
-                            rsp.addHeader(HDR_FRAME_OPTIONS, HDR_FRAME_ALLOWFROM + site);
-                        } else {
-                            // When XFO can't express it, still set an ALLOWALL so filters don't jump in
-                            rsp.addHeader(HDR_FRAME_OPTIONS, HDR_FRAME_ALLOWALL);
-                        }
+                    String site = terms.iterator().next();
+                    if (site == null) {
+                        // Add same-origin headers and policy terms
+                        options = HDR_FRAME_SAMEORIGIN;
+                    } else if (!site.contains("*") && !PROTOCOL_ONLY.matcher(site).matches()) {
+                        // XFO can't express wildcards or protocol-only, so set only for a specific site:
+                        options = HDR_FRAME_ALLOWFROM + site;
+                    } else {
+                        // When XFO can't express it, still set an ALLOWALL so filters don't jump in
+                        options = HDR_FRAME_ALLOWALL;
                     }
                 }
             }
+            frameOptions = options;
+            replaceFrameOptions = replace;
+        }
+
+        private void apply(HttpServletResponse rsp) {
+            rsp.setHeader(CSP.Header.SECURE, cspValue);
+            if (frameOptions != null) {
+                if (replaceFrameOptions) {
+                    rsp.setHeader(HDR_FRAME_OPTIONS, frameOptions);
+                } else {
+                    rsp.addHeader(HDR_FRAME_OPTIONS, frameOptions);
+                }
+            }
         }
     }
 
@@ -659,6 +711,10 @@ public class ServletUtilAdapterImpl implements ServletUtilAdapter {
             return null;
         }
         this.setLongCache(response);
+        String etag = (String) request.getAttribute(AuraResourceServlet.RESOURCE_ETAG);
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+        }
         if (uid == null) {
             uid = context.getUid(appDesc);
         }
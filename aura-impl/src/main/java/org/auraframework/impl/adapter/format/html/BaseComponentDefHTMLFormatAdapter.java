@@ -23,9 +23,7 @@ import javax.inject.Inject;
 
 import org.auraframework.annotations.Annotations.ServiceComponent;
 import org.auraframework.def.BaseComponentDef;
-import org.auraframework.instance.Component;
 import org.auraframework.service.ContextService;
-import org.auraframework.service.RenderingService;
 import org.auraframework.service.ServerService;
 import org.auraframework.throwable.AuraRuntimeException;
 import org.auraframework.throwable.quickfix.QuickFixException;
@@ -40,14 +38,10 @@ public abstract class BaseComponentDefHTMLFormatAdapter<T extends BaseComponentD
     @Inject
     private ServerService serverService;
 
-    @Inject
-    private RenderingService renderingService;
-    
     @Override
     public void write(T value, Map<String, Object> componentAttributes, Appendable out) throws IOException {
         try {
-            Component template = serverService.writeTemplate(contextService.getCurrentContext(), value, componentAttributes, out);
-            renderingService.render(template, out, null);
+            serverService.writeTemplateHtml(contextService.getCurrentContext(), value, componentAttributes, out);
         } catch (QuickFixException e) {
             throw new AuraRuntimeException(e);
         }
@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+import org.auraframework.adapter.CacheAdapter;
+import org.auraframework.annotations.Annotations.ServiceComponent;
+import org.auraframework.cache.Cache;
+import org.auraframework.def.ActionDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.impl.java.controller.JavaAction;
+import org.auraframework.instance.Action;
+import org.auraframework.instance.Action.State;
+import org.auraframework.instance.Instance;
+import org.auraframework.service.CachingService;
+import org.auraframework.system.AuraContext;
+import org.auraframework.util.json.JsonEncoder;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Server side results of storable java actions.
+ *
+ * An entry is keyed by the action descriptor, the partition from the {@link CacheAdapter}, the caller version and
+ * the parameters with their map keys sorted, so that the same call always gets the same key. Entries live for
+ * aura.cache.actionCacheTtl seconds, and are dropped on any source change.
+ *
+ * Only successful results are cached, and only if the action queued no further actions. A result that is a
+ * component instance belongs to its request and is never cached. Whatever else the action did on the server, like
+ * firing client events, is not replayed on a hit, so such actions should not be storable.
+ *
+ * Identical actions that arrive while one is already running are coalesced: the first caller runs it, and the others
+ * wait for its result rather than running the controller method again, see {@link #startOrJoin(String, Action, AuraContext)}.
+ */
+@ServiceComponent
+public class ActionResultCache {
+    private static final char SEPARATOR = '\u0000';
+
+    /**
+     * How long a caller waits on an identical action before giving up and running its own.
+     */
+    private static final long MAX_JOIN_WAIT_SECONDS = 30;
+
+    /**
+     * A running action, that identical actions can wait on.
+     */
+    public static final class Flight {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Optional<Object> result;
+
+        private Flight() {
+        }
+    }
+
+    private final ConcurrentMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong joined = new AtomicLong();
+
+    private CachingService cachingService;
+
+    private CacheAdapter cacheAdapter;
+
+    @Inject
+    public void setCachingService(CachingService cachingService) {
+        this.cachingService = cachingService;
+    }
+
+    /**
+     * Aura itself has no partitioning, consumers of Aura provide it to switch on caching.
+     */
+    @Autowired(required = false)
+    public void setCacheAdapter(CacheAdapter cacheAdapter) {
+        this.cacheAdapter = cacheAdapter;
+    }
+
+    /**
+     * Get the key the result of an action is cached under.
+     *
+     * @param action the action about to be run.
+     * @return the key, or null if the action is not cached.
+     */
+    public String getKey(Action action) {
+        if (cacheAdapter == null || !(action instanceof JavaAction) || !action.isStorable()) {
+            return null;
+        }
+        String partition = cacheAdapter.getActionCachePartition(action);
+        if (partition == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(128);
+        key.append(action.getDescriptor().getQualifiedName()).append(SEPARATOR);
+        key.append(partition).append(SEPARATOR);
+        if (action.getCallerVersion() != null) {
+            key.append(action.getCallerVersion());
+        }
+        key.append(SEPARATOR);
+        key.append(JsonEncoder.serialize(normalize(action.getParams())));
+        return key.toString();
+    }
+
+    /**
+     * Complete an action from the cache.
+     *
+     * @param key the key from {@link #getKey(Action)}.
+     * @param action the action to complete.
+     * @return true if there was a result, in which case the action must not be run.
+     */
+    public boolean restore(String key, Action action) {
+        Optional<Object> result = cachingService.getActionCache().getIfPresent(key);
+        if (result == null) {
+            return false;
+        }
+        ((JavaAction) action).restore(result.orNull());
+        return true;
+    }
+
+    /**
+     * Keep the result of an action that was just run, if it can be reused.
+     *
+     * @param key the key from {@link #getKey(Action)}.
+     * @param action the action that was run.
+     * @return true if the result was cached.
+     */
+    public boolean store(String key, Action action) {
+        if (!isReusable(action)) {
+            return false;
+        }
+        cachingService.getActionCache().put(key, Optional.fromNullable(action.getReturnValue()));
+        return true;
+    }
+
+    /**
+     * Either become the one caller that runs an action, or wait for the identical action that is already running.
+     *
+     * A caller that gets a flight back must run the action and then pass it to
+     * {@link #complete(String, Flight, Action)}, in a finally block, or identical actions will wait in vain until
+     * they time out. A waiting caller whose leader fails gets a flight of its own and runs the action itself.
+     *
+     * A caller never waits past the deadline of its request, nor more than {@value #MAX_JOIN_WAIT_SECONDS} seconds.
+     *
+     * @param key the key from {@link #getKey(Action)}.
+     * @param action the action about to be run.
+     * @param context the context of the request, for its deadline, or null if there is none.
+     * @return the flight to complete once the action has run, or null if the action was completed with the result
+     *         of the identical one.
+     */
+    public Flight startOrJoin(String key, Action action, AuraContext context) {
+        Flight flight = new Flight();
+        Flight running = inFlight.putIfAbsent(key, flight);
+        if (running == null) {
+            started.incrementAndGet();
+            return flight;
+        }
+        long maxWait = TimeUnit.SECONDS.toNanos(MAX_JOIN_WAIT_SECONDS);
+        if (context != null) {
+            maxWait = Math.min(maxWait, context.getRemainingNanos());
+        }
+        Optional<Object> result = await(running, maxWait);
+        if (result == null) {
+            // nothing to share, run it ourselves without holding up anyone else.
+            started.incrementAndGet();
+            return flight;
+        }
+        joined.incrementAndGet();
+        ((JavaAction) action).restore(result.orNull());
+        return null;
+    }
+
+    /**
+     * Publish the result of an action started with {@link #startOrJoin(String, Action, AuraContext)} to anyone waiting on it,
+     * and cache it if it can be reused.
+     */
+    public void complete(String key, Flight flight, Action action) {
+        try {
+            if (store(key, action)) {
+                flight.result = Optional.fromNullable(action.getReturnValue());
+            }
+        } finally {
+            inFlight.remove(key, flight);
+            flight.done.countDown();
+        }
+    }
+
+    /**
+     * @return the share of coalescable actions that were answered by joining an identical running one, since
+     *         startup.
+     */
+    public double getCoalescingRate() {
+        long j = joined.get();
+        long total = j + started.get();
+        return total == 0 ? 0.0 : (double) j / total;
+    }
+
+    private static Optional<Object> await(Flight flight, long maxWaitNanos) {
+        try {
+            if (maxWaitNanos <= 0 || !flight.done.await(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                return null;
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        return flight.result;
+    }
+
+    /**
+     * Drop the cached results of one action, for all partitions.
+     */
+    public void invalidate(DefDescriptor<ActionDef> descriptor) {
+        cachingService.getActionCache().invalidatePartial(descriptor.getQualifiedName() + SEPARATOR);
+    }
+
+    /**
+     * Drop the cached results of one action for a single partition.
+     */
+    public void invalidate(DefDescriptor<ActionDef> descriptor, String partition) {
+        cachingService.getActionCache().invalidatePartial(
+                descriptor.getQualifiedName() + SEPARATOR + partition + SEPARATOR);
+    }
+
+    /**
+     * Drop all cached results of a partition, e.g. when a user logs out or a tenant changes its data.
+     */
+    public void invalidatePartition(String partition) {
+        Cache<String, Optional<Object>> cache = cachingService.getActionCache();
+        String segment = SEPARATOR + partition + SEPARATOR;
+        List<String> keys = Lists.newArrayList();
+        for (String key : cache.getKeySet()) {
+            if (key.regionMatches(key.indexOf(SEPARATOR), segment, 0, segment.length())) {
+                keys.add(key);
+            }
+        }
+        cache.invalidate(keys);
+    }
+
+    public void invalidateAll() {
+        cachingService.getActionCache().invalidateAll();
+    }
+
+    private static boolean isReusable(Action action) {
+        if (action.getState() != State.SUCCESS || !action.getErrors().isEmpty()) {
+            return false;
+        }
+        List<Action> additional = action.getActions();
+        if (additional != null && !additional.isEmpty()) {
+            return false;
+        }
+        return !(action.getReturnValue() instanceof Instance);
+    }
+
+    /**
+     * Sort map keys all the way down, so that the serialized form does not depend on the order the client sent.
+     */
+    private static Object normalize(Object value) {
+        if (value instanceof Map) {
+            SortedMap<String, Object> sorted = Maps.newTreeMap();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                sorted.put(String.valueOf(entry.getKey()), normalize(entry.getValue()));
+            }
+            return sorted;
+        }
+        if (value instanceof List) {
+            List<Object> list = Lists.newArrayListWithCapacity(((List<?>) value).size());
+            for (Object item : (List<?>) value) {
+                list.add(normalize(item));
+            }
+            return list;
+        }
+        return value;
+    }
+}
@@ -29,6 +29,7 @@ import java.util.ArrayList;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @ServiceComponent
 public class CacheImpl<K, T> implements Cache<K, T> {
@@ -147,6 +148,10 @@ public class CacheImpl<K, T> implements Cache<K, T> {
             cb = cb.softValues();
         }
 
+        if (builder.expireAfterWriteNanos > 0) {
+            cb = cb.expireAfterWrite(builder.expireAfterWriteNanos, TimeUnit.NANOSECONDS);
+        }
+
         EvictionListener<K, T> listener = new EvictionListener<>(builder.name, this.loggingAdapter);
         cb.removalListener(listener);
         cache = cb.build();
@@ -232,6 +237,7 @@ public class CacheImpl<K, T> implements Cache<K, T> {
         boolean recordStats = false;
         boolean softValues = true;
         boolean useSecondaryStorage = false;
+        long expireAfterWriteNanos = 0;
         String name;
 
         public Builder() {
@@ -281,6 +287,12 @@ public class CacheImpl<K, T> implements Cache<K, T> {
             return this;
         }
 
+        @Override
+        public Builder<K, T> setExpireAfterWrite(long duration, TimeUnit unit) {
+            this.expireAfterWriteNanos = unit.toNanos(duration);
+            return this;
+        }
+
         @Override
         public Builder<K, T> setName(String name) {
             this.name = name;
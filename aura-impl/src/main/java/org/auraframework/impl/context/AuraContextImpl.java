@@ -58,6 +58,7 @@ import org.auraframework.system.MasterDefRegistry;
 import org.auraframework.test.TestContext;
 import org.auraframework.test.TestContextAdapter;
 import org.auraframework.throwable.AuraRuntimeException;
+import org.auraframework.throwable.DeadlineExceededException;
 import org.auraframework.throwable.SystemErrorException;
 import org.auraframework.throwable.quickfix.InvalidEventTypeException;
 import org.auraframework.throwable.quickfix.QuickFixException;
@@ -93,6 +94,10 @@ public class AuraContextImpl implements AuraContext {
 
     private Action currentAction;
 
+    private long actionDeadline;
+
+    private volatile long requestDeadline;
+
     private final Map<DefType, String> defaultPrefixes;
 
     private String num;
@@ -132,6 +137,7 @@ public class AuraContextImpl implements AuraContext {
 
     private static final int MAX_COMPONENT_COUNT = 10000;
     private int componentCount;
+    private int forkedComponentCount;
 
     private static final Map<String, GlobalValue> allowedGlobalValues = new HashMap<>();
     private Map<String, AuraContext.GlobalValue> globalValues;
@@ -297,6 +303,69 @@ public class AuraContextImpl implements AuraContext {
         }
     }
 
+    /**
+     * Make a context for running part of this request on another thread.
+     *
+     * The fork has the settings of the request and a copy of what it has loaded so far, but a master registry and
+     * state of its own, so nothing in it changes this context while both are in use. What the fork adds is taken
+     * back with {@link #join(AuraContextImpl)}.
+     *
+     * @param registry the master registry for the fork, over the same registries as this context.
+     * @param jsonContext the serialization context for the fork.
+     * @param globalProviders the value providers for the fork.
+     */
+    AuraContextImpl fork(MasterDefRegistry registry, JsonSerializationContext jsonContext,
+            Map<String, GlobalValueProvider> globalProviders) {
+        AuraContextImpl fork = new AuraContextImpl(mode, registry, defaultPrefixes, format, access, jsonContext,
+                globalProviders, configAdapter, definitionService, testContextAdapter, null);
+        fork.enableAccessChecks = enableAccessChecks;
+        fork.num = num;
+        fork.dynamicNamespaces.addAll(dynamicNamespaces);
+        fork.preloadedDefinitions = preloadedDefinitions;
+        fork.loaded.putAll(loaded);
+        fork.clientLoaded.putAll(clientLoaded);
+        fork.contextPath = contextPath;
+        fork.appDesc = appDesc;
+        fork.loadingAppDesc = loadingAppDesc;
+        fork.requestedLocales = requestedLocales;
+        fork.client = client;
+        fork.fwUID = fwUID;
+        fork.styleContext = styleContext;
+        fork.globalValues.putAll(globalValues);
+        fork.requestDeadline = requestDeadline;
+        fork.componentCount = componentCount;
+        fork.forkedComponentCount = componentCount;
+        fork.defs.putAll(defs);
+        fork.defNotCacheable.addAll(defNotCacheable);
+        fork.dynamicDescs.addAll(dynamicDescs);
+        fork.localDependencies.putAll(localDependencies);
+        return fork;
+    }
+
+    /**
+     * Take over what a fork of this context added while it ran: definitions, loaded descriptors, client events and
+     * components. Must only be called once the fork is no longer in use.
+     */
+    void join(AuraContextImpl fork) {
+        for (Map.Entry<DefDescriptor<? extends Definition>, Optional<Definition>> entry : fork.defs.entrySet()) {
+            defs.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        defNotCacheable.addAll(fork.defNotCacheable);
+        dynamicDescs.addAll(fork.dynamicDescs);
+        for (Map.Entry<String, DependencyEntry> entry : fork.localDependencies.entrySet()) {
+            if (!localDependencies.containsKey(entry.getKey())) {
+                localDependencies.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<DefDescriptor<?>, String> entry : fork.loaded.entrySet()) {
+            if (!loaded.containsKey(entry.getKey())) {
+                loaded.put(entry.getKey(), entry.getValue());
+            }
+        }
+        clientEvents.addAll(fork.clientEvents);
+        componentCount += fork.componentCount - fork.forkedComponentCount;
+    }
+
 
     @Override
     public boolean isPreloaded(DefDescriptor<?> descriptor) {
@@ -469,6 +538,47 @@ public class AuraContextImpl implements AuraContext {
         return old;
     }
 
+    @Override
+    public void setActionDeadline(long deadline) {
+        actionDeadline = deadline;
+    }
+
+    @Override
+    public void setRequestDeadline(long deadline) {
+        this.requestDeadline = deadline;
+    }
+
+    @Override
+    public boolean isDeadlineExceeded() {
+        long now = System.nanoTime();
+        long deadline = requestDeadline;
+        if (deadline != 0 && now - deadline >= 0) {
+            return true;
+        }
+        return actionDeadline != 0 && now - actionDeadline >= 0;
+    }
+
+    @Override
+    public long getRemainingNanos() {
+        long now = System.nanoTime();
+        long remaining = Long.MAX_VALUE;
+        long deadline = requestDeadline;
+        if (deadline != 0) {
+            remaining = deadline - now;
+        }
+        if (actionDeadline != 0) {
+            remaining = Math.min(remaining, actionDeadline - now);
+        }
+        return remaining;
+    }
+
+    @Override
+    public void checkDeadline() {
+        if (isDeadlineExceeded()) {
+            throw new DeadlineExceededException();
+        }
+    }
+
     @Override
     public BaseComponent<?, ?> setCurrentComponent(BaseComponent<?, ?> nextComponent) {
         BaseComponent<?, ?> old = currentComponent;
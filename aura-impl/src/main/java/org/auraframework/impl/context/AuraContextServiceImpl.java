@@ -142,6 +142,29 @@ public class AuraContextServiceImpl implements ContextService {
         return context;
     }
 
+    @Override
+    public AuraContext attachContext(AuraContext context) {
+        loggingService.establish();
+        return contextAdapter.attach(context);
+    }
+
+    @Override
+    public AuraContext forkContext(AuraContext context) {
+        // the same registries as the request, with its own source loaders, behind a master registry of its own,
+        // which keeps the state of the definitions being compiled.
+        MasterDefRegistryImpl mdr = new MasterDefRegistryImpl(configAdapter, definitionService, loggingService,
+                cachingService, ((MasterDefRegistryImpl) context.getDefRegistry()).getAllRegistries());
+        AuraContext fork = ((AuraContextImpl) context).fork(mdr,
+                AuraJsonContext.createContext(context.getMode(), true, jsonSerializerFactory), getGlobalProviders());
+        mdr.setContext(fork);
+        return fork;
+    }
+
+    @Override
+    public void joinContext(AuraContext context, AuraContext fork) {
+        ((AuraContextImpl) context).join((AuraContextImpl) fork);
+    }
+
     @Override
     public void endContext() {
         try {
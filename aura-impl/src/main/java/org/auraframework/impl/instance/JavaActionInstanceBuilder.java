@@ -82,7 +82,7 @@ public class JavaActionInstanceBuilder implements InstanceBuilder<Action, Action
             Object controllerBean = applicationContext.getBean(controllerDef.getJavaType());
 
             return new JavaAction(controllerDesc, (JavaActionDef) def, controllerBean, attributes,
-                    exceptionAdapter, loggingService);
+                    exceptionAdapter, loggingService, contextService);
         } finally {
             context.popCallingDescriptor();
         }
@@ -21,11 +21,14 @@ import org.auraframework.def.ControllerDef;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.ValueDef;
 import org.auraframework.instance.AbstractActionImpl;
+import org.auraframework.service.ContextService;
 import org.auraframework.service.LoggingService;
+import org.auraframework.system.AuraContext;
 import org.auraframework.system.Location;
 import org.auraframework.throwable.AuraExecutionException;
 import org.auraframework.throwable.AuraHandledException;
 import org.auraframework.throwable.AuraUnhandledException;
+import org.auraframework.throwable.DeadlineExceededException;
 import org.auraframework.throwable.quickfix.InvalidDefinitionException;
 import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.json.Json;
@@ -44,8 +47,11 @@ public class JavaAction extends AbstractActionImpl<JavaActionDef> {
     private final List<Object> errors = Lists.newArrayList();
     private final Object instance;
 
+    private boolean deadlineExceeded;
+
     private final ExceptionAdapter exceptionAdapter;
     private final LoggingService loggingService;
+    private final ContextService contextService;
 
     /**
      * The constructor for an action.
@@ -60,11 +66,12 @@ public class JavaAction extends AbstractActionImpl<JavaActionDef> {
      */
     public JavaAction(DefDescriptor<ControllerDef> controllerDescriptor, JavaActionDef actionDef,
                       Object bean, Map<String, Object> paramValues, ExceptionAdapter exceptionAdapter,
-                      LoggingService loggingService) {
+                      LoggingService loggingService, ContextService contextService) {
         super(controllerDescriptor, actionDef, paramValues);
         this.instance = bean;
         this.exceptionAdapter = exceptionAdapter;
         this.loggingService = loggingService;
+        this.contextService = contextService;
     }
 
     private Object[] getArgs(ExceptionAdapter exceptionAdapter) {
@@ -75,7 +82,7 @@ public class JavaAction extends AbstractActionImpl<JavaActionDef> {
         for (ValueDef valueDef : actionDef.getParameters()) {
             Object param = paramValues.get(valueDef.getName());
             try {
-                param = valueDef.getType().valueOf(param);
+                param = actionDef.getParameterType(i).valueOf(param);
             } catch (QuickFixException qfe) {
                 //
                 // This means that we have a broken definition.
@@ -132,6 +139,10 @@ public class JavaAction extends AbstractActionImpl<JavaActionDef> {
             return;
         }
         this.state = State.RUNNING;
+        if (isOutOfTime()) {
+            failDeadline();
+            return;
+        }
 
         Object[] args = getArgs(exceptionAdapter);
         if (args == null) {
@@ -142,13 +153,21 @@ public class JavaAction extends AbstractActionImpl<JavaActionDef> {
         loggingService.startTimer("java");
         try {
             loggingService.incrementNum("JavaCallCount");
-            this.returnValue = this.actionDef.getMethod().invoke(instance, args);
+            this.returnValue = this.actionDef.invoke(instance, args);
             this.state = State.SUCCESS;
+            if (isOutOfTime()) {
+                failDeadline();
+            }
         } catch (InvocationTargetException e) {
-            // something bad happened in the body of the action itself
-            // getCause() unwraps the InvocationTargetException, gives us the
-            // real information.
-            addException(e.getCause(), State.ERROR, true, true, exceptionAdapter);
+            if (e.getCause() instanceof DeadlineExceededException) {
+                // the controller gave up by itself.
+                failDeadline();
+            } else {
+                // something bad happened in the body of the action itself
+                // getCause() unwraps the InvocationTargetException, gives us the
+                // real information.
+                addException(e.getCause(), State.ERROR, true, true, exceptionAdapter);
+            }
         } catch (Exception e) {
             //
             // Several cases handled here, including
@@ -162,6 +181,148 @@ public class JavaAction extends AbstractActionImpl<JavaActionDef> {
         }
     }
 
+    /**
+     * Run several calls of the same bulk action with a single call of its bulk method.
+     *
+     * Each action converts its own arguments, and one that fails to do so gets its error without taking part in the
+     * call. If the bulk method throws, every action that took part gets the error.
+     *
+     * @param actions actions that all satisfy {@link #isBulkWith(JavaAction)} with the first one.
+     * @see org.auraframework.system.Annotations.BulkAction
+     */
+    public static void runBulk(List<JavaAction> actions) {
+        List<JavaAction> calls = Lists.newArrayListWithCapacity(actions.size());
+        List<Object[]> argSets = Lists.newArrayListWithCapacity(actions.size());
+        for (JavaAction action : actions) {
+            action.state = State.RUNNING;
+            Object[] args = action.getArgs(action.exceptionAdapter);
+            if (args != null) {
+                calls.add(action);
+                argSets.add(args);
+            }
+        }
+        if (calls.isEmpty()) {
+            return;
+        }
+
+        JavaAction first = calls.get(0);
+        if (first.isOutOfTime()) {
+            for (JavaAction action : calls) {
+                action.failDeadline();
+            }
+            return;
+        }
+        LoggingService loggingService = first.loggingService;
+        loggingService.stopTimer(LoggingService.TIMER_AURA);
+        loggingService.startTimer("java");
+        try {
+            loggingService.incrementNum("JavaCallCount");
+            loggingService.incrementNumBy("JavaBulkCallCount", Long.valueOf(calls.size()));
+            Object results = first.actionDef.invokeBulk(first.instance, argSets);
+            if (!(results instanceof List) || ((List<?>) results).size() != calls.size()) {
+                throw new IllegalStateException(String.format("Bulk method %s returned %s for %d calls",
+                        first.actionDef.getBulkMethod().getName(),
+                        results instanceof List ? ((List<?>) results).size() + " results" : results,
+                        calls.size()));
+            }
+            boolean late = first.isOutOfTime();
+            int i = 0;
+            for (Object result : (List<?>) results) {
+                JavaAction action = calls.get(i++);
+                if (late) {
+                    action.failDeadline();
+                } else if (result instanceof AuraHandledException) {
+                    action.addException((AuraHandledException) result, State.ERROR, false, false,
+                            action.exceptionAdapter);
+                } else {
+                    action.returnValue = result;
+                    action.state = State.SUCCESS;
+                }
+            }
+        } catch (InvocationTargetException e) {
+            for (JavaAction action : calls) {
+                if (e.getCause() instanceof DeadlineExceededException) {
+                    action.failDeadline();
+                } else {
+                    action.addException(e.getCause(), State.ERROR, true, true, action.exceptionAdapter);
+                }
+            }
+        } catch (Exception e) {
+            for (JavaAction action : calls) {
+                action.addException(e, State.ERROR, true, false, action.exceptionAdapter);
+            }
+        } finally {
+            loggingService.stopTimer("java");
+            loggingService.startTimer(LoggingService.TIMER_AURA);
+        }
+    }
+
+    private boolean isOutOfTime() {
+        AuraContext context = contextService.getCurrentContext();
+        return context != null && context.isDeadlineExceeded();
+    }
+
+    /**
+     * Fail the action for running past its deadline, dropping any result it had.
+     */
+    private void failDeadline() {
+        this.deadlineExceeded = true;
+        this.returnValue = null;
+        addException(new DeadlineExceededException(), State.ERROR, false, false, exceptionAdapter);
+    }
+
+    /**
+     * @return true if the action was failed because it, or its request, ran out of time.
+     */
+    public boolean isDeadlineExceeded() {
+        return deadlineExceeded;
+    }
+
+    /**
+     * @return true if this action has a bulk method.
+     */
+    public boolean isBulk() {
+        return actionDef != null && actionDef.isBulk();
+    }
+
+    /**
+     * @return true if this action can be run in the same bulk call as the other one.
+     */
+    public boolean isBulkWith(JavaAction other) {
+        return isBulk() && actionDef == other.actionDef && instance == other.instance;
+    }
+
+    /**
+     * Complete the action with a result computed by an earlier, identical action instead of running it.
+     *
+     * @param returnValue the return value of the earlier action.
+     */
+    public void restore(Object returnValue) {
+        this.returnValue = returnValue;
+        this.state = State.SUCCESS;
+    }
+
+    /**
+     * @return true if this action may run concurrently with the other actions of its request.
+     */
+    public boolean isConcurrent() {
+        return actionDef != null && actionDef.isConcurrent();
+    }
+
+    /**
+     * @return true if the client sends this action on its own, as background work.
+     */
+    public boolean isBackground() {
+        return actionDef != null && actionDef.isBackground();
+    }
+
+    /**
+     * @return true if the client holds this action back until another one is sent.
+     */
+    public boolean isCaboose() {
+        return actionDef != null && actionDef.isCaboose();
+    }
+
     @Override
     public Object getReturnValue() {
         return returnValue;
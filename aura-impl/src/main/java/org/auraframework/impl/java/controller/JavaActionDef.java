@@ -21,10 +21,20 @@ import org.auraframework.def.TypeDef;
 import org.auraframework.def.ValueDef;
 import org.auraframework.impl.system.DefinitionImpl;
 import org.auraframework.impl.util.AuraUtil;
+import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.json.Json;
 
+import com.google.common.primitives.Primitives;
+
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -32,13 +42,26 @@ import java.util.List;
  */
 public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDef {
     private static final long serialVersionUID = -9179014361802437154L;
+
+    /**
+     * The shape of every invoker: (controller instance or null, arguments) returning the result.
+     */
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private static final Class<?>[] BULK_ARG_TYPES = { List.class };
+
     private final DefDescriptor<TypeDef> returnTypeDescriptor;
     private final List<ValueDef> params;
     private final List<String> loggableParams;
     private final Class<?>[] javaParams;
     private final Method method;
+    private final transient MethodHandle invoker;
+    private final Method bulkMethod;
+    private final transient MethodHandle bulkInvoker;
+    private List<TypeDef> paramTypes;
     private final boolean background;
     private final boolean caboose;
+    private final boolean concurrent;
 
     protected JavaActionDef(Builder builder) {
         super(builder);
@@ -47,8 +70,12 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
         this.loggableParams = builder.loggableParams;
         this.javaParams = builder.javaParams;
         this.method = builder.method;
+        this.invoker = createInvoker(builder.method);
+        this.bulkMethod = builder.bulkMethod;
+        this.bulkInvoker = createInvoker(builder.bulkMethod);
         this.background = builder.background;
         this.caboose = builder.caboose;
+        this.concurrent = builder.concurrent;
     }
 
     @Override
@@ -70,6 +97,124 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
         return this.javaParams;
     }
 
+    /**
+     * Resolve the types of the parameters, they are kept with the definition from then on.
+     *
+     * A type that does not resolve is left out, the call reports it as an invalid parameter instead of the whole
+     * controller failing.
+     */
+    @Override
+    public void validateReferences() throws QuickFixException {
+        super.validateReferences();
+        TypeDef[] types = new TypeDef[params.size()];
+        for (int i = 0; i < types.length; i++) {
+            try {
+                types[i] = params.get(i).getType();
+            } catch (QuickFixException qfe) {
+                types[i] = null;
+            }
+        }
+        paramTypes = Collections.unmodifiableList(Arrays.asList(types));
+    }
+
+    /**
+     * Get the type of a parameter.
+     *
+     * @param i the index of the parameter.
+     */
+    TypeDef getParameterType(int i) throws QuickFixException {
+        TypeDef type = paramTypes != null ? paramTypes.get(i) : null;
+        if (type == null) {
+            return params.get(i).getType();
+        }
+        return type;
+    }
+
+    /**
+     * Call the method.
+     *
+     * This goes through a method handle built with the definition, so there are no access checks or argument
+     * copies per call. As with {@link Method#invoke(Object, Object...)}, a wrong instance or wrong arguments are an
+     * IllegalArgumentException, and only what the method itself throws comes out wrapped in an
+     * InvocationTargetException.
+     *
+     * @param instance the controller bean, or null for a static method.
+     * @param args the converted arguments.
+     * @return the return value, null for void methods.
+     */
+    Object invoke(Object instance, Object[] args) throws InvocationTargetException, IllegalAccessException {
+        if (invoker == null) {
+            return method.invoke(instance, args);
+        }
+        checkArguments(method, javaParams, instance, args);
+        try {
+            return (Object) invoker.invokeExact(instance, args);
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    /**
+     * Call the bulk method with the arguments of several calls.
+     *
+     * @param instance the controller bean, or null for a static method.
+     * @param argSets the converted arguments of each call.
+     * @return the list of results, as returned by the method.
+     * @see org.auraframework.system.Annotations.BulkAction
+     */
+    Object invokeBulk(Object instance, List<Object[]> argSets) throws InvocationTargetException,
+            IllegalAccessException {
+        Object[] args = new Object[] { argSets };
+        if (bulkInvoker == null) {
+            return bulkMethod.invoke(instance, args);
+        }
+        checkArguments(bulkMethod, BULK_ARG_TYPES, instance, args);
+        try {
+            return (Object) bulkInvoker.invokeExact(instance, args);
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    /**
+     * Check what {@link Method#invoke(Object, Object...)} would check, so that a failure from the handle can only
+     * come from the method.
+     *
+     * @param argTypes the parameter types of the method.
+     */
+    private static void checkArguments(Method method, Class<?>[] argTypes, Object instance, Object[] args) {
+        if (!Modifier.isStatic(method.getModifiers()) && !method.getDeclaringClass().isInstance(instance)) {
+            throw new IllegalArgumentException("Object is not an instance of " + method.getDeclaringClass().getName());
+        }
+        if (args.length != argTypes.length) {
+            throw new IllegalArgumentException("Wrong number of arguments for " + method.getName() + ": expected "
+                    + argTypes.length + ", got " + args.length);
+        }
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            if (arg == null ? argTypes[i].isPrimitive() : !Primitives.wrap(argTypes[i]).isInstance(arg)) {
+                throw new IllegalArgumentException("Argument " + i + " of " + method.getName() + " must be a "
+                        + argTypes[i].getName() + ", got " + (arg == null ? "null" : arg.getClass().getName()));
+            }
+        }
+    }
+
+    private static MethodHandle createInvoker(Method method) {
+        if (method == null) {
+            return null;
+        }
+        try {
+            MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+            if (Modifier.isStatic(method.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            return handle.asSpreader(Object[].class, method.getParameterTypes().length).asType(INVOKER_TYPE);
+        } catch (IllegalAccessException iae) {
+            // not accessible from here, calls go through reflection instead.
+            return null;
+        }
+    }
+
     /**
      * Gets the method for this instance.
      * 
@@ -79,6 +224,20 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
         return this.method;
     }
 
+    /**
+     * @return the method that runs many calls of this action at once, or null if there is none.
+     */
+    public Method getBulkMethod() {
+        return this.bulkMethod;
+    }
+
+    /**
+     * @return true if calls of this action can be run together with {@link #invokeBulk(Object, List)}.
+     */
+    public boolean isBulk() {
+        return bulkMethod != null;
+    }
+
     @Override
     public DefDescriptor<TypeDef> getReturnType() {
         return returnTypeDescriptor;
@@ -92,6 +251,13 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
     	return caboose;
     }
 
+    /**
+     * @return true if the action may run concurrently with the other actions of a request.
+     */
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
     @Override
     public void serialize(Json json) throws IOException {
         json.writeMapBegin();
@@ -116,8 +282,10 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
         private List<String> loggableParams;
         private Class<?>[] javaParams;
         private Method method;
+        private Method bulkMethod;
         private boolean background = false;
         private boolean caboose = false;
+        private boolean concurrent = false;
 
         @Override
         public JavaActionDef build() {
@@ -164,6 +332,10 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
             this.method = method;
         }
 
+        public void setBulkMethod(Method bulkMethod) {
+            this.bulkMethod = bulkMethod;
+        }
+
         public void setBackground(boolean background) {
             this.background = background;
         }
@@ -171,5 +343,9 @@ public class JavaActionDef extends DefinitionImpl<ActionDef> implements ActionDe
         public void setCaboose(boolean caboose) {
             this.caboose = caboose;
         }
+
+        public void setConcurrent(boolean concurrent) {
+            this.concurrent = concurrent;
+        }
     }
 }
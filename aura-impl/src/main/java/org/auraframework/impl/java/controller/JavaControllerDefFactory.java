@@ -32,7 +32,9 @@ import org.auraframework.impl.system.SubDefDescriptorImpl;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.system.Annotations.AuraEnabled;
 import org.auraframework.system.Annotations.BackgroundAction;
+import org.auraframework.system.Annotations.BulkAction;
 import org.auraframework.system.Annotations.CabooseAction;
+import org.auraframework.system.Annotations.ConcurrentAction;
 import org.auraframework.system.Annotations.Key;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Access;
@@ -133,9 +135,10 @@ public class JavaControllerDefFactory extends BaseJavaDefFactory<ControllerDef>
      * Add a single method as an action.
      * 
      * @param method the method for which we want to create an action.
+     * @param bulkMethod the method that runs many calls of the action at once, or null.
      * @throws QuickFixException if the method is invalid for some reason.
      */
-    private JavaActionDef makeActionDef(Method method, Class<?> controllerClass,
+    private JavaActionDef makeActionDef(Method method, Method bulkMethod, Class<?> controllerClass,
                                         DefDescriptor<ControllerDef> controllerDesc) throws QuickFixException {
 
         JavaActionDef.Builder actionBuilder = new JavaActionDef.Builder();
@@ -180,12 +183,48 @@ public class JavaControllerDefFactory extends BaseJavaDefFactory<ControllerDef>
         
     	actionBuilder.setBackground(method.isAnnotationPresent(BackgroundAction.class));
     	actionBuilder.setCaboose(method.isAnnotationPresent(CabooseAction.class));
+        actionBuilder.setConcurrent(method.isAnnotationPresent(ConcurrentAction.class));
+
+        if (bulkMethod != null) {
+            if (Modifier.isStatic(bulkMethod.getModifiers()) != Modifier.isStatic(method.getModifiers())) {
+                throwControllerError("Bulk method must be static if and only if its action is: ", controllerClass,
+                        bulkMethod);
+            }
+            actionBuilder.setBulkMethod(bulkMethod);
+        }
 
         actionBuilder.setAccess(new DefinitionAccessImpl(Access.INTERNAL));
 
         return actionBuilder.build();
     }
 
+    /**
+     * Find the bulk methods of a class, by the name of the action they run.
+     *
+     * @param controllerClass the class that contains our action functions.
+     * @throws QuickFixException if a bulk method does not have the expected signature.
+     */
+    private static Map<String, Method> findBulkMethods(Class<?> controllerClass) throws QuickFixException {
+        Map<String, Method> bulkMethods = Maps.newHashMap();
+        for (Method method : controllerClass.getMethods()) {
+            BulkAction bulk = method.getAnnotation(BulkAction.class);
+            if (bulk != null) {
+                Class<?>[] paramTypes = method.getParameterTypes();
+                if (paramTypes.length != 1 || paramTypes[0] != List.class
+                        || !List.class.isAssignableFrom(method.getReturnType())) {
+                    throwControllerError("Bulk method must take a List<Object[]> and return a List: ",
+                            controllerClass, method);
+                }
+                if (bulkMethods.containsKey(bulk.value())) {
+                    throwControllerError("Duplicate bulk method for action " + bulk.value() + ": ", controllerClass,
+                            method);
+                }
+                bulkMethods.put(bulk.value(), method);
+            }
+        }
+        return bulkMethods;
+    }
+
     private static void throwControllerError(String message, Class<?> clazz, Method method) throws QuickFixException {
         throw new InvalidDefinitionException(message + method.getName(),
                 new Location(clazz.getCanonicalName(), 0));
@@ -205,6 +244,7 @@ public class JavaControllerDefFactory extends BaseJavaDefFactory<ControllerDef>
     public Map<String, JavaActionDef> createActions(Class<?> controllerClass,
                                                     DefDescriptor<ControllerDef> controllerDesc) throws QuickFixException {
         Map<String, JavaActionDef> actions = Maps.newTreeMap();
+        Map<String, Method> bulkMethods = findBulkMethods(controllerClass);
         for (Method method : controllerClass.getMethods()) {
             if (method.isAnnotationPresent(AuraEnabled.class)) {
                 int modifiers = method.getModifiers();
@@ -213,7 +253,8 @@ public class JavaControllerDefFactory extends BaseJavaDefFactory<ControllerDef>
                     throwControllerError("Invalid non-public action: ", controllerClass, method);
                 }
 
-                JavaActionDef action = makeActionDef(method, controllerClass, controllerDesc);
+                JavaActionDef action = makeActionDef(method, bulkMethods.remove(method.getName()), controllerClass,
+                        controllerDesc);
 
                 if (action != null) {
                     // this line disallows action overloading. dunno if we care.
@@ -225,6 +266,9 @@ public class JavaControllerDefFactory extends BaseJavaDefFactory<ControllerDef>
                 }
             }
         }
+        for (Method method : bulkMethods.values()) {
+            throwControllerError("No action for bulk method: ", controllerClass, method);
+        }
         return actions;
     }
 }
@@ -24,6 +24,7 @@ import org.auraframework.expression.PropertyReference;
 import org.auraframework.impl.system.DefinitionImpl;
 import org.auraframework.impl.util.AuraUtil;
 import org.auraframework.system.SubDefDescriptor;
+import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.json.Json;
 
 import java.io.IOException;
@@ -52,6 +53,15 @@ public class JavaControllerDefImpl extends DefinitionImpl<ControllerDef> impleme
         super.appendDependencies(dependencies);
         // FIXME: put all of our action dependencies in here...
     }
+
+    @Override
+    public void validateReferences() throws QuickFixException {
+        super.validateReferences();
+        for (JavaActionDef actionDef : actionMap.values()) {
+            actionDef.validateReferences();
+        }
+    }
+
     /**
      * used by the controller itself to get the type
      */
@@ -18,6 +18,8 @@ package org.auraframework.impl.java.converter;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
@@ -35,6 +37,7 @@ import org.auraframework.util.type.MultiConverter;
 import org.auraframework.util.type.MultiConverterInitError;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.google.common.base.Objects;
 import com.google.common.collect.Maps;
 
 @ServiceComponent
@@ -66,6 +69,13 @@ public final class ConverterServiceImpl implements ConverterService {
     private final Map<String, Map<String, Map<String, Converter<?, ?>>>> parameterizedConverters = Maps.newHashMap();
     private final Map<String, Map<String, MultiConverter<?>>> multiConverterMap = Maps.newHashMap();
 
+    /**
+     * Resolutions by the type names that the converter maps are keyed on. The converters are all registered at
+     * startup, so entries never go stale, and are kept even when nothing was found, which is the common case for
+     * localized lookups. Only names are held, so this does not pin the classes of converted values or their
+     * classloaders.
+     */
+    private final ConcurrentMap<ResolutionKey, Resolution> resolutions = new ConcurrentHashMap<>();
 
     public ConverterServiceImpl() {
     }
@@ -80,38 +90,12 @@ public final class ConverterServiceImpl implements ConverterService {
         return convert(value, to, null, true);
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public <F, T> T convert(F value, Class<T> to, String of, boolean trim) {
-
         if (value == null) {
             return null;
         }
-
-        if (trim && value instanceof String) {
-            value = (F) ((String) value).trim();
-        }
-
-        Class<F> from = (Class<F>) value.getClass();
-        if (of == null && to.isAssignableFrom(from)) {
-            return (T) value;
-        }
-
-        Converter<F, T> converter = getConverter(from, to, of);
-        if (converter != null) {
-            return converter.convert(value);
-        }
-
-        MultiConverter<T> multiConverter = null;
-        if (of == null) {
-            multiConverter = getMultiConverter(from, to);
-        }
-
-        if (multiConverter == null) {
-            throw new ConversionException(String.format("No Converter or MultiConverter found for %s to %s<%s>", from, to, of));
-        }
-
-        return multiConverter.convert(to, value);
+        return convert(value, to, of, trim, null, resolve(value.getClass(), to, of));
     }
 
     /**
@@ -134,33 +118,12 @@ public final class ConverterServiceImpl implements ConverterService {
      * @param trim   Should the result be trimmed if the value is a string?
      * @param locale We should use the localized converts and the specified local to convert the value. If you specify null, we use the non localized converters.
      */
-    @SuppressWarnings("unchecked")
     @Override
     public <F, T> T convert(F value, Class<T> to, String of, boolean trim, AuraLocale locale) {
         if (value == null) {
             return null;
         }
-        if (locale == null) {
-            return convert(value, to, of, trim);
-        }
-
-        // if no localized version exists, use the standard convert utility
-        final Class<F> from = (Class<F>) value.getClass();
-        final LocalizedConverter<F, T> converter = getLocalizedConverter(from, to, of);
-        if (converter == null) {
-            return convert(value, to, of, trim);
-        }
-
-        // otherwise try the localized steps
-        if (trim && value instanceof String) {
-            value = (F) ((String) value).trim();
-        }
-
-        if (to.isAssignableFrom(from)) {
-            return (T) value;
-        }
-
-        return converter.convert(value, locale);
+        return convert(value, to, of, trim, locale, resolve(value.getClass(), to, of));
     }
 
     /**
@@ -182,6 +145,149 @@ public final class ConverterServiceImpl implements ConverterService {
                 trim);
     }
 
+    @Override
+    public <T> ResolvedConverter<T> getConverter(Class<T> to, String of, boolean trim, boolean hasLocale) {
+        return new ResolvedConverterImpl<>(to, of, trim, hasLocale);
+    }
+
+    /**
+     * The conversion itself, once the converters for the value's class are known.
+     *
+     * A localized converter is only used when there is a locale, otherwise this falls back to the plain converters and
+     * then to a multi converter.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T convert(Object value, Class<T> to, String of, boolean trim, AuraLocale locale, Resolution resolution) {
+        if (trim && value instanceof String) {
+            value = ((String) value).trim();
+        }
+
+        boolean assignable = to.isInstance(value);
+        if (locale != null && resolution.localizedConverter != null) {
+            if (assignable) {
+                return (T) value;
+            }
+            return (T) resolution.localizedConverter.convert(value, locale);
+        }
+
+        if (of == null && assignable) {
+            return (T) value;
+        }
+
+        if (resolution.converter != null) {
+            return (T) resolution.converter.convert(value);
+        }
+
+        if (resolution.multiConverter == null) {
+            throw new ConversionException(String.format("No Converter or MultiConverter found for %s to %s<%s>",
+                    value.getClass(), to, of));
+        }
+
+        return (T) resolution.multiConverter.convert(to, value);
+    }
+
+    /**
+     * Find the converters for a (from, to, of), looking them up in the converter maps only the first time.
+     */
+    private Resolution resolve(Class<?> from, Class<?> to, String of) {
+        ResolutionKey key = new ResolutionKey(from.getName(), to.getName(), of);
+        Resolution resolution = resolutions.get(key);
+        if (resolution == null) {
+            resolution = new Resolution(key.from, getConverter(from, to, of),
+                    of == null ? getMultiConverter(from, to) : null, getLocalizedConverter(from, to, of));
+            Resolution previous = resolutions.putIfAbsent(key, resolution);
+            if (previous != null) {
+                resolution = previous;
+            }
+        }
+        return resolution;
+    }
+
+    private static final class ResolutionKey {
+        private final String from;
+        private final String to;
+        private final String of;
+        private final int hashCode;
+
+        private ResolutionKey(String from, String to, String of) {
+            this.from = from;
+            this.to = to;
+            this.of = of;
+            this.hashCode = Objects.hashCode(from, to, of);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ResolutionKey)) {
+                return false;
+            }
+            ResolutionKey other = (ResolutionKey) obj;
+            return from.equals(other.from) && to.equals(other.to) && Objects.equal(of, other.of);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * The converters for one (from, to, of). Both the localized and the plain converters are kept, so the same entry
+     * serves localized and non localized conversions. Any of them may be null.
+     */
+    private static final class Resolution {
+        private final String from;
+        private final Converter<Object, Object> converter;
+        private final MultiConverter<Object> multiConverter;
+        private final LocalizedConverter<Object, Object> localizedConverter;
+
+        @SuppressWarnings("unchecked")
+        private Resolution(String from, Converter<?, ?> converter, MultiConverter<?> multiConverter,
+                LocalizedConverter<?, ?> localizedConverter) {
+            this.from = from;
+            this.converter = (Converter<Object, Object>) converter;
+            this.multiConverter = (MultiConverter<Object>) multiConverter;
+            this.localizedConverter = (LocalizedConverter<Object, Object>) localizedConverter;
+        }
+    }
+
+    /**
+     * A converter handle. Values for a given target nearly always arrive with the same class, so the last resolution
+     * is remembered to skip even the map lookup.
+     */
+    private final class ResolvedConverterImpl<T> implements ResolvedConverter<T> {
+        private final Class<T> to;
+        private final String of;
+        private final boolean trim;
+        private final boolean hasLocale;
+        private volatile Resolution last;
+
+        private ResolvedConverterImpl(Class<T> to, String of, boolean trim, boolean hasLocale) {
+            this.to = to;
+            this.of = of;
+            this.trim = trim;
+            this.hasLocale = hasLocale;
+        }
+
+        @Override
+        public T convert(Object value) {
+            if (value == null) {
+                return null;
+            }
+            Resolution resolution = last;
+            if (resolution == null || !resolution.from.equals(value.getClass().getName())) {
+                resolution = resolve(value.getClass(), to, of);
+                last = resolution;
+            }
+            // the locale only matters if there is a localized converter.
+            AuraLocale locale = null;
+            if (hasLocale && resolution.localizedConverter != null) {
+                locale = localizationAdapter.getAuraLocale();
+            }
+            return ConverterServiceImpl.this.convert(value, to, of, trim, locale, resolution);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private <F, T> LocalizedConverter<F, T> getLocalizedConverter(Class<F> from, Class<T> to, String of) {
         if (of == null) {
@@ -391,17 +497,18 @@ public final class ConverterServiceImpl implements ConverterService {
 
     @Override
     public boolean hasConverter(Class<?> from, Class<?> to) {
-        return getConverter(from, to, null) != null;
+        return resolve(from, to, null).converter != null;
     }
 
     @Override
     public boolean hasLocalizedConverter(Class<?> from, Class<?> to) {
-        return getLocalizedConverter(from, to, null) != null;
+        return resolve(from, to, null).localizedConverter != null;
     }
 
     @Override
     public boolean hasConverter(Class<?> from, Class<?> to, String of) {
-        return getConverter(from, to, of) != null || (of == null && getMultiConverter(from, to) != null);
+        Resolution resolution = resolve(from, to, of);
+        return resolution.converter != null || resolution.multiConverter != null;
     }
 
 }
@@ -16,8 +16,7 @@
 package org.auraframework.impl.java.model;
 
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
 import java.util.List;
 import java.util.Map;
 
@@ -36,7 +35,6 @@ import org.auraframework.service.LoggingService;
 import org.auraframework.throwable.AuraExecutionException;
 import org.auraframework.throwable.AuraRuntimeException;
 import org.auraframework.throwable.quickfix.QuickFixException;
-import org.auraframework.util.AuraTextUtil;
 import org.auraframework.util.json.Json;
 
 /**
@@ -154,28 +152,26 @@ public class JavaModel implements Model {
                 try {
                     Object answer = ((JavascriptMockHandler.Returns)root).answer();
                     return getValue(answer, key, def);
+                } catch (Error e) {
+                    throw e;
                 } catch (Throwable e) {
                     // The answer was an exception
                     return e;
                 }
             }
             else {
-                Method meth = null;
+                MethodHandle getter;
                 try {
-                    meth = root.getClass().getMethod("get" + AuraTextUtil.initCap(part));
-                } catch (NoSuchMethodException e) {
-                    try {
-                        meth = root.getClass().getMethod("is" + AuraTextUtil.initCap(part));
-                    } catch (NoSuchMethodException nme) {
-                        throw makeException("no such property: " + part, e, def);
-                    }
+                    getter = PropertyAccessors.forClass(root.getClass()).getGetter(part);
+                } catch (NoSuchMethodException | IllegalAccessException e) {
+                    throw makeException("no such property: " + part, e, def);
                 }
                 try {
-                    ret = meth.invoke(root);
-                } catch (IllegalAccessException iae) {
-                    throw makeException("no such property: " + part, iae, def);
-                } catch (InvocationTargetException ite) {
-                    throw makeException(ite.getCause().getMessage(), ite.getCause(), def);
+                    ret = (Object) getter.invokeExact(root);
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw makeException(t.getMessage(), t, def);
                 }
                 loggingService.incrementNum("JavaCallCount");
             }
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.java.model;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.auraframework.util.AuraTextUtil;
+
+/**
+ * The bean getters of a class, by property name.
+ *
+ * A property is looked up once per class, as getX() and then isX(), and the result is kept, including the fact that
+ * there is no such property. Getters are held as method handles of type (Object)Object, so a read is a single
+ * invokeExact with no access checks.
+ */
+final class PropertyAccessors {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /**
+     * Stands for a property that the class does not have.
+     */
+    private static final MethodHandle MISSING = MethodHandles.constant(Object.class, null);
+
+    /**
+     * Stands for a property whose getter is not public.
+     */
+    private static final MethodHandle INACCESSIBLE = MethodHandles.constant(Object.class, null);
+
+    private static final ClassValue<PropertyAccessors> ACCESSORS = new ClassValue<PropertyAccessors>() {
+        @Override
+        protected PropertyAccessors computeValue(Class<?> type) {
+            return new PropertyAccessors(type);
+        }
+    };
+
+    private final Class<?> type;
+    private final ConcurrentMap<String, MethodHandle> getters = new ConcurrentHashMap<>();
+
+    private PropertyAccessors(Class<?> type) {
+        this.type = type;
+    }
+
+    static PropertyAccessors forClass(Class<?> type) {
+        return ACCESSORS.get(type);
+    }
+
+    /**
+     * Get the getter for a property.
+     *
+     * @return a handle of type (Object)Object.
+     * @throws NoSuchMethodException if the class has no getter for the property.
+     * @throws IllegalAccessException if the getter cannot be called from here.
+     */
+    MethodHandle getGetter(String property) throws NoSuchMethodException, IllegalAccessException {
+        MethodHandle getter = getters.get(property);
+        if (getter == null) {
+            getter = lookup(property);
+            MethodHandle existing = getters.putIfAbsent(property, getter);
+            if (existing != null) {
+                getter = existing;
+            }
+        }
+        if (getter == MISSING) {
+            String suffix = AuraTextUtil.initCap(property);
+            throw new NoSuchMethodException(type.getName() + ".get" + suffix + "() or " + type.getName() + ".is"
+                    + suffix + "()");
+        }
+        if (getter == INACCESSIBLE) {
+            throw new IllegalAccessException("The getter of " + property + " on " + type.getName()
+                    + " is not accessible");
+        }
+        return getter;
+    }
+
+    private MethodHandle lookup(String property) {
+        String suffix = AuraTextUtil.initCap(property);
+        Method method = findMethod("get" + suffix);
+        if (method == null) {
+            method = findMethod("is" + suffix);
+        }
+        if (method == null) {
+            return MISSING;
+        }
+        try {
+            MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+            if (Modifier.isStatic(method.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            return handle.asType(GETTER_TYPE);
+        } catch (IllegalAccessException iae) {
+            return INACCESSIBLE;
+        }
+    }
+
+    /**
+     * Find a public no-arg method by name, without going through getMethod's NoSuchMethodException. Bridge methods
+     * are only used if there is nothing else.
+     */
+    private Method findMethod(String name) {
+        Method found = null;
+        for (Method method : type.getMethods()) {
+            if (method.getParameterTypes().length == 0 && method.getName().equals(name)) {
+                if (!method.isBridge()) {
+                    return method;
+                }
+                found = method;
+            }
+        }
+        return found;
+    }
+}
@@ -30,6 +30,7 @@ import org.auraframework.impl.system.DefDescriptorImpl;
 import org.auraframework.impl.system.DefinitionImpl;
 import org.auraframework.instance.BaseComponent;
 import org.auraframework.service.ConverterService;
+import org.auraframework.service.ConverterService.ResolvedConverter;
 import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.json.Json;
 
@@ -41,6 +42,11 @@ public class JavaTypeDef extends DefinitionImpl<TypeDef> implements TypeDef {
     private final Class<?> clazz;
     private final String simpleParamName;
 
+    /**
+     * The converter for values of this type, looked up on first use.
+     */
+    private transient volatile ResolvedConverter<?> converter;
+
     protected JavaTypeDef(Builder builder) {
         super(builder);
         this.clazz = builder.typeClass;
@@ -62,13 +68,19 @@ public class JavaTypeDef extends DefinitionImpl<TypeDef> implements TypeDef {
         return tempParamName;
     }
 
-    private boolean hasCollectionConverters() {
-        if (!descriptor.isParameterized() || simpleParamName == null) {
-            return false;
+    private ResolvedConverter<?> getConverter() {
+        ResolvedConverter<?> resolved = converter;
+        if (resolved == null) {
+            ConverterService converterService = Aura.getConverterService();
+            if (descriptor.isParameterized() && simpleParamName != null
+                    && converterService.hasConverter(ArrayList.class, clazz, simpleParamName)) {
+                resolved = converterService.getConverter(clazz, simpleParamName, false, false);
+            } else {
+                resolved = converterService.getConverter(clazz, null, false, true);
+            }
+            converter = resolved;
         }
-
-        return Aura.getConverterService().hasConverter(ArrayList.class, clazz, simpleParamName);
-
+        return resolved;
     }
 
     @Override
@@ -99,11 +111,7 @@ public class JavaTypeDef extends DefinitionImpl<TypeDef> implements TypeDef {
 
     @Override
     public Object valueOf(Object value) {
-        ConverterService converterService = Aura.getConverterService();
-        if (hasCollectionConverters()) {
-            return converterService.convert(value, clazz, simpleParamName, false);
-        }
-        return converterService.convert(value, clazz, null, false, true);
+        return getConverter().convert(value);
     }
 
     @Override
@@ -26,20 +26,30 @@ import javax.inject.Inject;
 import java.util.Collection;
 import java.util.Map;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-
 /**
  * Retrieves Json Serializers
  */
 @ServiceComponent
 public class AuraJsonSerializerFactory implements JsonSerializerFactory {
 
-    private static Map<String, JsonSerializer<?>> SERIALIZERS_LOOKUP_MAP;
+    private static volatile Map<String, JsonSerializer<?>> SERIALIZERS_LOOKUP_MAP;
     private static Map<Class<?>, JsonSerializer<?>> SERIALIZERS_INSTANCE_MAP;
-    private static final ConcurrentMap<String, JsonSerializer<?>> cache = new ConcurrentHashMap<>();
     private static final Object lock = new Object();
 
+    /**
+     * Resolved serializer per class.
+     *
+     * The value is computed once per class from the lookup and instanceof maps, and misses are
+     * remembered as null so that classes without a serializer do not rescan the instance map on
+     * every call. Entries go away with the class, so this does not pin classloaders.
+     */
+    private static final ClassValue<JsonSerializer<?>> RESOLVED = new ClassValue<JsonSerializer<?>>() {
+        @Override
+        protected JsonSerializer<?> computeValue(Class<?> c) {
+            return resolve(c);
+        }
+    };
+
     @Inject
     private Collection<JsonSerializerAdapter> jsonSerializerAdapters;
 
@@ -55,36 +65,29 @@ public class AuraJsonSerializerFactory implements JsonSerializerFactory {
                 b.putAll(a.lookupSerializers());
                 b2.putAll(a.instanceofSerializers());
             }
-            SERIALIZERS_LOOKUP_MAP = b.build();
             SERIALIZERS_INSTANCE_MAP = b2.build();
+            // published last, RESOLVED must never compute against a half built pair of maps.
+            SERIALIZERS_LOOKUP_MAP = b.build();
         }
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T> JsonSerializer<T> getSerializer(T o) {
-        Class<?> c = o.getClass();
-        JsonSerializer<T> s = (JsonSerializer<T>) cache.get(c.getName());
-        if (s != null) {
-            return s;
-        }
-
-        if (SERIALIZERS_INSTANCE_MAP == null) {
+        if (SERIALIZERS_LOOKUP_MAP == null) {
             initSerializerMaps();
         }
+        return (JsonSerializer<T>) RESOLVED.get(o.getClass());
+    }
 
-        String className = c.getName();
-        s = (JsonSerializer<T>) SERIALIZERS_LOOKUP_MAP.get(className);
+    private static JsonSerializer<?> resolve(Class<?> c) {
+        JsonSerializer<?> s = SERIALIZERS_LOOKUP_MAP.get(c.getName());
         if (s != null) {
-            cache.putIfAbsent(className, s);
             return s;
         }
-
         for (Map.Entry<Class<?>, JsonSerializer<?>> e : SERIALIZERS_INSTANCE_MAP.entrySet()) {
             if (e.getKey().isAssignableFrom(c)) {
-                s = (JsonSerializer<T>) e.getValue();
-                cache.putIfAbsent(className, s);
-                return s;
+                return e.getValue();
             }
         }
         return null;
@@ -35,6 +35,9 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
@@ -77,6 +80,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
@@ -88,6 +92,12 @@ public class ConfigAdapterImpl implements ConfigAdapter {
     private static final String VERSION_PROPERTY = "aura.build.version";
     private static final String VALIDATE_CSS_CONFIG = "aura.css.validate";
 
+    /**
+     * How often, in milliseconds, the framework sources are checked for changes outside of production. 0 disables the
+     * check, the nonce then only changes on an explicit {@link #regenerateAuraJS()}.
+     */
+    private static final long FRAMEWORK_WATCH_INTERVAL = Long.getLong("aura.framework.watchInterval", 1000L);
+
     private final Map<String, Boolean> SYSTEM_NAMESPACES = new ConcurrentHashMap<>();
     private final Map<String, Boolean> CANONICAL_NAMESPACES = new ConcurrentHashMap<>();
     private final Map<String, Boolean> PRIVILEGED_NAMESPACES = new ConcurrentHashMap<>();
@@ -104,9 +114,8 @@ public class ConfigAdapterImpl implements ConfigAdapter {
     protected final Set<Mode> allModes = EnumSet.allOf(Mode.class);
     private JavascriptGroup jsGroup;
     private FileGroup resourcesGroup;
-    private String jsUid = "";
-    private String resourcesUid = "";
-    private String fwUid = "";
+    private volatile FrameworkNonce frameworkNonce;
+    private ScheduledExecutorService frameworkWatcher;
     private ResourceLoader resourceLoader;
     private Long buildTimestamp;
     private String auraVersionString;
@@ -223,7 +232,14 @@ public class ConfigAdapterImpl implements ConfigAdapter {
         
         if (!isProduction()) {
             fileMonitor.start();
+            try {
+                regenerateAuraJS();
+            } catch (AuraRuntimeException e) {
+                // the watcher will try again, the request that needs it will see the broken javascript.
+                Logger.getLogger(ConfigAdapterImpl.class).error(e.getMessage(), e.getCause());
+            }
         }
+        startFrameworkWatcher();
         contextService.registerGlobal("isVoiceOver", true, false);
         contextService.registerGlobal("dynamicTypeSize", true, "");
     }
@@ -317,6 +333,8 @@ public class ConfigAdapterImpl implements ConfigAdapter {
                     }
                 }
                 lastGenerationHadCompilationErrors = false;
+                // recomputed by the watcher, or by the next reader.
+                frameworkNonce = null;
             } catch (Exception x) {
                 lastGenerationHadCompilationErrors = true;
                 throw new AuraRuntimeException("Unable to regenerate aura javascript", x);
@@ -494,7 +512,6 @@ public class ConfigAdapterImpl implements ConfigAdapter {
 
     @Override
     public long getAuraJSLastMod() {
-        regenerateAuraJS();
         return jsGroup != null ? jsGroup.getLastMod() : getBuildTimestamp();
     }
 
@@ -609,55 +626,117 @@ public class ConfigAdapterImpl implements ConfigAdapter {
         return validateCss;
     }
 
+    /**
+     * The framework nonce only changes when the framework javascript or resources do, which in production is never, so
+     * it is computed once and replaced as a whole by {@link #publishFrameworkNonce()}. Request threads only read the
+     * volatile holder, they never check for staleness, and only the first one waits on a lock.
+     */
     @Override
     public final String getAuraFrameworkNonce() {
-        regenerateAuraJS();
+        FrameworkNonce nonce = frameworkNonce;
+        if (nonce == null) {
+            // first use, or the javascript was just regenerated.
+            nonce = publishFrameworkNonce();
+        }
+        return nonce.fwUid;
+    }
+
+    /**
+     * Recompute the framework nonce from the current js and resources hashes, replacing it if either changed.
+     *
+     * Don't want to makeHash every time, so the hash is only recomputed on changes, and the three values are published
+     * together so that a reader can never see a new js or resources uid with an old (or empty) framework uid.
+     */
+    private synchronized FrameworkNonce publishFrameworkNonce() {
         try {
             // framework nonce now consists of Aura JS and resources files (CSS and JS) and if locker service is enabled
             String jsHash = jsGroup.getGroupHash().toString();
-            String resourcesHash = getAuraResourcesNonce();
+            String resourcesHash = resourcesGroup.getGroupHash().toString();
+            FrameworkNonce current = frameworkNonce;
 
-            /*
-             * don't want to makeHash every time so store results and return appropriately
-             *
-             * Be VERY careful here.
-             *
-             * because fwUid is set along with jsUid and resourcesUid, there is a race condition
-             * whereby the condition can fail (i.e. both js & resources match), but fwUid is not
-             * yet set. This is very bad, as it causes an empty fwUid, which breaks everyone with
-             * a COOS
-             */
-            synchronized (this) {
-                if (!jsHash.equals(this.jsUid) || !resourcesHash.equals(this.resourcesUid)) {
-                    this.jsUid = jsHash;
-                    this.resourcesUid = resourcesHash;
-                    this.fwUid = makeHash(this.jsUid, this.resourcesUid);
-                }
+            if (current == null || !jsHash.equals(current.jsUid) || !resourcesHash.equals(current.resourcesUid)) {
+                current = new FrameworkNonce(jsHash, resourcesHash, makeHash(jsHash, resourcesHash));
+                frameworkNonce = current;
             }
-
-            return this.fwUid;
-
+            return current;
         } catch (IOException e) {
             throw new AuraRuntimeException("Can't read framework files", e);
         }
     }
 
-    protected String makeHash(String one, String two) throws IOException {
-        StringReader reader = new StringReader(one + two);
-        return new Hash(reader).toString();
+    /**
+     * Check the framework javascript and resources for changes, regenerating and republishing the nonce as needed.
+     *
+     * This reads and hashes every framework file, so it runs on the watcher thread and never on a request thread.
+     */
+    protected void checkFrameworkChanges() {
+        if (!isProduction()) {
+            boolean hadErrors = lastGenerationHadCompilationErrors;
+            try {
+                regenerateAuraJS();
+            } catch (AuraRuntimeException e) {
+                if (!hadErrors) {
+                    Logger.getLogger(ConfigAdapterImpl.class).error(e.getMessage(), e.getCause());
+                }
+            }
+            try {
+                if (resourcesGroup != null && resourcesGroup.isStale()) {
+                    resourcesGroup.reset();
+                }
+            } catch (IOException e) {
+                throw new AuraRuntimeException("Can't read Aura resources files", e);
+            }
+        }
+        publishFrameworkNonce();
     }
 
-    private String getAuraResourcesNonce() {
-        try {
-            if (!isProduction() && resourcesGroup != null && resourcesGroup.isStale()) {
-                resourcesGroup.reset();
+    /**
+     * @return the interval in milliseconds between checks for framework changes, 0 to never check.
+     */
+    protected long getFrameworkWatchInterval() {
+        return FRAMEWORK_WATCH_INTERVAL;
+    }
+
+    private void startFrameworkWatcher() {
+        long interval = getFrameworkWatchInterval();
+        if (isProduction() || interval <= 0 || frameworkWatcher != null) {
+            return;
+        }
+        frameworkWatcher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("aura-framework-watcher-%d").setDaemon(true).build());
+        frameworkWatcher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    checkFrameworkChanges();
+                } catch (Throwable t) {
+                    // never let an exception cancel the schedule.
+                    Logger.getLogger(ConfigAdapterImpl.class).error("Unable to check framework files", t);
+                }
             }
-            return resourcesGroup.getGroupHash().toString();
-        } catch (IOException e) {
-            throw new AuraRuntimeException("Can't read Aura resources files", e);
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The js and resources uids together with the framework uid made from them.
+     */
+    private static final class FrameworkNonce {
+        private final String jsUid;
+        private final String resourcesUid;
+        private final String fwUid;
+
+        private FrameworkNonce(String jsUid, String resourcesUid, String fwUid) {
+            this.jsUid = jsUid;
+            this.resourcesUid = resourcesUid;
+            this.fwUid = fwUid;
         }
     }
 
+    protected String makeHash(String one, String two) throws IOException {
+        StringReader reader = new StringReader(one + two);
+        return new Hash(reader).toString();
+    }
+
     @Override
     public void addInternalNamespace(String namespace) {
         if(namespace != null && !namespace.isEmpty()){
@@ -725,7 +804,7 @@ public class ConfigAdapterImpl implements ConfigAdapter {
             inlineStyle = isSafeEvalWorkerURI(request.getRequestURI());
         }
 
-        return new DefaultContentSecurityPolicy(inlineStyle);
+        return new DefaultContentSecurityPolicy(inlineStyle, true);
     }
 
     public void setLocalizationAdapter(LocalizationAdapter adapter) {
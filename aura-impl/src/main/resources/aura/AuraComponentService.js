@@ -1078,6 +1078,17 @@ AuraComponentService.prototype.addComponent = function(descriptor, exporter) {
     this.savedComponentConfigs[descriptor] = exporter;
 };
 
+/**
+ * Drop a component or library include added by app.js, before it is used.
+ * The delta loaded on top of the app.js of an earlier uid uses this for definitions that are gone.
+ * @param {String} descriptor the descriptor it was added with.
+ * @export
+ */
+AuraComponentService.prototype.removeDefinition = function(descriptor) {
+    delete this.savedComponentConfigs[descriptor];
+    this.libraryIncludeRegistry.removeLibraryExporter(descriptor);
+};
+
 
 AuraComponentService.prototype.hydrateComponent = function(descriptor, exporter) {
     var tmp = exporter.toString();
@@ -77,6 +77,14 @@ LibraryIncludeRegistry.prototype.addLibraryExporter = function(descriptor, expor
     this.libExporter[descriptor] = exporter;
 };
 
+/**
+ * Drop the exporter of a library include that has not been used.
+ * @param {String} descriptor name of the include.
+ */
+LibraryIncludeRegistry.prototype.removeLibraryExporter = function(descriptor) {
+    delete this.libExporter[descriptor];
+};
+
 
 /**
  * Get or build the instance for the specified library include. his works like a simplfied version of
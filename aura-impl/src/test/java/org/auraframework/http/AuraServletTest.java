@@ -15,26 +15,39 @@
  */
 package org.auraframework.http;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpStatus;
 import org.auraframework.AuraConfiguration;
 import org.auraframework.adapter.ServletUtilAdapter;
 import org.auraframework.service.ContextService;
+import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Authentication;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraContext.Mode;
+import org.auraframework.util.json.BinaryJsonEncoder;
 import org.auraframework.util.test.util.UnitTestCase;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.mock.web.MockAsyncContext;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockServletConfig;
@@ -51,6 +64,8 @@ public class AuraServletTest extends UnitTestCase {
 
     private AuraServlet servlet;
 
+    private MockServletConfig servletConfig;
+
     @Mock
     private ServletUtilAdapter servletUtilAdapter;
 
@@ -63,7 +78,7 @@ public class AuraServletTest extends UnitTestCase {
         super.setUp();
 
         MockServletContext servletContext = new MockServletContext();
-        MockServletConfig servletConfig = new MockServletConfig(servletContext);
+        servletConfig = new MockServletConfig(servletContext);
 
         AnnotationConfigApplicationContext appContext = new AnnotationConfigApplicationContext(AuraConfiguration.class, ConfigAdapterImpl.class);
         DefaultListableBeanFactory dlbf = new DefaultListableBeanFactory(appContext.getBeanFactory());
@@ -355,4 +370,171 @@ public class AuraServletTest extends UnitTestCase {
         assertSingleHeader(response, HttpHeaders.LOCATION, "/");
         Mockito.verify(servletUtilAdapter).setNoCache(response);
     }
+
+    @Test
+    public void testAcceptsBinaryOnlyWhenEnabled() throws Exception {
+        MockHttpServletRequest request = getAuraPostRequest();
+        request.addHeader(HttpHeaders.ACCEPT, BinaryJsonEncoder.MIME_TYPE);
+        assertFalse(servlet.acceptsBinary(request));
+
+        System.setProperty("aura.servlet.binaryActions", "true");
+        try {
+            AuraServlet binaryServlet = new AuraServlet();
+            binaryServlet.init(servletConfig);
+            assertTrue(binaryServlet.acceptsBinary(request));
+            assertFalse(binaryServlet.acceptsBinary(getAuraPostRequest()));
+        } finally {
+            System.clearProperty("aura.servlet.binaryActions");
+        }
+    }
+
+    @Test
+    public void testAcceptsStreamingOnlyWhenEnabled() throws Exception {
+        MockHttpServletRequest request = getAuraPostRequest();
+        request.addHeader(HttpHeaders.ACCEPT, AuraServlet.STREAMING_CONTENT_TYPE);
+        assertFalse(servlet.acceptsStreaming(request));
+
+        System.setProperty("aura.servlet.streamingActions", "true");
+        try {
+            AuraServlet streamingServlet = new AuraServlet();
+            streamingServlet.init(servletConfig);
+            assertTrue(streamingServlet.acceptsStreaming(request));
+            assertFalse(streamingServlet.acceptsStreaming(getAuraPostRequest()));
+        } finally {
+            System.clearProperty("aura.servlet.streamingActions");
+        }
+    }
+
+    private AuraServlet createAsyncServlet() throws Exception {
+        System.setProperty("aura.servlet.asyncThreads", "1");
+        System.setProperty("aura.request.timeout", "1000");
+        try {
+            AuraServlet asyncServlet = new AuraServlet();
+            asyncServlet.init(servletConfig);
+            asyncServlet.setServletUtilAdapter(servletUtilAdapter);
+            return asyncServlet;
+        } finally {
+            System.clearProperty("aura.servlet.asyncThreads");
+            System.clearProperty("aura.request.timeout");
+        }
+    }
+
+    private MockHttpServletRequest getAuraPostRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/aura");
+        request.setAsyncSupported(true);
+        return request;
+    }
+
+    @Test
+    public void testDoPost_AsyncRunsActionsOnThePoolWithTheContext() throws Exception {
+        final AuraContext context = contextService.startContext(Mode.PROD, Format.JSON, Authentication.AUTHENTICATED);
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+        final AtomicReference<AuraContext> current = new AtomicReference<>();
+        final CountDownLatch handled = new CountDownLatch(1);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                thread.set(Thread.currentThread());
+                current.set(contextService.getCurrentContext());
+                handled.countDown();
+                return null;
+            }
+        }).when(servletUtilAdapter).handleServletException(Matchers.any(Throwable.class), Matchers.anyBoolean(),
+                Matchers.any(AuraContext.class), Matchers.any(HttpServletRequest.class),
+                Matchers.any(HttpServletResponse.class), Matchers.anyBoolean());
+        AuraServlet asyncServlet = createAsyncServlet();
+        MockHttpServletRequest request = getAuraPostRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            asyncServlet.doPost(request, response);
+
+            // the context filter leaves the context to the pool, which times out with the request budget.
+            assertEquals(Boolean.TRUE, request.getAttribute(AuraServlet.ASYNC_POST));
+            assertEquals(6000, request.getAsyncContext().getTimeout());
+
+            // without a message the actions fail, on the pool thread and with the context of the request.
+            assertTrue(handled.await(10, TimeUnit.SECONDS));
+            assertNotSame(Thread.currentThread(), thread.get());
+            assertSame(context, current.get());
+            long deadline = System.currentTimeMillis() + 10000;
+            while (request.isAsyncStarted() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertFalse("the pool did not complete the request", request.isAsyncStarted());
+        } finally {
+            asyncServlet.destroy();
+        }
+    }
+
+    @Test
+    public void testDoPost_TimeoutWhileRunningLeavesTheResponseToThePool() throws Exception {
+        contextService.startContext(Mode.PROD, Format.JSON, Authentication.AUTHENTICATED);
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Exception {
+                running.countDown();
+                release.await(10, TimeUnit.SECONDS);
+                return null;
+            }
+        }).when(servletUtilAdapter).handleServletException(Matchers.any(Throwable.class), Matchers.anyBoolean(),
+                Matchers.any(AuraContext.class), Matchers.any(HttpServletRequest.class),
+                Matchers.any(HttpServletResponse.class), Matchers.anyBoolean());
+        AuraServlet asyncServlet = createAsyncServlet();
+        final MockHttpServletRequest request = getAuraPostRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            asyncServlet.doPost(request, response);
+            assertTrue(running.await(10, TimeUnit.SECONDS));
+
+            final AsyncListener listener = ((MockAsyncContext) request.getAsyncContext()).getListeners().get(0);
+            Thread timeout = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        listener.onTimeout(new AsyncEvent(request.getAsyncContext()));
+                    } catch (IOException ioe) {
+                        throw new RuntimeException(ioe);
+                    }
+                }
+            };
+            timeout.start();
+            timeout.join(200);
+
+            // the timeout neither answers nor completes the response the pool is writing.
+            assertTrue(timeout.isAlive());
+            assertTrue(request.isAsyncStarted());
+            assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+
+            release.countDown();
+            timeout.join(10000);
+            assertFalse(timeout.isAlive());
+            assertFalse("the pool did not complete the request", request.isAsyncStarted());
+            assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        } finally {
+            release.countDown();
+            asyncServlet.destroy();
+        }
+    }
+
+    @Test
+    public void testDoPost_RunsInLineWithoutAsyncSupport() throws Exception {
+        contextService.startContext(Mode.PROD, Format.JSON, Authentication.AUTHENTICATED);
+        AuraServlet asyncServlet = createAsyncServlet();
+        MockHttpServletRequest request = getAuraPostRequest();
+        request.setAsyncSupported(false);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            asyncServlet.doPost(request, response);
+
+            assertFalse(request.isAsyncStarted());
+            assertNull(request.getAttribute(AuraServlet.ASYNC_POST));
+            Mockito.verify(servletUtilAdapter).handleServletException(Matchers.any(Throwable.class),
+                    Matchers.eq(false), Matchers.any(AuraContext.class), Matchers.eq(request), Matchers.eq(response),
+                    Matchers.anyBoolean());
+        } finally {
+            asyncServlet.destroy();
+        }
+    }
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl;
+
+import java.util.EnumSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.auraframework.impl.ActionScheduler.Lane;
+import org.auraframework.impl.ActionScheduler.Scheduled;
+import org.auraframework.impl.java.controller.JavaAction;
+import org.auraframework.instance.Action;
+import org.auraframework.service.LoggingService;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class ActionSchedulerTest extends UnitTestCase {
+
+    @After
+    public void clearProperties() {
+        System.clearProperty("aura.actions.background");
+        System.clearProperty("aura.actions.background.queue");
+        System.clearProperty("aura.actions.caboose");
+    }
+
+    private ActionScheduler createScheduler() {
+        ActionScheduler scheduler = new ActionScheduler();
+        scheduler.createExecutors();
+        return scheduler;
+    }
+
+    @Test
+    public void testDefaultLanes() {
+        ActionScheduler scheduler = createScheduler();
+        JavaAction concurrent = Mockito.mock(JavaAction.class);
+        Mockito.doReturn(true).when(concurrent).isConcurrent();
+        JavaAction background = Mockito.mock(JavaAction.class);
+        Mockito.doReturn(true).when(background).isBackground();
+        JavaAction caboose = Mockito.mock(JavaAction.class);
+        Mockito.doReturn(true).when(caboose).isCaboose();
+
+        // the foreground lane is off unless configured, background and caboose work has threads of its own.
+        assertNull(scheduler.getLane(concurrent));
+        assertEquals(Lane.BACKGROUND, scheduler.getLane(background));
+        assertEquals(Lane.CABOOSE, scheduler.getLane(caboose));
+        assertNull(scheduler.getLane(Mockito.mock(Action.class)));
+    }
+
+    @Test
+    public void testLaneOfAction() {
+        System.setProperty("aura.actions.background", "1");
+        System.setProperty("aura.actions.caboose", "0");
+        ActionScheduler scheduler = createScheduler();
+        JavaAction background = Mockito.mock(JavaAction.class);
+        Mockito.doReturn(true).when(background).isConcurrent();
+        Mockito.doReturn(true).when(background).isBackground();
+        JavaAction caboose = Mockito.mock(JavaAction.class);
+        Mockito.doReturn(true).when(caboose).isConcurrent();
+        Mockito.doReturn(true).when(caboose).isCaboose();
+
+        assertEquals(Lane.BACKGROUND, scheduler.getLane(background));
+        // no threads for caboose actions, so they run in line.
+        assertNull(scheduler.getLane(caboose));
+        assertNull(scheduler.getLane(Mockito.mock(JavaAction.class)));
+    }
+
+    @Test
+    public void testBackgroundActionIsOffloaded() throws Exception {
+        ActionScheduler scheduler = createScheduler();
+        JavaAction background = Mockito.mock(JavaAction.class);
+        Mockito.doReturn(true).when(background).isBackground();
+
+        // a background action runs in its lane without being declared concurrent.
+        Lane lane = scheduler.getLane(background);
+        assertEquals(Lane.BACKGROUND, lane);
+        Scheduled scheduled = scheduler.submit(lane, new Callable<Thread>() {
+            @Override
+            public Thread call() {
+                return Thread.currentThread();
+            }
+        });
+        Thread thread = (Thread) scheduled.getFuture().get(10, TimeUnit.SECONDS);
+        assertNotSame(Thread.currentThread(), thread);
+        assertTrue(thread.getName(), thread.getName().startsWith("aura-background-"));
+        assertEquals(Thread.MIN_PRIORITY, thread.getPriority());
+    }
+
+    @Test
+    public void testLogStats() {
+        System.setProperty("aura.actions.background", "1");
+        ActionScheduler scheduler = createScheduler();
+        LoggingService loggingService = Mockito.mock(LoggingService.class);
+
+        scheduler.logStats(EnumSet.of(Lane.BACKGROUND), loggingService);
+
+        Mockito.verify(loggingService).setNum("backgroundQueueDepth", 0L);
+        Mockito.verify(loggingService).setNum("backgroundRejected", 0L);
+        Mockito.verify(loggingService).setValue("backgroundAvgQueueTime", 0.0);
+        Mockito.verify(loggingService).setValue("backgroundAvgRunTime", 0.0);
+        Mockito.verifyNoMoreInteractions(loggingService);
+    }
+
+    @Test
+    public void testFullLaneRejects() throws Exception {
+        System.setProperty("aura.actions.background", "1");
+        System.setProperty("aura.actions.background.queue", "1");
+        ActionScheduler scheduler = createScheduler();
+        final CountDownLatch release = new CountDownLatch(1);
+        Callable<Void> blocked = new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                release.await();
+                return null;
+            }
+        };
+
+        Scheduled running = scheduler.submit(Lane.BACKGROUND, blocked);
+        Scheduled queued = scheduler.submit(Lane.BACKGROUND, blocked);
+        try {
+            scheduler.submit(Lane.BACKGROUND, blocked);
+            fail("Expected the full lane to reject");
+        } catch (RejectedExecutionException expected) {
+        }
+        assertEquals(1, scheduler.getRejectedCount(Lane.BACKGROUND));
+        assertEquals(1, scheduler.getQueueDepth(Lane.BACKGROUND));
+
+        release.countDown();
+        running.getFuture().get();
+        queued.getFuture().get();
+        assertEquals(0, scheduler.getQueueDepth(Lane.BACKGROUND));
+        assertEquals(Lane.BACKGROUND, queued.getLane());
+        assertTrue(scheduler.getAverageRunMillis(Lane.BACKGROUND) >= 0.0);
+        assertEquals(0, scheduler.getRejectedCount(Lane.CABOOSE));
+    }
+
+    @Test
+    public void testWithdrawWaitsForRunningAndSkipsQueued() throws Exception {
+        System.setProperty("aura.actions.background", "1");
+        ActionScheduler scheduler = createScheduler();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger finished = new AtomicInteger();
+        Scheduled running = scheduler.submit(Lane.BACKGROUND, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                started.countDown();
+                release.await();
+                finished.incrementAndGet();
+                return null;
+            }
+        });
+        Scheduled queued = scheduler.submit(Lane.BACKGROUND, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                finished.incrementAndGet();
+                return null;
+            }
+        });
+        started.await();
+
+        queued.withdraw();
+        Thread releaser = new Thread() {
+            @Override
+            public void run() {
+                release.countDown();
+            }
+        };
+        releaser.start();
+        running.withdraw();
+        assertEquals(1, finished.get());
+
+        // the withdrawn action gets its thread, but doesn't run.
+        queued.getFuture().get();
+        assertEquals(1, finished.get());
+    }
+
+    @Test
+    public void testWithdrawDoesNotWaitForCancelled() throws Exception {
+        System.setProperty("aura.actions.background", "1");
+        ActionScheduler scheduler = createScheduler();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Scheduled stuck = scheduler.submit(Lane.BACKGROUND, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                started.countDown();
+                while (release.getCount() > 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException ie) {
+                        // ignores the interrupt, like an action stuck in I/O.
+                    }
+                }
+                return null;
+            }
+        });
+        try {
+            started.await();
+            stuck.getFuture().cancel(true);
+
+            // returns at once, instead of waiting for the action that was given up on.
+            stuck.withdraw();
+        } finally {
+            release.countDown();
+        }
+    }
+}
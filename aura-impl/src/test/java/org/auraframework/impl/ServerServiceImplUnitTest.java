@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl;
+
+import java.util.List;
+
+import org.auraframework.impl.java.controller.JavaAction;
+import org.auraframework.instance.Action;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableList;
+
+public class ServerServiceImplUnitTest extends UnitTestCase {
+
+    private JavaAction createBulkAction() {
+        JavaAction action = Mockito.mock(JavaAction.class);
+        Mockito.doReturn(true).when(action).isBulk();
+        return action;
+    }
+
+    private void setBulkWith(JavaAction... calls) {
+        for (JavaAction call : calls) {
+            for (JavaAction other : calls) {
+                Mockito.doReturn(true).when(call).isBulkWith(other);
+            }
+        }
+    }
+
+    @Test
+    public void testConsecutiveCallsAreGrouped() {
+        JavaAction get1 = createBulkAction();
+        JavaAction get2 = createBulkAction();
+        JavaAction update = createBulkAction();
+        setBulkWith(get1, get2);
+
+        List<List<JavaAction>> groups = ServerServiceImpl.groupBulkActions(
+                ImmutableList.<Action> of(get1, get2, update), null);
+
+        assertNotNull(groups);
+        assertEquals(ImmutableList.of(get1, get2), groups.get(0));
+        assertSame(groups.get(0), groups.get(1));
+        assertNull(groups.get(2));
+    }
+
+    @Test
+    public void testCallsWithAnotherActionInBetweenAreNotGrouped() {
+        JavaAction get1 = createBulkAction();
+        JavaAction update = createBulkAction();
+        JavaAction get2 = createBulkAction();
+        setBulkWith(get1, get2);
+
+        // grouping the gets would run the second one before the update that came ahead of it.
+        assertNull(ServerServiceImpl.groupBulkActions(ImmutableList.<Action> of(get1, update, get2), null));
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.cache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.auraframework.adapter.CacheAdapter;
+import org.auraframework.cache.Cache;
+import org.auraframework.def.ActionDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.impl.java.controller.JavaAction;
+import org.auraframework.instance.Action;
+import org.auraframework.instance.Action.State;
+import org.auraframework.service.CachingService;
+import org.auraframework.system.AuraContext;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class ActionResultCacheTest extends UnitTestCase {
+
+    private final Cache<String, Optional<Object>> cache = new CacheImpl.Builder<String, Optional<Object>>().build();
+
+    private ActionResultCache createCache(CacheAdapter cacheAdapter) {
+        CachingService cachingService = Mockito.mock(CachingService.class);
+        Mockito.doReturn(cache).when(cachingService).getActionCache();
+        ActionResultCache actionResultCache = new ActionResultCache();
+        actionResultCache.setCachingService(cachingService);
+        actionResultCache.setCacheAdapter(cacheAdapter);
+        return actionResultCache;
+    }
+
+    private CacheAdapter createAdapter(String partition) {
+        CacheAdapter cacheAdapter = Mockito.mock(CacheAdapter.class);
+        Mockito.doReturn(partition).when(cacheAdapter).getActionCachePartition(Mockito.any(Action.class));
+        return cacheAdapter;
+    }
+
+    @SuppressWarnings("unchecked")
+    private JavaAction createAction(String name, Map<String, Object> params) {
+        DefDescriptor<ActionDef> descriptor = Mockito.mock(DefDescriptor.class);
+        Mockito.doReturn("java://test.Controller/ACTION$" + name).when(descriptor).getQualifiedName();
+        JavaAction action = Mockito.mock(JavaAction.class);
+        Mockito.doReturn(descriptor).when(action).getDescriptor();
+        Mockito.doReturn(true).when(action).isStorable();
+        Mockito.doReturn(params).when(action).getParams();
+        Mockito.doReturn(State.SUCCESS).when(action).getState();
+        Mockito.doReturn(Collections.emptyList()).when(action).getErrors();
+        Mockito.doReturn(Collections.emptyList()).when(action).getActions();
+        Mockito.doReturn("result of " + name).when(action).getReturnValue();
+        return action;
+    }
+
+    @Test
+    public void testNotCachedWithoutAdapter() {
+        assertNull(createCache(null).getKey(createAction("a", null)));
+    }
+
+    @Test
+    public void testNotCachedWithoutPartition() {
+        assertNull(createCache(createAdapter(null)).getKey(createAction("a", null)));
+    }
+
+    @Test
+    public void testNotCachedIfNotStorable() {
+        JavaAction action = createAction("a", null);
+        Mockito.doReturn(false).when(action).isStorable();
+        assertNull(createCache(createAdapter("user")).getKey(action));
+    }
+
+    @Test
+    public void testKeyIgnoresParamOrder() {
+        Map<String, Object> first = Maps.newLinkedHashMap();
+        first.put("a", 1);
+        first.put("b", Lists.newArrayList("x", Collections.singletonMap("c", true)));
+        Map<String, Object> second = Maps.newLinkedHashMap();
+        second.put("b", Lists.newArrayList("x", Collections.singletonMap("c", true)));
+        second.put("a", 1);
+
+        ActionResultCache actionResultCache = createCache(createAdapter("user"));
+        assertEquals(actionResultCache.getKey(createAction("a", first)),
+                actionResultCache.getKey(createAction("a", second)));
+        assertFalse(actionResultCache.getKey(createAction("a", first)).equals(
+                createCache(createAdapter("other")).getKey(createAction("a", first))));
+    }
+
+    @Test
+    public void testStoreAndRestore() {
+        ActionResultCache actionResultCache = createCache(createAdapter("user"));
+        JavaAction action = createAction("a", null);
+        String key = actionResultCache.getKey(action);
+
+        assertFalse(actionResultCache.restore(key, action));
+        assertTrue(actionResultCache.store(key, action));
+
+        JavaAction next = createAction("a", null);
+        assertTrue(actionResultCache.restore(key, next));
+        Mockito.verify(next).restore("result of a");
+    }
+
+    @Test
+    public void testNullResultIsCached() {
+        ActionResultCache actionResultCache = createCache(createAdapter("user"));
+        JavaAction action = createAction("a", null);
+        Mockito.doReturn(null).when(action).getReturnValue();
+        String key = actionResultCache.getKey(action);
+
+        assertTrue(actionResultCache.store(key, action));
+        assertTrue(actionResultCache.restore(key, action));
+        Mockito.verify(action).restore(null);
+    }
+
+    @Test
+    public void testErrorsAreNotStored() {
+        ActionResultCache actionResultCache = createCache(createAdapter("user"));
+        JavaAction action = createAction("a", null);
+        Mockito.doReturn(State.ERROR).when(action).getState();
+
+        assertFalse(actionResultCache.store(actionResultCache.getKey(action), action));
+        assertEquals(0, cache.getKeySet().size());
+    }
+
+    @Test
+    public void testInvalidatePartition() {
+        ActionResultCache user = createCache(createAdapter("user"));
+        ActionResultCache other = createCache(createAdapter("other"));
+        JavaAction action = createAction("a", null);
+        user.store(user.getKey(action), action);
+        other.store(other.getKey(action), action);
+
+        user.invalidatePartition("user");
+        assertNull(cache.getIfPresent(user.getKey(action)));
+        assertNotNull(cache.getIfPresent(other.getKey(action)));
+    }
+
+    @Test
+    public void testInvalidateAction() {
+        ActionResultCache actionResultCache = createCache(createAdapter("user"));
+        JavaAction a = createAction("a", null);
+        JavaAction ab = createAction("ab", null);
+        actionResultCache.store(actionResultCache.getKey(a), a);
+        actionResultCache.store(actionResultCache.getKey(ab), ab);
+
+        actionResultCache.invalidate(a.getDescriptor());
+        assertNull(cache.getIfPresent(actionResultCache.getKey(a)));
+        assertNotNull(cache.getIfPresent(actionResultCache.getKey(ab)));
+    }
+
+    @Test
+    public void testIdenticalActionJoinsRunningOne() throws Exception {
+        final ActionResultCache actionResultCache = createCache(createAdapter("user"));
+        JavaAction leader = createAction("a", null);
+        final String key = actionResultCache.getKey(leader);
+        ActionResultCache.Flight flight = actionResultCache.startOrJoin(key, leader, null);
+        assertNotNull(flight);
+
+        final JavaAction follower = createAction("a", null);
+        final AtomicReference<ActionResultCache.Flight> joined = new AtomicReference<>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                joined.set(actionResultCache.startOrJoin(key, follower, null));
+            }
+        };
+        thread.start();
+        // let the follower get in line behind the leader.
+        while (thread.getState() != Thread.State.TIMED_WAITING && thread.isAlive()) {
+            Thread.yield();
+        }
+        actionResultCache.complete(key, flight, leader);
+        thread.join();
+
+        assertNull(joined.get());
+        Mockito.verify(follower).restore("result of a");
+        assertEquals(0.5, actionResultCache.getCoalescingRate(), 0.0);
+    }
+
+    @Test
+    public void testFailedActionIsNotShared() throws Exception {
+        final ActionResultCache actionResultCache = createCache(createAdapter("user"));
+        JavaAction leader = createAction("a", null);
+        Mockito.doReturn(State.ERROR).when(leader).getState();
+        final String key = actionResultCache.getKey(leader);
+        ActionResultCache.Flight flight = actionResultCache.startOrJoin(key, leader, null);
+
+        final JavaAction follower = createAction("a", null);
+        final AtomicReference<ActionResultCache.Flight> joined = new AtomicReference<>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                joined.set(actionResultCache.startOrJoin(key, follower, null));
+            }
+        };
+        thread.start();
+        while (thread.getState() != Thread.State.TIMED_WAITING && thread.isAlive()) {
+            Thread.yield();
+        }
+        actionResultCache.complete(key, flight, leader);
+        thread.join();
+
+        // the follower runs it on its own.
+        assertNotNull(joined.get());
+        Mockito.verify(follower, Mockito.never()).restore(Mockito.any());
+        assertEquals(0.0, actionResultCache.getCoalescingRate(), 0.0);
+    }
+
+    @Test
+    public void testNoWaitOnceTheRequestIsOutOfTime() {
+        ActionResultCache actionResultCache = createCache(createAdapter("user"));
+        JavaAction leader = createAction("a", null);
+        String key = actionResultCache.getKey(leader);
+        ActionResultCache.Flight flight = actionResultCache.startOrJoin(key, leader, null);
+        AuraContext context = Mockito.mock(AuraContext.class);
+        Mockito.doReturn(0L).when(context).getRemainingNanos();
+
+        // the leader is still running, the follower gets to run its own straight away.
+        JavaAction follower = createAction("a", null);
+        assertNotNull(actionResultCache.startOrJoin(key, follower, context));
+        Mockito.verify(follower, Mockito.never()).restore(Mockito.any());
+        actionResultCache.complete(key, flight, leader);
+    }
+}
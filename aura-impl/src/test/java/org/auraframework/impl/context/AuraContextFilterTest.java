@@ -16,13 +16,21 @@
 package org.auraframework.impl.context;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.http.HttpHeaders;
 import org.auraframework.adapter.ConfigAdapter;
 import org.auraframework.adapter.LocalizationAdapter;
 import org.auraframework.http.AuraContextFilter;
+import org.auraframework.http.AuraResourceRewriteFilter;
+import org.auraframework.http.AuraResourceServlet;
+import org.auraframework.http.ResourceCacheKey;
+import org.auraframework.service.CachingService;
 import org.auraframework.service.ContextService;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.service.LoggingService;
 import org.auraframework.system.AuraContext;
+import org.auraframework.system.AuraContext.Authentication;
+import org.auraframework.system.AuraContext.Mode;
 import org.auraframework.test.util.AuraTestCase;
 import org.auraframework.util.test.util.AuraPrivateAccessor;
 import org.junit.Test;
@@ -30,9 +38,14 @@ import org.mockito.Mockito;
 import org.springframework.web.context.support.SpringBeanAutowiringSupport;
 
 import javax.inject.Inject;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.util.Locale;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class AuraContextFilterTest extends AuraTestCase {
     @Inject
@@ -50,6 +63,9 @@ public class AuraContextFilterTest extends AuraTestCase {
     @Inject
     private LocalizationAdapter localizationAdapter;
 
+    @Inject
+    private CachingService cachingService;
+
     private void assertContextPath(AuraContextFilter filter, HttpServletRequest mock, String input, String expected)
             throws Exception {
         Mockito.when(mock.getContextPath()).thenReturn(input);
@@ -75,4 +91,140 @@ public class AuraContextFilterTest extends AuraTestCase {
         assertContextPath(filter, mock, "/", "");
         assertContextPath(filter, mock, "", "");
     }
+
+    @Test
+    public void testFindCachedResourceUsesKeyFieldsOnly() throws Exception {
+        AuraContextFilter filter = new AuraContextFilter();
+        filter.setDefinitionService(definitionService);
+        filter.setConfigAdapter(configAdapter);
+        filter.setCachingService(cachingService);
+        String fwuid = configAdapter.getAuraFrameworkNonce();
+        String key = ResourceCacheKey.appJs(Mode.PROD, Authentication.AUTHENTICATED, "markup://test:fakeApp",
+                "appUid", fwuid);
+        cachingService.getAltStringsCache().put(key, "var defs;");
+
+        HttpServletRequest mock = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(mock.getMethod()).thenReturn("GET");
+        Mockito.when(mock.getAttribute(AuraResourceServlet.ORIG_REQUEST_URI)).thenReturn("/l/xyz/app.js");
+        Mockito.when(mock.getParameter("aura.context")).thenReturn("{\"mode\":\"PROD\",\"app\":\"test:fakeApp\","
+                + "\"fwuid\":\"" + fwuid + "\",\"loaded\":{\"APPLICATION@markup://test:fakeApp\":\"appUid\"}}");
+        try {
+            assertTrue((Boolean) AuraPrivateAccessor.invoke(filter, "findCachedResource", mock));
+            Mockito.verify(mock).setAttribute(AuraContextFilter.CACHED_RESOURCE, "var defs;");
+
+            // a stale app uid goes through the full request.
+            Mockito.when(mock.getParameter("aura.context")).thenReturn("{\"mode\":\"PROD\",\"app\":\"test:fakeApp\","
+                    + "\"fwuid\":\"" + fwuid + "\",\"loaded\":{\"APPLICATION@markup://test:fakeApp\":\"oldUid\"}}");
+            assertFalse((Boolean) AuraPrivateAccessor.invoke(filter, "findCachedResource", mock));
+        } finally {
+            cachingService.getAltStringsCache().invalidate(key);
+        }
+    }
+
+    private AuraContextFilter createChunkFilter() {
+        AuraContextFilter filter = new AuraContextFilter();
+        filter.setContextService(contextService);
+        filter.setLoggingService(loggingService);
+        filter.setDefinitionService(definitionService);
+        filter.setConfigAdapter(configAdapter);
+        filter.setCachingService(cachingService);
+        return filter;
+    }
+
+    private HttpServletRequest createChunkRequest(String hash) {
+        HttpServletRequest mock = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(mock.getParameter(AuraResourceRewriteFilter.LOOKUP_PARAM)).thenReturn(hash);
+        return mock;
+    }
+
+    @Test
+    public void testServeChunkByContentHashOnly() throws Exception {
+        AuraContextFilter filter = createChunkFilter();
+        String key = ResourceCacheKey.chunk("0123abcd");
+        cachingService.getAltStringsCache().put(key, "$A.componentService.addComponent();");
+        HttpServletRequest mock = createChunkRequest("0123abcd");
+        HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        FilterChain chain = Mockito.mock(FilterChain.class);
+        try {
+            AuraPrivateAccessor.invoke(filter, "serveChunk", mock, response, chain);
+            Mockito.verify(mock).setAttribute(AuraContextFilter.CACHED_RESOURCE, "$A.componentService.addComponent();");
+            Mockito.verify(chain).doFilter(mock, response);
+            assertFalse(contextService.isEstablished());
+
+            HttpServletRequest other = createChunkRequest("../0123abcd");
+            AuraPrivateAccessor.invoke(filter, "serveChunk", other, response, chain);
+            Mockito.verify(response).sendError(HttpServletResponse.SC_NOT_FOUND);
+            Mockito.verify(chain, Mockito.never()).doFilter(other, response);
+        } finally {
+            cachingService.getAltStringsCache().invalidate(key);
+        }
+    }
+
+    @Test
+    public void testChunkRevalidationChecksTheHash() throws Exception {
+        AuraContextFilter filter = createChunkFilter();
+        String key = ResourceCacheKey.chunk("0123abcd");
+        cachingService.getAltStringsCache().put(key, "$A.componentService.addComponent();");
+        FilterChain chain = Mockito.mock(FilterChain.class);
+        try {
+            // a hash that was never written is not found, whatever the client says it has.
+            HttpServletRequest unknown = createChunkRequest("0123abce");
+            Mockito.when(unknown.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"0123abce\"");
+            HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+            AuraPrivateAccessor.invoke(filter, "serveChunk", unknown, response, chain);
+            Mockito.verify(response).sendError(HttpServletResponse.SC_NOT_FOUND);
+            Mockito.verify(response, Mockito.never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+
+            HttpServletRequest matching = createChunkRequest("0123abcd");
+            Mockito.when(matching.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"0123abcd-gzip\"");
+            response = Mockito.mock(HttpServletResponse.class);
+            AuraPrivateAccessor.invoke(filter, "serveChunk", matching, response, chain);
+            Mockito.verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            Mockito.verify(chain, Mockito.never()).doFilter(matching, response);
+
+            HttpServletRequest stale = createChunkRequest("0123abcd");
+            Mockito.when(stale.getHeader(HttpHeaders.IF_NONE_MATCH)).thenReturn("\"0123abce\"");
+            response = Mockito.mock(HttpServletResponse.class);
+            AuraPrivateAccessor.invoke(filter, "serveChunk", stale, response, chain);
+            Mockito.verify(response).setHeader(HttpHeaders.ETAG, "\"0123abcd\"");
+            Mockito.verify(response, Mockito.never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            Mockito.verify(chain).doFilter(stale, response);
+        } finally {
+            cachingService.getAltStringsCache().invalidate(key);
+        }
+    }
+
+    @Test
+    public void testServeEvictedChunkStartsTheContextOfItsApp() throws Exception {
+        AuraContextFilter filter = createChunkFilter();
+        String sourceKey = ResourceCacheKey.chunkSource("0123abcf");
+        cachingService.getDefinitionHashesCache().put(sourceKey, ImmutableMap.of(
+                ResourceCacheKey.CHUNK_MODE, Mode.PROD.name(),
+                ResourceCacheKey.CHUNK_ACCESS, Authentication.AUTHENTICATED.name(),
+                ResourceCacheKey.CHUNK_APP, "markup://test:fakeApp"));
+        HttpServletRequest mock = createChunkRequest("0123abcf");
+        HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        final AtomicReference<AuraContext> current = new AtomicReference<>();
+        FilterChain chain = new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                current.set(contextService.getCurrentContext());
+            }
+        };
+        try {
+            AuraPrivateAccessor.invoke(filter, "serveChunk", mock, response, chain);
+            assertNotNull(current.get());
+            assertEquals(Mode.PROD, current.get().getMode());
+            assertEquals("markup://test:fakeApp", current.get().getApplicationDescriptor().getQualifiedName());
+            assertEquals(configAdapter.getAuraFrameworkNonce(), current.get().getFrameworkUID());
+            assertFalse(contextService.isEstablished());
+
+            // nothing is known about a chunk that was never written.
+            HttpServletRequest unknown = createChunkRequest("0123abce");
+            AuraPrivateAccessor.invoke(filter, "serveChunk", unknown, response, chain);
+            Mockito.verify(response).sendError(HttpServletResponse.SC_NOT_FOUND);
+        } finally {
+            cachingService.getDefinitionHashesCache().invalidate(sourceKey);
+        }
+    }
 }
@@ -18,6 +18,8 @@ package org.auraframework.impl.context;
 import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.DefDescriptor.DefType;
@@ -25,11 +27,13 @@ import org.auraframework.def.Definition;
 import org.auraframework.def.DefinitionAccess;
 import org.auraframework.def.DescriptorFilter;
 import org.auraframework.impl.AuraImplTestCase;
+import org.auraframework.instance.Action;
 import org.auraframework.system.AuraContext.Authentication;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.Location;
 import org.auraframework.system.MasterDefRegistry;
 import org.auraframework.system.SubDefDescriptor;
+import org.auraframework.throwable.DeadlineExceededException;
 import org.auraframework.throwable.quickfix.QuickFixException;
 import org.auraframework.util.json.Json;
 import org.junit.Test;
@@ -497,4 +501,53 @@ public class AuraContextImplTest extends AuraImplTestCase {
         assertEquals(orig.getLocalDef(desc), null);
         assertFalse(orig.isLocalDefNotCacheable(desc));
     }
+
+    @Test
+    public void testCurrentActionIsPerThread() throws Exception {
+        final AuraContextImpl impl = new AuraContextImpl(null, null, null, null, null, null, null, null, null, null, null);
+        Action action = Mockito.mock(Action.class);
+        final Action other = Mockito.mock(Action.class);
+        impl.setCurrentAction(action);
+
+        final AtomicReference<Action> seen = new AtomicReference<>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                seen.set(impl.getCurrentAction());
+                impl.setCurrentAction(other);
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertNull(seen.get());
+        assertSame(action, impl.getCurrentAction());
+        assertSame(action, impl.setCurrentAction(null));
+        assertNull(impl.getCurrentAction());
+    }
+
+    @Test
+    public void testDeadlines() throws Exception {
+        AuraContextImpl impl = new AuraContextImpl(null, null, null, null, null, null, null, null, null, null, null);
+        assertFalse(impl.isDeadlineExceeded());
+        impl.checkDeadline();
+
+        impl.setActionDeadline(System.nanoTime() + TimeUnit.MINUTES.toNanos(1));
+        assertFalse(impl.isDeadlineExceeded());
+        impl.setActionDeadline(System.nanoTime() - 1);
+        assertTrue(impl.isDeadlineExceeded());
+        try {
+            impl.checkDeadline();
+            fail("Expected the action deadline to be exceeded");
+        } catch (DeadlineExceededException expected) {
+            // expected
+        }
+        impl.setActionDeadline(0);
+        assertFalse(impl.isDeadlineExceeded());
+
+        impl.setRequestDeadline(System.nanoTime() - 1);
+        assertTrue(impl.isDeadlineExceeded());
+        impl.setRequestDeadline(0);
+        assertFalse(impl.isDeadlineExceeded());
+    }
 }
@@ -16,17 +16,32 @@
 package org.auraframework.impl.context;
 
 import org.auraframework.adapter.ContextAdapter;
+import org.auraframework.def.ComponentDef;
+import org.auraframework.def.DefDescriptor;
 import org.auraframework.impl.AuraImplTestCase;
+import org.auraframework.impl.system.MasterDefRegistryImpl;
+import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Authentication;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraContext.GlobalValue;
 import org.auraframework.system.AuraContext.Mode;
+import org.auraframework.system.DefRegistry;
 import org.auraframework.throwable.AuraRuntimeException;
 import org.auraframework.util.test.util.AuraPrivateAccessor;
 import org.junit.Test;
 
 import javax.inject.Inject;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 
 public class AuraContextServiceImplTest extends AuraImplTestCase {
     @Inject
@@ -53,6 +68,75 @@ public class AuraContextServiceImplTest extends AuraImplTestCase {
         assertFalse(contextAdapter.isEstablished());
     }
 
+    /**
+     * Two forks of a request load definitions at the same time, as two concurrent actions do, and what they loaded
+     * ends up in the request context.
+     */
+    @Test
+    public void testForkedContextsLoadDefinitionsAtTheSameTime() throws Exception {
+        AuraContext context = contextService.startContext(Mode.PROD, Format.JSON, Authentication.AUTHENTICATED);
+        try {
+            List<DefDescriptor<ComponentDef>> descriptors = ImmutableList.of(
+                    definitionService.getDefDescriptor("ui:button", ComponentDef.class),
+                    definitionService.getDefDescriptor("ui:inputText", ComponentDef.class));
+            final CyclicBarrier barrier = new CyclicBarrier(descriptors.size());
+            ExecutorService executor = Executors.newFixedThreadPool(descriptors.size());
+            try {
+                List<Future<AuraContext>> running = Lists.newArrayList();
+                for (final DefDescriptor<ComponentDef> descriptor : descriptors) {
+                    final AuraContext fork = contextService.forkContext(context);
+                    assertNotSame(context, fork);
+                    assertNotSame(context.getDefRegistry(), fork.getDefRegistry());
+                    running.add(executor.submit(new Callable<AuraContext>() {
+                        @Override
+                        public AuraContext call() throws Exception {
+                            contextService.attachContext(fork);
+                            try {
+                                barrier.await(30, TimeUnit.SECONDS);
+                                definitionService.getDefinition(descriptor);
+                                return fork;
+                            } finally {
+                                contextService.endContext();
+                            }
+                        }
+                    }));
+                }
+                for (Future<AuraContext> future : running) {
+                    contextService.joinContext(context, future.get(30, TimeUnit.SECONDS));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            assertSame(context, contextService.getCurrentContext());
+            for (DefDescriptor<ComponentDef> descriptor : descriptors) {
+                assertTrue("Expected " + descriptor + " in the request context", context.hasLocalDef(descriptor));
+            }
+        } finally {
+            contextService.endContext();
+        }
+    }
+
+    /**
+     * A fork looks definitions up in the registries of the request, including its own source loaders.
+     */
+    @Test
+    public void testForkedContextUsesTheRegistriesOfTheRequest() throws Exception {
+        AuraContext context = contextService.startContext(Mode.PROD, Format.JSON, Authentication.AUTHENTICATED);
+        try {
+            AuraContext fork = contextService.forkContext(context);
+            DefRegistry<?>[] registries = ((MasterDefRegistryImpl) context.getDefRegistry()).getAllRegistries();
+            DefRegistry<?>[] forkRegistries = ((MasterDefRegistryImpl) fork.getDefRegistry()).getAllRegistries();
+
+            assertNotSame(context.getDefRegistry(), fork.getDefRegistry());
+            assertEquals(registries.length, forkRegistries.length);
+            for (int i = 0; i < registries.length; i++) {
+                assertSame(registries[i], forkRegistries[i]);
+            }
+        } finally {
+            contextService.endContext();
+        }
+    }
+
     private void unregisterGlobal(String name) {
         try {
             Map<String, GlobalValue> values = AuraPrivateAccessor.get(AuraContextImpl.class, "allowedGlobalValues");
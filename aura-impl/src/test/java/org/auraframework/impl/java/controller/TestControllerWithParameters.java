@@ -16,9 +16,15 @@
 package org.auraframework.impl.java.controller;
 
 import org.auraframework.annotations.Annotations.ServiceComponent;
+import java.util.List;
+
 import org.auraframework.ds.servicecomponent.Controller;
 import org.auraframework.system.Annotations.AuraEnabled;
+import org.auraframework.system.Annotations.BulkAction;
 import org.auraframework.system.Annotations.Key;
+import org.auraframework.throwable.AuraHandledException;
+
+import com.google.common.collect.Lists;
 
 @ServiceComponent
 public class TestControllerWithParameters implements Controller {
@@ -33,6 +39,26 @@ public class TestControllerWithParameters implements Controller {
         return Integer.valueOf(a.intValue() + b.intValue());
     }
 
+    @AuraEnabled
+    public Integer castValue(@Key("a") String a) {
+        Object value = a;
+        return (Integer) value;
+    }
+
+    @BulkAction("sumValues")
+    public List<Object> sumValuesInBulk(List<Object[]> argSets) {
+        List<Object> results = Lists.newArrayList();
+        for (Object[] args : argSets) {
+            Integer a = (Integer) args[0];
+            if (a.intValue() < 0) {
+                results.add(new AuraHandledException("negative"));
+            } else {
+                results.add(sumValues(a, (Integer) args[1]));
+            }
+        }
+        return results;
+    }
+
     @AuraEnabled
     public String customParam(@Key("a") CustomParam a) {
         return "Anything";
@@ -244,6 +244,47 @@ public class ConverterServiceImplTest extends UnitTestCase {
     }
 
 
+    /**
+     * A resolved converter handle must give the same results as convert, whatever class the values arrive as.
+     */
+    @Test
+    public void testResolvedConverterMatchesConvert() {
+        ConverterService.ResolvedConverter<Integer> toInteger = converterService.getConverter(Integer.class, null,
+                true, false);
+        assertEquals(Integer.valueOf(42), toInteger.convert(" 42 "));
+        assertEquals(Integer.valueOf(7), toInteger.convert(new BigDecimal("7")));
+        assertEquals(Integer.valueOf(43), toInteger.convert("43"));
+        Integer same = new Integer(1000);
+        assertSame(same, toInteger.convert(same));
+        assertNull(toInteger.convert(null));
+
+        ConverterService.ResolvedConverter<CustomPairType> toPair = converterService.getConverter(
+                CustomPairType.class, null, false, false);
+        assertEquals(converterService.convert("HouseNo$300", CustomPairType.class), toPair.convert("HouseNo$300"));
+
+        ConverterService.ResolvedConverter<CustomConcreteType1> toMulti = converterService.getConverter(
+                CustomConcreteType1.class, null, false, false);
+        assertEquals(52, toMulti.convert("blah:52").getIntValue());
+    }
+
+    /**
+     * Missing converters are remembered, but must keep failing the same way.
+     */
+    @Test
+    public void testResolvedConverterWithoutConverter() {
+        ConverterService.ResolvedConverter<CustomChildType> toChild = converterService.getConverter(
+                CustomChildType.class, null, false, false);
+        for (int i = 0; i < 2; i++) {
+            try {
+                toChild.convert(new CustomParentType());
+                fail("Should have thrown conversion exception due to missing converter");
+            } catch (ConversionException e) {
+                // expected
+            }
+        }
+        assertFalse(converterService.hasConverter(CustomParentType.class, CustomChildType.class, null));
+    }
+
     /**
      * Run a set of conversions checking for equality when they are arrays.
      * 
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.java.model;
+
+import java.lang.invoke.MethodHandle;
+
+import org.auraframework.util.AuraTextUtil;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+public class PropertyAccessorsTest extends UnitTestCase {
+
+    public static class Bean {
+        public String getName() {
+            return "bean";
+        }
+
+        public boolean isActive() {
+            return true;
+        }
+
+        public static int getCount() {
+            return 3;
+        }
+
+        public String getBroken() {
+            throw new IllegalStateException("broken");
+        }
+
+        public String getWithArg(String arg) {
+            return arg;
+        }
+    }
+
+    @Test
+    public void testGetAndIsGetters() throws Throwable {
+        PropertyAccessors accessors = PropertyAccessors.forClass(Bean.class);
+        Bean bean = new Bean();
+
+        assertEquals("bean", (Object) accessors.getGetter("name").invokeExact((Object) bean));
+        assertEquals(Boolean.TRUE, (Object) accessors.getGetter("active").invokeExact((Object) bean));
+        assertEquals(Integer.valueOf(3), (Object) accessors.getGetter("count").invokeExact((Object) bean));
+    }
+
+    @Test
+    public void testMissingPropertyIsRemembered() throws Exception {
+        PropertyAccessors accessors = PropertyAccessors.forClass(Bean.class);
+
+        assertNoGetter(accessors, "doesNotExist");
+        assertNoGetter(accessors, "doesNotExist");
+        // only no-arg methods are getters.
+        assertNoGetter(accessors, "withArg");
+    }
+
+    private void assertNoGetter(PropertyAccessors accessors, String property) throws Exception {
+        try {
+            accessors.getGetter(property);
+            fail("Expected no getter for " + property);
+        } catch (NoSuchMethodException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("get" + AuraTextUtil.initCap(property)));
+        }
+    }
+
+    @Test
+    public void testSameAccessorsForClass() throws Exception {
+        assertSame(PropertyAccessors.forClass(Bean.class), PropertyAccessors.forClass(Bean.class));
+        MethodHandle getter = PropertyAccessors.forClass(Bean.class).getGetter("name");
+        assertSame(getter, PropertyAccessors.forClass(Bean.class).getGetter("name"));
+    }
+
+    @Test
+    public void testGetterExceptionIsNotWrapped() throws Throwable {
+        MethodHandle getter = PropertyAccessors.forClass(Bean.class).getGetter("broken");
+        try {
+            Object value = (Object) getter.invokeExact((Object) new Bean());
+            fail("Expected the getter to throw, got " + value);
+        } catch (IllegalStateException expected) {
+            assertEquals("broken", expected.getMessage());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.util.json;
+
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+
+import org.auraframework.adapter.JsonSerializerAdapter;
+import org.auraframework.util.json.JsonSerializer;
+import org.auraframework.util.json.JsonSerializerFactory;
+import org.auraframework.util.test.annotation.UnAdaptableTest;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Compares serializer dispatch through {@link AuraJsonSerializerFactory} with the class name keyed cache it replaced,
+ * over the same adapters.
+ *
+ * The mix is a direct hit, an instanceof hit and a miss, since the old cache only remembered hits. Run it by hand and
+ * compare the printed times per lookup.
+ */
+@UnAdaptableTest
+public class AuraJsonSerializerFactoryBenchmarkTestMANUAL extends UnitTestCase {
+    private static final int ITERATIONS = Integer.getInteger("aura.benchmark.iterations", 5000000);
+    private static final int ROUNDS = 5;
+
+    @Inject
+    private JsonSerializerFactory jsonSerializerFactory;
+
+    @Inject
+    private Collection<JsonSerializerAdapter> jsonSerializerAdapters;
+
+    private static class Unserializable {
+    }
+
+    /**
+     * The lookup as it was: a name keyed ConcurrentHashMap in front of the lookup map and a scan of the instanceof
+     * map, where a miss is not remembered.
+     */
+    private static class NameKeyedFactory implements JsonSerializerFactory {
+        private final Map<String, JsonSerializer<?>> lookup = Maps.newHashMap();
+        private final Map<Class<?>, JsonSerializer<?>> instanceOf = Maps.newHashMap();
+        private final ConcurrentMap<String, JsonSerializer<?>> cache = new ConcurrentHashMap<>();
+
+        NameKeyedFactory(Collection<JsonSerializerAdapter> adapters) {
+            for (JsonSerializerAdapter a : adapters) {
+                lookup.putAll(a.lookupSerializers());
+                instanceOf.putAll(a.instanceofSerializers());
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> JsonSerializer<T> getSerializer(T o) {
+            Class<?> c = o.getClass();
+            String className = c.getName();
+            JsonSerializer<T> s = (JsonSerializer<T>) cache.get(className);
+            if (s != null) {
+                return s;
+            }
+            s = (JsonSerializer<T>) lookup.get(className);
+            if (s != null) {
+                cache.putIfAbsent(className, s);
+                return s;
+            }
+            for (Map.Entry<Class<?>, JsonSerializer<?>> e : instanceOf.entrySet()) {
+                if (e.getKey().isAssignableFrom(c)) {
+                    s = (JsonSerializer<T>) e.getValue();
+                    cache.putIfAbsent(className, s);
+                    return s;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Test
+    public void testDispatch() {
+        Object[] values = { "a string", new TreeMap<>(), new Unserializable(), BigInteger.ONE };
+        JsonSerializerFactory before = new NameKeyedFactory(jsonSerializerAdapters);
+
+        for (Object value : values) {
+            assertSame(value.getClass().getName(), before.getSerializer(value),
+                    jsonSerializerFactory.getSerializer(value));
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long beforeNanos = time(before, values);
+            long afterNanos = time(jsonSerializerFactory, values);
+            System.out.println(String.format("round %d: name keyed %.1fns, per class %.1fns per lookup", round,
+                    beforeNanos / (double) ITERATIONS, afterNanos / (double) ITERATIONS));
+        }
+    }
+
+    private static long time(JsonSerializerFactory factory, Object[] values) {
+        int hits = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            if (factory.getSerializer(values[i & 3]) != null) {
+                hits++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals(ITERATIONS - ITERATIONS / 4, hits);
+        return elapsed;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.impl.util.json;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+
+import org.auraframework.util.json.ClassMapJsonSerializationContext;
+import org.auraframework.util.json.JsonSerializerFactory;
+import org.auraframework.util.json.JsonSerializers;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+public class AuraJsonSerializerFactoryTest extends UnitTestCase {
+
+    @Inject
+    private JsonSerializerFactory jsonSerializerFactory;
+
+    private static class Unserializable {
+    }
+
+    private enum Color {
+        RED
+    }
+
+    @Test
+    public void testDirectLookup() {
+        assertSame(JsonSerializers.STRING, jsonSerializerFactory.getSerializer("a string"));
+        assertSame(JsonSerializers.COLLECTION, jsonSerializerFactory.getSerializer(new java.util.ArrayList<>()));
+    }
+
+    @Test
+    public void testInstanceofLookup() {
+        // TreeMap is not in the direct lookup map, so it has to resolve through Map.
+        assertSame(JsonSerializers.MAP, jsonSerializerFactory.getSerializer(new TreeMap<>()));
+        assertSame(JsonSerializers.MAP, jsonSerializerFactory.getSerializer(new TreeMap<>()));
+    }
+
+    @Test
+    public void testMissIsRepeatable() {
+        assertNull(jsonSerializerFactory.getSerializer(new Unserializable()));
+        assertNull(jsonSerializerFactory.getSerializer(new Unserializable()));
+    }
+
+    @Test
+    public void testContextIntrinsicSerializers() {
+        ClassMapJsonSerializationContext context = new ClassMapJsonSerializationContext(jsonSerializerFactory,
+                false, false, -1, -1);
+        assertSame(JsonSerializers.ARRAY, context.getSerializer(new Object[0]));
+        assertSame(JsonSerializers.STRING, context.getSerializer(Color.RED));
+        assertSame(JsonSerializers.LITERAL, context.getSerializer(null));
+        assertSame(JsonSerializers.MAP, context.getSerializer(new TreeMap<>()));
+    }
+
+    /**
+     * A class in the lookup map gets its own serializer, even though it is also an instance of a class in the
+     * instanceof map.
+     */
+    @Test
+    public void testLookupWinsOverInstanceof() {
+        for (int i = 0; i < 2; i++) {
+            assertSame(JsonSerializers.BIGDECIMAL, jsonSerializerFactory.getSerializer(BigDecimal.ONE));
+            assertSame(JsonSerializers.LITERAL, jsonSerializerFactory.getSerializer(BigInteger.ONE));
+        }
+    }
+
+    /**
+     * A subclass of a class in the lookup map is not looked up by name, it goes through the instanceof map.
+     */
+    @Test
+    public void testSubclassOfLookupClassResolvesThroughInstanceof() {
+        HashMap<String, Object> subclass = new HashMap<String, Object>() {
+            private static final long serialVersionUID = 1L;
+        };
+        for (int i = 0; i < 2; i++) {
+            assertSame(JsonSerializers.MAP, jsonSerializerFactory.getSerializer(subclass));
+            assertSame(JsonSerializers.MAP, jsonSerializerFactory.getSerializer(new HashMap<>()));
+        }
+    }
+}
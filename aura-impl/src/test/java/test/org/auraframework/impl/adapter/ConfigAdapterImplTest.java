@@ -135,6 +135,11 @@ public class ConfigAdapterImplTest extends UnitTestCase {
             public boolean isProduction() {
                 return false;
             }
+
+            @Override
+            protected long getFrameworkWatchInterval() {
+                return 0;
+            }
         };
 
         ContextService contextService = mock(AuraContextServiceImpl.class);
@@ -204,6 +209,11 @@ public class ConfigAdapterImplTest extends UnitTestCase {
             protected FileGroup newAuraResourcesHashingGroup() throws IOException {
                 return resourcesGroup;
             }
+
+            @Override
+            protected long getFrameworkWatchInterval() {
+                return 0;
+            }
         };
 
         ContextService contextService = mock(AuraContextServiceImpl.class);
@@ -224,9 +234,12 @@ public class ConfigAdapterImplTest extends UnitTestCase {
         verify(spy, Mockito.never()).makeHash(anyString(), anyString());
         assertEquals("Framework uid is not correct", "9YifBh-oLwXkDGW3d3qyDQ", uid);
 
-        // change js hash, verify changes framework nonce
+        // change js hash, verify the nonce is unchanged until the watcher sees it
         when(jsHash.toString()).thenReturn("MocKitYMuCK");
         reset(spy);
+        assertEquals("Framework uid changed on a request thread", "9YifBh-oLwXkDGW3d3qyDQ", spy.getAuraFrameworkNonce());
+        verify(spy, Mockito.never()).makeHash(anyString(), anyString());
+        spy.checkFrameworkChanges();
         uid = spy.getAuraFrameworkNonce();
         verify(spy, Mockito.times(1)).makeHash(anyString(), anyString());
         assertEquals("Framework uid is not correct", "ltz-V8xGPGhXbOiTtfSApQ", uid);
@@ -234,11 +247,13 @@ public class ConfigAdapterImplTest extends UnitTestCase {
         // change resource hash, verify changes framework nonce
         when(resourcesHash.toString()).thenReturn("MuCkiTyMocK");
         reset(spy);
+        spy.checkFrameworkChanges();
         uid = spy.getAuraFrameworkNonce();
         verify(spy, Mockito.times(1)).makeHash(anyString(), anyString());
         assertEquals("Framework uid is not correct", uid, "BJTaoiCDxoAF4Wbh0iC9lA");
 
         reset(spy);
+        spy.checkFrameworkChanges();
         uid = spy.getAuraFrameworkNonce();
         // test that makeHash is not called because jsHash and resourcesHash has not changed
         verify(spy, Mockito.never()).makeHash(anyString(), anyString());
@@ -15,13 +15,23 @@
  */
 package org.auraframework.integration.test.adapter;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 
 import org.auraframework.Aura;
 import org.auraframework.adapter.ConfigAdapter;
+import org.auraframework.adapter.DefaultContentSecurityPolicy;
 import org.auraframework.adapter.ServletUtilAdapter;
 import org.auraframework.def.ApplicationDef;
 import org.auraframework.def.DefDescriptor;
+import org.auraframework.http.CSP;
 import org.auraframework.http.ManifestUtil;
 import org.auraframework.impl.adapter.ServletUtilAdapterImpl;
 import org.auraframework.integration.test.util.IntegrationTestCase;
@@ -31,6 +41,8 @@ import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraContext.Mode;
 import org.auraframework.util.test.annotation.ThreadHostileTest;
 import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 public class ServletUtilAdapterImplTest extends IntegrationTestCase {
 
@@ -85,4 +97,74 @@ public class ServletUtilAdapterImplTest extends IntegrationTestCase {
         String cacheBuster = Aura.getConfigAdapter().getLockerServiceCacheBuster();
         return cacheBuster != null ? "%2C%22ls%22%3A%22" + cacheBuster + "%22" : "";
     }
+
+    /**
+     * The headers of a cacheable policy are built once per top level descriptor.
+     */
+    @Test
+    public void testCacheableCSPHeadersAreBuiltOnce() throws Exception {
+        CountingContentSecurityPolicy csp = new CountingContentSecurityPolicy("counting");
+        ConfigAdapter mockConfigAdapter = mock(ConfigAdapter.class);
+        when(mockConfigAdapter.getContentSecurityPolicy(anyString(), any(HttpServletRequest.class))).thenReturn(csp);
+        ServletUtilAdapterImpl servletUtilAdapter = new ServletUtilAdapterImpl();
+        servletUtilAdapter.setConfigAdapter(mockConfigAdapter);
+        String expected = new DefaultContentSecurityPolicy(false).getCspHeaderValue();
+
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            servletUtilAdapter.setCSPHeaders(null, new MockHttpServletRequest(), response);
+            assertEquals(expected, response.getHeader(CSP.Header.SECURE));
+            assertEquals("SAMEORIGIN", response.getHeader("X-FRAME-OPTIONS"));
+        }
+        assertEquals(1, csp.headerValues);
+        assertEquals(1, csp.frameAncestors);
+    }
+
+    /**
+     * The headers of a policy without a key are built for every request.
+     */
+    @Test
+    public void testCSPHeadersWithoutKeyAreBuiltEveryTime() throws Exception {
+        CountingContentSecurityPolicy csp = new CountingContentSecurityPolicy(null);
+        ConfigAdapter mockConfigAdapter = mock(ConfigAdapter.class);
+        when(mockConfigAdapter.getContentSecurityPolicy(anyString(), any(HttpServletRequest.class))).thenReturn(csp);
+        ServletUtilAdapterImpl servletUtilAdapter = new ServletUtilAdapterImpl();
+        servletUtilAdapter.setConfigAdapter(mockConfigAdapter);
+
+        for (int i = 0; i < 3; i++) {
+            servletUtilAdapter.setCSPHeaders(null, new MockHttpServletRequest(), new MockHttpServletResponse());
+        }
+        assertEquals(3, csp.headerValues);
+    }
+
+    /**
+     * A default policy that counts how often its headers are built, under a key of its own.
+     */
+    private static class CountingContentSecurityPolicy extends DefaultContentSecurityPolicy {
+        private final String cacheKey;
+        private int headerValues;
+        private int frameAncestors;
+
+        private CountingContentSecurityPolicy(String cacheKey) {
+            super(false);
+            this.cacheKey = cacheKey;
+        }
+
+        @Override
+        public String getCacheKey() {
+            return cacheKey;
+        }
+
+        @Override
+        public String getCspHeaderValue() {
+            headerValues++;
+            return super.getCspHeaderValue();
+        }
+
+        @Override
+        public Collection<String> getFrameAncestors() {
+            frameAncestors++;
+            return super.getFrameAncestors();
+        }
+    }
 }
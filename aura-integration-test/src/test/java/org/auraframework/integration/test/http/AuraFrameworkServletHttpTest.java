@@ -346,6 +346,26 @@ public class AuraFrameworkServletHttpTest extends AuraHttpTestCase {
         get.releaseConnection();
     }
 
+    /**
+     * Verify that a text resource under the current nonce is the same when it comes from memory.
+     */
+    @Test
+    public void testRequestTextResourceWithNonceTwice() throws Exception {
+        HttpGet get = obtainNoncedGetMethod(sampleTextResourcePathWithNonce, false);
+        HttpResponse response = perform(get);
+        assertEquals(HttpStatus.SC_OK, getStatusCode(response));
+        String first = getResponseBody(response);
+        get.releaseConnection();
+
+        get = obtainNoncedGetMethod(sampleTextResourcePathWithNonce, false);
+        response = perform(get);
+        assertEquals(HttpStatus.SC_OK, getStatusCode(response));
+        assertTrue(response.getFirstHeader(HttpHeaders.CONTENT_TYPE).getValue().startsWith("text/css;"));
+        assertEquals("Cached resource differs from the original", first, getResponseBody(response));
+        assertDefaultAntiClickjacking(response, true, false);
+        get.releaseConnection();
+    }
+
     /**
      * Verify that AuraFrameworkServlet responds successfully to valid request for a text resource.
      */
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.integration.test.http;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.util.EntityUtils;
+import org.auraframework.def.ApplicationDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.integration.test.util.AuraHttpTestCase;
+import org.auraframework.system.AuraContext.Mode;
+import org.auraframework.util.json.JsonEncoder;
+import org.auraframework.util.test.annotation.UnAdaptableTest;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Compares action POSTs on the container thread with POSTs on the async pool of AuraServlet, at a concurrency above
+ * the size of the container thread pool.
+ *
+ * Every POST runs one action that waits on (simulated) downstream I/O. Run it once as is, for the synchronous path,
+ * and once with -Daura.servlet.asyncThreads=512 on the server, and compare the printed throughput and latencies.
+ */
+@UnAdaptableTest
+public class AuraServletAsyncBenchmarkTestMANUAL extends AuraHttpTestCase {
+    private static final int CLIENTS = Integer.getInteger("aura.benchmark.clients", 400);
+    private static final int POSTS_PER_CLIENT = Integer.getInteger("aura.benchmark.posts", 10);
+    private static final long ACTION_MILLIS = Long.getLong("aura.benchmark.actionMillis", 200);
+
+    private static final String DELAY_ACTION =
+            "java://org.auraframework.impl.java.controller.DelayedController/ACTION$delayAction";
+
+    @Test
+    public void testConcurrentPostsOfSlowActions() throws Exception {
+        Map<String, Object> action = ImmutableMap.<String, Object> of("descriptor", DELAY_ACTION,
+                "params", ImmutableMap.of("delayMs", ACTION_MILLIS));
+        DefDescriptor<ApplicationDef> app = definitionService.getDefDescriptor("auratest:test_SimpleServerRenderedPage",
+                ApplicationDef.class);
+        final Map<String, String> params = Maps.newHashMap();
+        params.put("message", JsonEncoder.serialize(ImmutableMap.of("actions", ImmutableList.of(action))));
+        params.put("aura.token", getCsrfToken());
+        params.put("aura.context", getAuraTestingUtil().buildContextForPost(Mode.PROD, app));
+
+        // warm up the definitions and the pools.
+        runClients(params, 8, 2);
+
+        long start = System.nanoTime();
+        List<Long> latencies = runClients(params, CLIENTS, POSTS_PER_CLIENT);
+        long elapsed = System.nanoTime() - start;
+
+        long[] sorted = new long[latencies.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = latencies.get(i);
+        }
+        Arrays.sort(sorted);
+        System.out.println(String.format("async threads: %s, %d clients x %d posts of %dms actions: "
+                + "%.1f posts/s, p50 %dms, p99 %dms, max %dms",
+                System.getProperty("aura.servlet.asyncThreads", "none"), CLIENTS, POSTS_PER_CLIENT, ACTION_MILLIS,
+                sorted.length / (elapsed / 1e9), percentile(sorted, 50), percentile(sorted, 99),
+                percentile(sorted, 100)));
+    }
+
+    /**
+     * Run the POSTs, each client on its own thread and connection.
+     *
+     * @return the latency of every POST in milliseconds.
+     */
+    private List<Long> runClients(final Map<String, String> params, int clients, final int posts) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        final CountDownLatch go = new CountDownLatch(1);
+        try {
+            List<Future<List<Long>>> futures = Lists.newArrayListWithCapacity(clients);
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit(new Callable<List<Long>>() {
+                    @Override
+                    public List<Long> call() throws Exception {
+                        HttpClient http = getTestServletConfig().getHttpClient();
+                        List<Long> latencies = Lists.newArrayListWithCapacity(posts);
+                        go.await();
+                        for (int j = 0; j < posts; j++) {
+                            HttpPost post = obtainPostMethod("/aura", params);
+                            long start = System.nanoTime();
+                            try {
+                                HttpResponse response = http.execute(post);
+                                EntityUtils.consume(response.getEntity());
+                                assertEquals(HttpStatus.SC_OK, getStatusCode(response));
+                            } finally {
+                                post.releaseConnection();
+                            }
+                            latencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                        }
+                        return latencies;
+                    }
+                }));
+            }
+            go.countDown();
+            List<Long> latencies = Lists.newArrayListWithCapacity(clients * posts);
+            for (Future<List<Long>> future : futures) {
+                latencies.addAll(future.get());
+            }
+            return latencies;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        int index = (int) Math.ceil(sorted.length * percent / 100.0) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -51,6 +51,18 @@ public class JavaActionDefTest extends AuraImplTestCase {
         assertTrue("ActionDef should be background when class has Background annotation", actual);
     }
 
+    @Test
+    public void testJavaActionDefIsBulkWithBulkMethod() throws Exception {
+        String controllerName = "java://org.auraframework.impl.java.controller.TestControllerWithParameters";
+
+        JavaActionDef actionDef = (JavaActionDef) getJavaActionDef(controllerName, "sumValues");
+        assertTrue("ActionDef should be bulk when a bulk method names it", actionDef.isBulk());
+        assertEquals("sumValuesInBulk", actionDef.getBulkMethod().getName());
+
+        actionDef = (JavaActionDef) getJavaActionDef(controllerName, "appendStrings");
+        assertFalse("JavaActionDef should NOT be bulk by default", actionDef.isBulk());
+    }
+
     @Test
     public void testJavaActionDefWithMethodHasNoParams() throws Exception{
         String controllerName = "java://org.auraframework.components.test.java.controller.TestController";
@@ -16,6 +16,7 @@
 package org.auraframework.integration.test.java.controller;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.inject.Inject;
@@ -37,11 +38,14 @@ import org.auraframework.instance.Action.State;
 import org.auraframework.service.CachingService;
 import org.auraframework.service.InstanceService;
 import org.auraframework.system.LoggingContext.KeyValueLogger;
+import org.auraframework.throwable.AuraHandledException;
 import org.auraframework.throwable.AuraUnhandledException;
 import org.auraframework.throwable.quickfix.QuickFixException;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.google.common.collect.Lists;
+
 /**
  * Integration tests for JavaAction.
  */
@@ -136,6 +140,27 @@ public class JavaActionTest extends AuraImplTestCase {
         checkExceptionContains(actualException, AuraUnhandledException.class, expectedMessage);
     }
 
+    /**
+     * Verify that a ClassCastException thrown by the action method is reported as the method's own error.
+     */
+    @Test
+    public void testRunActionWithClassCastFromMethod() throws Exception {
+        String targetController = "java://org.auraframework.impl.java.controller.TestControllerWithParameters";
+        ControllerDef controllerDef = getJavaControllerDef(targetController);
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("a", "x");
+        ActionDef actionDef = controllerDef.getSubDefinition("castValue");
+        JavaAction javaAction = instanceService.getInstance(actionDef, params);
+        javaAction.run();
+
+        assertEquals(State.ERROR, javaAction.getState());
+        assertEquals(1, javaAction.getErrors().size());
+        Exception actualException = (Exception) javaAction.getErrors().get(0);
+        String expectedMessage = targetController + ": java.lang.ClassCastException";
+        checkExceptionContains(actualException, AuraUnhandledException.class, expectedMessage);
+    }
+
     @Test
     public void testRunActionWithParameters() throws Exception {
         String targetController = "java://org.auraframework.impl.java.controller.TestControllerWithParameters";
@@ -153,6 +178,62 @@ public class JavaActionTest extends AuraImplTestCase {
         assertEquals("xy", javaAction.getReturnValue());
     }
 
+    /**
+     * Verify that parameter types resolved by the first run of an action def are right for later runs.
+     */
+    @Test
+    public void testRunActionDefRepeatedly() throws Exception {
+        String targetController = "java://org.auraframework.impl.java.controller.TestControllerWithParameters";
+        ControllerDef controllerDef = getJavaControllerDef(targetController);
+        ActionDef actionDef = controllerDef.getSubDefinition("sumValues");
+
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> params = new HashMap<>();
+            params.put("a", i);
+            params.put("b", "10");
+            JavaAction javaAction = instanceService.getInstance(actionDef, params);
+            javaAction.run();
+
+            assertEquals(State.SUCCESS, javaAction.getState());
+            assertActionNotContainsError(javaAction);
+            assertEquals(Integer.valueOf(i + 10), javaAction.getReturnValue());
+        }
+    }
+
+    /**
+     * Verify that calls run in bulk each get their own result, and that a call with bad parameters is left out.
+     */
+    @Test
+    public void testRunBulkAction() throws Exception {
+        String targetController = "java://org.auraframework.impl.java.controller.TestControllerWithParameters";
+        ControllerDef controllerDef = getJavaControllerDef(targetController);
+        ActionDef actionDef = controllerDef.getSubDefinition("sumValues");
+
+        List<JavaAction> actions = Lists.newArrayList();
+        Object[][] values = { { 1, 2 }, { "x", 2 }, { -1, 2 }, { 3, "4" } };
+        for (Object[] value : values) {
+            Map<String, Object> params = new HashMap<>();
+            params.put("a", value[0]);
+            params.put("b", value[1]);
+            JavaAction javaAction = instanceService.getInstance(actionDef, params);
+            actions.add(javaAction);
+        }
+        assertTrue(actions.get(0).isBulkWith(actions.get(3)));
+
+        JavaAction.runBulk(actions);
+
+        assertEquals(State.SUCCESS, actions.get(0).getState());
+        assertEquals(3, actions.get(0).getReturnValue());
+        assertEquals(State.ERROR, actions.get(1).getState());
+        checkExceptionContains((Exception) actions.get(1).getErrors().get(0), AuraUnhandledException.class,
+                "Invalid value for a: java://java.lang.Integer");
+        assertEquals(State.ERROR, actions.get(2).getState());
+        checkExceptionContains((Exception) actions.get(2).getErrors().get(0), AuraHandledException.class,
+                "negative");
+        assertEquals(State.SUCCESS, actions.get(3).getState());
+        assertEquals(7, actions.get(3).getReturnValue());
+    }
+
     @Test
     public void testRunActionWithIntegerParameters() throws Exception {
         String targetController = "java://org.auraframework.impl.java.controller.TestControllerWithParameters";
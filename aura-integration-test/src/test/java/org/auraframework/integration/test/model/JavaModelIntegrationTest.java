@@ -179,6 +179,8 @@ public class JavaModelIntegrationTest extends AuraImplTestCase {
         } catch (Exception e) {
             checkExceptionStart(e, AuraExecutionException.class, "TestModel: no such property: DoesNotExist",
                     javaModelDefDesc.getName());
+            assertTrue("Expected the failed lookup as the cause, got " + e.getCause(),
+                    e.getCause() instanceof NoSuchMethodException);
         }
     }
 }
@@ -54,9 +54,11 @@ import org.auraframework.instance.Action;
 import org.auraframework.instance.ActionDelegate;
 import org.auraframework.instance.Component;
 import org.auraframework.instance.InstanceStack;
+import org.auraframework.service.CachingService;
 import org.auraframework.service.ContextService;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.service.InstanceService;
+import org.auraframework.service.RenderingService;
 import org.auraframework.service.SerializationService;
 import org.auraframework.service.ServerService;
 import org.auraframework.system.AuraContext;
@@ -87,6 +89,12 @@ public class ServerServiceImplTest extends AuraImplTestCase {
     @Inject
     private ServerService serverService;
 
+    @Inject
+    private RenderingService renderingService;
+
+    @Inject
+    private CachingService cachingService;
+
     public ServerServiceImplTest() {
         super();
         setShouldSetupContext(false);
@@ -498,6 +506,37 @@ public class ServerServiceImplTest extends AuraImplTestCase {
         assertEquals("Expected extras to be in " + json, "that", json.get("this"));
     }
 
+    /**
+     * Streamed actions arrive one per line, each written before the next action runs, with the context last.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStreamingActions() throws Exception {
+        contextService.startContext(Mode.UTEST, Format.JSON, Authentication.AUTHENTICATED);
+        StringWriter sw = new StringWriter();
+        Action a = new EmptyAction(sw, "first action", definitionService);
+        Action b = new EmptyAction(sw, "second action", definitionService);
+        Map<String, String> extras = Maps.newHashMap();
+        extras.put("this", "that");
+        Message message = new Message(Lists.newArrayList(a, b));
+
+        serverService.runStreaming(message, contextService.getCurrentContext(), sw, extras);
+
+        // the second action ran after the first was flushed as a complete line.
+        assertEquals("{\"this\":\"that\"}\n{\"action\":{\"action\":\"firstaction\"}}\n",
+                ((String) b.getReturnValue()).replaceAll("[ \t]+", ""));
+
+        String[] lines = sw.toString().split("\n");
+        assertEquals("Expected extras, two actions and a trailer in " + sw, 4, lines.length);
+        assertEquals("that", ((Map<String, Object>) new JsonReader().read(lines[0])).get("this"));
+        Map<String, Object> first = (Map<String, Object>) new JsonReader().read(lines[1]);
+        assertEquals("first action", ((Map<String, Object>) first.get("action")).get("action"));
+        Map<String, Object> second = (Map<String, Object>) new JsonReader().read(lines[2]);
+        assertEquals("second action", ((Map<String, Object>) second.get("action")).get("action"));
+        Map<String, Object> trailer = (Map<String, Object>) new JsonReader().read(lines[3]);
+        assertNotNull("Expected context in trailer: " + lines[3], trailer.get("context"));
+    }
+
     /**
      * Sanity check to make sure that app.css does not have duplicate copy of component CSS. Component CSS was being
      * added twice, once because they were part of preload namespace and a second time because of component dependency.
@@ -656,6 +695,53 @@ public class ServerServiceImplTest extends AuraImplTestCase {
         }
     }
 
+    /**
+     * A page written from the cached template must be the same as one rendered from a fresh template.
+     */
+    @Test
+    public void testWriteTemplateHtmlMatchesRenderedTemplate() throws Exception {
+        DefDescriptor<ApplicationDef> appDesc = definitionService
+                .getDefDescriptor("appCache:withpreload", ApplicationDef.class);
+        AuraContext context = contextService.startContext(Mode.PROD, AuraContext.Format.HTML,
+                AuraContext.Authentication.AUTHENTICATED, appDesc);
+        context.addLoaded(appDesc, context.getDefRegistry().getUid(null, appDesc));
+        ApplicationDef appDef = definitionService.getDefinition(appDesc);
+
+        StringBuilder expected = new StringBuilder();
+        Component template = serverService.writeTemplate(context, appDef, null, expected);
+        renderingService.render(template, expected, null);
+
+        // the first page fills the cache, the second one is spliced from it.
+        for (int i = 0; i < 2; i++) {
+            StringBuilder page = new StringBuilder();
+            serverService.writeTemplateHtml(context, appDef, null, page);
+            assertEquals(expected.toString(), page.toString());
+        }
+    }
+
+    /**
+     * A template that reads a global can differ between users of one context, so its page is not cached.
+     */
+    @Test
+    public void testWriteTemplateHtmlDoesNotCacheTemplateWithGlobals() throws Exception {
+        DefDescriptor<ComponentDef> templateDesc = addSourceAutoCleanup(ComponentDef.class,
+                "<aura:component isTemplate='true' extends='aura:template'>"
+                        + "<aura:set attribute='title' value='{!$Browser.formFactor}'/></aura:component>");
+        DefDescriptor<ApplicationDef> appDesc = addSourceAutoCleanup(ApplicationDef.class,
+                String.format("<aura:application template='%s'/>", templateDesc.getDescriptorName()));
+        AuraContext context = contextService.startContext(Mode.PROD, AuraContext.Format.HTML,
+                AuraContext.Authentication.AUTHENTICATED, appDesc);
+        context.addLoaded(appDesc, context.getDefRegistry().getUid(null, appDesc));
+        ApplicationDef appDef = definitionService.getDefinition(appDesc);
+        Set<String> before = Sets.newHashSet(cachingService.getAltStringsCache().getKeySet());
+
+        serverService.writeTemplateHtml(context, appDef, null, new StringBuilder());
+
+        for (String key : cachingService.getAltStringsCache().getKeySet()) {
+            assertTrue("Cached the page of a template with globals", before.contains(key) || !key.startsWith("HTML:"));
+        }
+    }
+
     /**
      * Tests aura definitions has no syntax errors and can be compressed
      */
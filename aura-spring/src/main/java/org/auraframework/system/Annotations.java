@@ -30,6 +30,8 @@ public interface Annotations {
 	
     /**
      * Marks a method as that will be queued and run as a lower priority background action.
+     * On the server it runs on the background action pool (aura.actions.background), apart from the request thread
+     * and the other actions of its request.
      * The AuraEnabled annotation is still required to use this method as a server action.
      */
     @Retention(RetentionPolicy.RUNTIME)
@@ -41,7 +43,8 @@ public interface Annotations {
      * Marks a method to be queued and wait for the next action that would be sent.
      *
      * This can be used when the action is to send data that is not critical, and that we
-     * want to boxcar with other actions to avoid performance penalties.
+     * want to boxcar with other actions to avoid performance penalties. On the server it runs on the
+     * caboose action pool (aura.actions.caboose), apart from the actions it was sent with.
      *
      * The AuraEnabled annotation is still required to use this method as a server action.
      */
@@ -50,6 +53,37 @@ public interface Annotations {
     @interface CabooseAction {
     }
 
+    /**
+     * Marks a method as safe to run at the same time as the other actions of its request.
+     *
+     * When the server is configured with an action thread pool (aura.actions.concurrency), such actions run on
+     * that pool instead of one after another, and their results are still written in the order they were sent.
+     * The method must only read request state: it may create components, but must not fire client events or
+     * otherwise change the context that other actions can see.
+     *
+     * The AuraEnabled annotation is still required to use this method as a server action.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    @interface ConcurrentAction {
+    }
+
+    /**
+     * Marks a method that runs many calls of an action at once.
+     *
+     * The value is the name of an AuraEnabled method of the same class. When a request holds more than one call of
+     * that action, the calls are made with a single call of this method instead. It takes a List of Object[], the
+     * converted arguments of each call in the order they were declared, and must return a List with one result per
+     * call, in the same order. A result that is an AuraHandledException fails only its own call.
+     *
+     * The method is not a server action itself, and needs no AuraEnabled annotation.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    @interface BulkAction {
+        String value();
+    }
+
     @Retention(RetentionPolicy.RUNTIME)
     @Target(ElementType.METHOD)
     @interface AuraEnabled {
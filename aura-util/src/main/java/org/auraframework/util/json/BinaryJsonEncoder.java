@@ -0,0 +1,350 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+
+/**
+ * A compact binary rendering of the same structure that {@link JsonEncoder} writes as text.
+ *
+ * Serializers are unchanged, they call the usual write* methods and this class turns them into tagged values instead
+ * of JSON text. A response is a single frame:
+ *
+ * <pre>
+ *   magic (0xA5 'B') | version (1 byte) | body length (4 bytes, big endian) | body
+ * </pre>
+ *
+ * The body is one value, where every value starts with a tag byte:
+ * <ul>
+ * <li>{@link #NULL}, {@link #TRUE}, {@link #FALSE}: no payload</li>
+ * <li>{@link #INT}: zigzag varint</li>
+ * <li>{@link #DOUBLE}: 8 byte IEEE 754, big endian</li>
+ * <li>{@link #STRING}: varint length + UTF-8 bytes</li>
+ * <li>{@link #STRING_DEF}: as STRING, and the string is appended to the string table</li>
+ * <li>{@link #STRING_REF}: varint index into the string table</li>
+ * <li>{@link #MAP_BEGIN}: alternating keys and values up to {@link #END}</li>
+ * <li>{@link #ARRAY_BEGIN}: values up to {@link #END}</li>
+ * <li>{@link #DATE}: 8 byte millis since the epoch, big endian</li>
+ * <li>{@link #RAW}: varint length + UTF-8 bytes of a javascript literal that has no native form (e.g. a function)</li>
+ * </ul>
+ *
+ * Map keys and short strings go through the string table, so repeated keys and descriptors cost a couple of bytes
+ * after their first use. The frame is only written on {@link #close()}, and only if all maps and arrays were closed,
+ * so a response that failed half way is seen by the client as truncated rather than as a valid but partial value.
+ *
+ * Formatting and comments are dropped. Binary streams and {@link #getAppendable()} are not supported and throw an
+ * IllegalStateException. Like JsonEncoder, this is NOT thread-safe.
+ *
+ * The format is off unless the servlet is started with aura.servlet.binaryActions=true, see AuraServlet.
+ */
+public class BinaryJsonEncoder extends JsonEncoder {
+    public static final String MIME_TYPE = "application/x-aura-binary";
+
+    public static final int MAGIC = 0xA542;
+    public static final int VERSION = 1;
+
+    public static final byte NULL = 0x00;
+    public static final byte TRUE = 0x01;
+    public static final byte FALSE = 0x02;
+    public static final byte INT = 0x03;
+    public static final byte DOUBLE = 0x04;
+    public static final byte STRING = 0x05;
+    public static final byte STRING_DEF = 0x06;
+    public static final byte STRING_REF = 0x07;
+    public static final byte MAP_BEGIN = 0x08;
+    public static final byte ARRAY_BEGIN = 0x09;
+    public static final byte END = 0x0A;
+    public static final byte DATE = 0x0B;
+    public static final byte RAW = 0x0C;
+
+    /**
+     * Values longer than this are written inline, they are unlikely to repeat and would only bloat the table.
+     */
+    private static final int MAX_INTERNED_LENGTH = 128;
+    private static final int MAX_STRING_TABLE_SIZE = 1 << 16;
+
+    /**
+     * Handed to the text encoder so that a path that was not overridden here fails loudly instead of writing text
+     * into a binary frame. Every write* method that reaches the appendable in {@link JsonEncoder} is overridden.
+     */
+    private static final Appendable NO_APPENDABLE = new Appendable() {
+        @Override
+        public Appendable append(CharSequence csq) {
+            throw textOutputNotSupported();
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            throw textOutputNotSupported();
+        }
+
+        @Override
+        public Appendable append(char c) {
+            throw textOutputNotSupported();
+        }
+    };
+
+    private static IllegalStateException textOutputNotSupported() {
+        return new IllegalStateException("The binary action format has no text output, serializers must use the "
+                + "Json.write* methods (javascript source goes through writeLiteral)");
+    }
+
+    private final OutputStream target;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+    private final DataOutputStream body = new DataOutputStream(buffer);
+    private final Map<String, Integer> stringTable = Maps.newHashMap();
+    private int depth = 0;
+    private boolean closed = false;
+
+    protected BinaryJsonEncoder(OutputStream target, JsonSerializationContext context) {
+        super(NO_APPENDABLE, null, context);
+        this.target = target;
+    }
+
+    /**
+     * Create a binary encoder writing a single frame to the given stream on {@link #close()}.
+     *
+     * @param out The OutputStream to write the frame to. This must not be null.
+     * @param context The JSON serialization context to use for output, formatting is ignored.
+     * @return A new encoder.
+     */
+    public static BinaryJsonEncoder createBinaryStream(@Nonnull OutputStream out, JsonSerializationContext context) {
+        if (out == null) {
+            throw new IllegalArgumentException("out must not be null");
+        }
+        return new BinaryJsonEncoder(out, context);
+    }
+
+    @Override
+    public void writeIndent() {
+    }
+
+    @Override
+    public void writeBreak() {
+    }
+
+    @Override
+    public void writeComma() {
+    }
+
+    @Override
+    public void writeMapSeparator() {
+    }
+
+    @Override
+    public void writeCommentBegin() {
+        pushIndent(IndentType.COMMENT);
+    }
+
+    @Override
+    public void writeCommentEnd() {
+        popIndent(IndentType.COMMENT, "Json.writeCommentEnd must be preceded by Json.writeCommentBegin");
+    }
+
+    @Override
+    public void writeCommentBody(String body) {
+        checkIndent(IndentType.COMMENT, "Json.writeCommentBody must be preceded by Json.writeCommentBegin");
+    }
+
+    /**
+     * There is no text to write to, raw text written by a serializer could not be told apart from the frame.
+     *
+     * @throws IllegalStateException always.
+     */
+    @Override
+    public Appendable getAppendable() {
+        throw textOutputNotSupported();
+    }
+
+    /**
+     * Binary streams are a JSON+binary framing of their own and cannot be nested in a binary frame.
+     *
+     * @throws IllegalStateException always.
+     */
+    @Override
+    public OutputStream writeBinaryStreamBegin(long streamLength) {
+        throw new IllegalStateException("Binary streams are not supported by the binary action format");
+    }
+
+    /**
+     * @throws IllegalStateException always, see {@link #writeBinaryStreamBegin(long)}.
+     */
+    @Override
+    public void writeBinaryStreamEnd() {
+        throw new IllegalStateException("Binary streams are not supported by the binary action format");
+    }
+
+    @Override
+    public void writeMapBegin() throws IOException {
+        body.writeByte(MAP_BEGIN);
+        pushIndent(IndentType.BRACE);
+        depth++;
+    }
+
+    @Override
+    public void writeMapEnd() throws IOException {
+        popIndent(IndentType.BRACE, "Json.writeMapBegin must be called before calling Json.writeMapEnd");
+        body.writeByte(END);
+        depth--;
+    }
+
+    @Override
+    public void writeArrayBegin() throws IOException {
+        body.writeByte(ARRAY_BEGIN);
+        pushIndent(IndentType.SQUARE);
+        depth++;
+    }
+
+    @Override
+    public void writeArrayEnd() throws IOException {
+        popIndent(IndentType.SQUARE, "Json.writeArrayBegin must be called before calling Json.writeArrayEnd");
+        body.writeByte(END);
+        depth--;
+    }
+
+    @Override
+    public void writeMapKey(Object key) throws IOException {
+        checkIndent(IndentType.BRACE, "Json.writeMapBegin must be called before calling Json.writeMapKey");
+        if (key instanceof CharSequence) {
+            writeInterned(key.toString());
+            return;
+        }
+        JsonSerializer<Object> serializer = getSerializationContext().getSerializer(key);
+        if (serializer == null) {
+            throw new JsonSerializerNotFoundException(key);
+        }
+        serializer.serialize(this, key);
+    }
+
+    /**
+     * Numbers and booleans get their native form, anything else is javascript source and goes out as {@link #RAW}.
+     */
+    @Override
+    public void writeLiteral(Object value) throws IOException {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            body.writeByte(INT);
+            writeVarLong(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            body.writeByte(DOUBLE);
+            body.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            body.writeByte(((Boolean) value).booleanValue() ? TRUE : FALSE);
+        } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+            // no native form without losing precision.
+            writeBytes(RAW, value.toString());
+        } else {
+            String s = value.toString();
+            if ("null".equals(s)) {
+                body.writeByte(NULL);
+            } else if ("true".equals(s)) {
+                body.writeByte(TRUE);
+            } else if ("false".equals(s)) {
+                body.writeByte(FALSE);
+            } else {
+                writeBytes(RAW, s);
+            }
+        }
+    }
+
+    @Override
+    public void writeString(Object value) throws IOException {
+        String s = value.toString();
+        if (s.length() <= MAX_INTERNED_LENGTH) {
+            writeInterned(s);
+        } else {
+            writeBytes(STRING, s);
+        }
+    }
+
+    @Override
+    public void writeDate(Date value) throws IOException {
+        body.writeByte(DATE);
+        body.writeLong(value.getTime());
+    }
+
+    /**
+     * Write the frame to the target stream.
+     *
+     * Nothing is written if a map or array is still open, which is what happens when serialization fails part way.
+     * The target stream is flushed but not closed, it belongs to the caller.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (depth != 0) {
+            return;
+        }
+        DataOutputStream out = new DataOutputStream(target);
+        out.writeShort(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(buffer.size());
+        buffer.writeTo(out);
+        out.flush();
+    }
+
+    private void writeInterned(String s) throws IOException {
+        Integer index = stringTable.get(s);
+        if (index != null) {
+            body.writeByte(STRING_REF);
+            writeVarInt(index.intValue());
+        } else if (stringTable.size() < MAX_STRING_TABLE_SIZE) {
+            stringTable.put(s, stringTable.size());
+            writeBytes(STRING_DEF, s);
+        } else {
+            writeBytes(STRING, s);
+        }
+    }
+
+    private void writeBytes(byte tag, String s) throws IOException {
+        byte[] bytes = s.getBytes(Charsets.UTF_8);
+        body.writeByte(tag);
+        writeVarInt(bytes.length);
+        body.write(bytes);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            body.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        body.writeByte((int) v);
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        int v = value;
+        while ((v & ~0x7F) != 0) {
+            body.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        body.writeByte(v);
+    }
+}
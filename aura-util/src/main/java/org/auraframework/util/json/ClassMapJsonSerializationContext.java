@@ -26,6 +26,22 @@ import static org.auraframework.util.json.JsonSerializers.STRING;
  */
 public class ClassMapJsonSerializationContext extends BaseJsonSerializationContext {
 
+    /**
+     * Serializers that are decided by the shape of the class alone (arrays and enums), or null
+     * when the factory has to be asked. Avoids the isArray/isEnum checks on every value.
+     */
+    private static final ClassValue<JsonSerializer<?>> INTRINSIC = new ClassValue<JsonSerializer<?>>() {
+        @Override
+        protected JsonSerializer<?> computeValue(Class<?> c) {
+            if (c.isArray()) {
+                return ARRAY;
+            } else if (c.isEnum()) {
+                return STRING;
+            }
+            return null;
+        }
+    };
+
     private final JsonSerializerFactory jsonSerializerFactory;
 
     public ClassMapJsonSerializationContext(JsonSerializerFactory jsonSerializerFactory,
@@ -42,11 +58,9 @@ public class ClassMapJsonSerializationContext extends BaseJsonSerializationConte
         if (o == null) {
             return (JsonSerializer<T>) LITERAL;
         }
-        Class<?> c = o.getClass();
-        if (c.isArray()) {
-            return (JsonSerializer<T>) ARRAY;
-        } else if (c.isEnum()) {
-            return (JsonSerializer<T>) STRING;
+        JsonSerializer<T> s = (JsonSerializer<T>) INTRINSIC.get(o.getClass());
+        if (s != null) {
+            return s;
         }
 
         return jsonSerializerFactory.getSerializer(o);
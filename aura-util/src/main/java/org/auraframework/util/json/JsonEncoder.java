@@ -120,11 +120,13 @@ public class JsonEncoder implements Json {
     private final Map<Object, Integer> actionMap;
     private final Map<Object, Integer> requestMap;
     private int lastRefId = 0;
+    private int referenceHits = 0;
     private final Appendable out;
     private final ArrayDeque<IndentEntry> indentStack = new ArrayDeque<>();
     private final DataOutputStream binaryOutput;
     private CountingOutputStream currentBinaryStream;
     private long currentBinaryStreamLength;
+    private boolean singleLine = false;
 
     /**
      * Create a Json Serialization context object that maintains information
@@ -300,6 +302,21 @@ public class JsonEncoder implements Json {
         return new JsonEncoder(out, null, context);
     }
 
+    /**
+     * Creates a Json instance like {@link #createJsonStream(Appendable, JsonSerializationContext)} that never
+     * writes a line break, whatever the formatting of the context. This lets the caller delimit a sequence of
+     * values with newlines.
+     *
+     * @param out The Appendable to which to write the serialized objects. This must not be null.
+     * @param context The JSON serialization context to use for output
+     * @return A new Json instance that you can use for streaming to the given appendable
+     */
+    public static JsonEncoder createSingleLineJsonStream(@Nonnull Appendable out, JsonSerializationContext context) {
+        JsonEncoder json = new JsonEncoder(out, null, context);
+        json.singleLine = true;
+        return json;
+    }
+
     /**
      * This method is essentially here to provide type-checking for the
      * outermost map.
@@ -355,6 +372,13 @@ public class JsonEncoder implements Json {
         return null;
     }
 
+    /**
+     * @return the number of values written as a reference to an earlier copy rather than in full.
+     */
+    public int getReferenceHits() {
+        return referenceHits;
+    }
+
     /**
      * Push an indent, with a type.
      *
@@ -593,14 +617,16 @@ public class JsonEncoder implements Json {
         }
         ReferenceType rt = serializationContext.refSupport() ? serializer.getReferenceType(value) : ReferenceType.NONE;
         if (rt != ReferenceType.NONE) {
+            ReferenceScope rs = serializer.getReferenceScope(value);
             Integer refId;
-            if ((refId = getRefId(serializer.getReferenceScope(value), value)) != null) {
+            if ((refId = getRefId(rs, value)) != null) {
                 // Output a simple reference
+                referenceHits++;
                 writeMapBegin();
                 writeMapEntry(ApplicationKey.SERIAL_REFID.toString(), refId);
                 writeMapEnd();
             } else {
-                refId = addReference(serializer.getReferenceScope(value), value);
+                refId = addReference(rs, value);
                 // Now manually output this 2-element map to avoid loop
                 writeMapBegin();
                 writeMapEntry(ApplicationKey.SERIAL_ID.toString(), refId);
@@ -900,13 +926,13 @@ public class JsonEncoder implements Json {
     }
 
     private boolean isFormatting() {
-        return serializationContext.format();
+        return !singleLine && serializationContext.format();
     }
 
     private boolean isFormattingRootItems() {
         // Pretty print of collections has been requested and we are at level 1,
         // which means the items of the root collection.
-        return serializationContext.formatRootItems() && indentStack.size() == 1;
+        return !singleLine && serializationContext.formatRootItems() && indentStack.size() == 1;
     }
 
     @Override
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.util.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.auraframework.util.javascript.Literal;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Test {@link BinaryJsonEncoder} by decoding its frames back into plain java values.
+ */
+public class BinaryJsonEncoderTest extends UnitTestCase {
+
+    private static byte[] encode(Object value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryJsonEncoder json = BinaryJsonEncoder.createBinaryStream(out,
+                new DefaultJsonSerializationContext(false, false, true));
+        json.writeValue(value);
+        json.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * A minimal reader for the format, enough to check round trips.
+     */
+    private static class Decoder {
+        private final DataInputStream in;
+        private final List<String> strings = Lists.newArrayList();
+
+        Decoder(byte[] frame) throws IOException {
+            in = new DataInputStream(new ByteArrayInputStream(frame));
+            assertEquals(BinaryJsonEncoder.MAGIC, in.readUnsignedShort());
+            assertEquals(BinaryJsonEncoder.VERSION, in.readUnsignedByte());
+            assertEquals(frame.length - 7, in.readInt());
+        }
+
+        Object read() throws IOException {
+            return read(in.readByte());
+        }
+
+        private Object read(byte tag) throws IOException {
+            switch (tag) {
+            case BinaryJsonEncoder.NULL:
+                return null;
+            case BinaryJsonEncoder.TRUE:
+                return Boolean.TRUE;
+            case BinaryJsonEncoder.FALSE:
+                return Boolean.FALSE;
+            case BinaryJsonEncoder.INT:
+                long v = readVarLong();
+                return (v >>> 1) ^ -(v & 1);
+            case BinaryJsonEncoder.DOUBLE:
+                return in.readDouble();
+            case BinaryJsonEncoder.STRING:
+                return readString();
+            case BinaryJsonEncoder.STRING_DEF:
+                String s = readString();
+                strings.add(s);
+                return s;
+            case BinaryJsonEncoder.STRING_REF:
+                return strings.get((int) readVarLong());
+            case BinaryJsonEncoder.DATE:
+                return new Date(in.readLong());
+            case BinaryJsonEncoder.RAW:
+                return new StringBuilder(readString());
+            case BinaryJsonEncoder.MAP_BEGIN:
+                Map<Object, Object> map = new LinkedHashMap<>();
+                for (byte t = in.readByte(); t != BinaryJsonEncoder.END; t = in.readByte()) {
+                    map.put(read(t), read());
+                }
+                return map;
+            case BinaryJsonEncoder.ARRAY_BEGIN:
+                List<Object> list = new ArrayList<>();
+                for (byte t = in.readByte(); t != BinaryJsonEncoder.END; t = in.readByte()) {
+                    list.add(read(t));
+                }
+                return list;
+            default:
+                throw new IOException("Unknown tag " + tag);
+            }
+        }
+
+        private String readString() throws IOException {
+            byte[] bytes = new byte[(int) readVarLong()];
+            in.readFully(bytes);
+            return new String(bytes, Charsets.UTF_8);
+        }
+
+        private long readVarLong() throws IOException {
+            long v = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = in.readUnsignedByte();
+                v |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return v;
+        }
+    }
+
+    @Test
+    public void testNativeNumbers() throws IOException {
+        assertEquals(123L, new Decoder(encode(123)).read());
+        assertEquals(-5L, new Decoder(encode(-5L)).read());
+        assertEquals(Long.MIN_VALUE, new Decoder(encode(Long.MIN_VALUE)).read());
+        assertEquals(1.5d, new Decoder(encode(1.5d)).read());
+        assertEquals(Boolean.TRUE, new Decoder(encode(true)).read());
+    }
+
+    @Test
+    public void testMapsArraysAndStrings() throws IOException {
+        Map<String, Object> map = Maps.newLinkedHashMap();
+        map.put("name", "markup://ui:button");
+        map.put("list", Lists.newArrayList("a", 1, null, "a"));
+        map.put("date", new Date(1000L));
+        assertEquals(map.toString(), new Decoder(encode(map)).read().toString());
+    }
+
+    @Test
+    public void testRepeatedKeysUseStringTable() throws IOException {
+        List<Map<String, String>> list = Lists.newArrayList();
+        for (int i = 0; i < 50; i++) {
+            Map<String, String> entry = Maps.newHashMap();
+            entry.put("descriptor", "markup://ui:button");
+            list.add(entry);
+        }
+        byte[] frame = encode(list);
+        assertEquals(list, new Decoder(frame).read());
+        // both strings are defined once, every other entry is a map of two references.
+        assertTrue("String table not used, frame was " + frame.length + " bytes", frame.length < 50 * 10);
+        assertTrue(frame.length < JsonEncoder.serialize(list).length() / 4);
+    }
+
+    @Test
+    public void testLiteralsWithoutNativeForm() throws IOException {
+        assertEquals("function(){}", new Decoder(encode(new Literal("function(){}"))).read().toString());
+        assertNull(new Decoder(encode(Literal.NULL)).read());
+    }
+
+    @Test
+    public void testUnbalancedFrameIsNotWritten() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryJsonEncoder json = BinaryJsonEncoder.createBinaryStream(out,
+                new DefaultJsonSerializationContext(false, false, true));
+        json.writeMapBegin();
+        json.writeMapEntry("a", 1);
+        json.close();
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    public void testCommentsAreDroppedWhenFormatting() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryJsonEncoder json = BinaryJsonEncoder.createBinaryStream(out,
+                new DefaultJsonSerializationContext(true, false, true));
+        json.writeArrayBegin();
+        json.writeComment("not in the frame");
+        json.writeArrayEntry("a");
+        json.writeArrayEnd();
+        json.close();
+        assertEquals(Lists.newArrayList("a"),
+                new Decoder(out.toByteArray()).read());
+    }
+
+    @Test
+    public void testTextOutputIsRejected() throws IOException {
+        BinaryJsonEncoder json = BinaryJsonEncoder.createBinaryStream(new ByteArrayOutputStream(),
+                new DefaultJsonSerializationContext(false, false, true));
+        try {
+            json.getAppendable();
+            fail("Expected getAppendable to be rejected");
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            json.writeBinaryStreamBegin(1);
+            fail("Expected binary streams to be rejected");
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
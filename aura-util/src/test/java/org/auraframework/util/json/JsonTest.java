@@ -174,6 +174,40 @@ public class JsonTest extends UnitTestCase {
                 JsonEncoder.serialize(objArray2, false, true));
     }
 
+    @Test
+    public void testReferenceHitsAndClear() throws IOException {
+        JsonIdentitySerializableTest obj1 = new JsonIdentitySerializableTest(1);
+        JsonEncoder json = new JsonEncoder(new StringBuilder(), false, true);
+        json.writeArrayBegin();
+        json.writeArrayEntry(obj1);
+        json.writeArrayEntry(obj1);
+        json.writeArrayEntry(obj1);
+        assertEquals(2, json.getReferenceHits());
+        assertEquals(Integer.valueOf(1), json.getRefId(Serialization.ReferenceScope.ACTION, obj1));
+
+        // an equal but distinct object is not a reference.
+        assertNull(json.getRefId(Serialization.ReferenceScope.ACTION, new JsonIdentitySerializableTest(1)));
+
+        json.clearReferences();
+        assertNull(json.getRefId(Serialization.ReferenceScope.ACTION, obj1));
+        json.writeArrayEntry(obj1);
+        assertEquals(2, json.getReferenceHits());
+        assertEquals(Integer.valueOf(2), json.getRefId(Serialization.ReferenceScope.ACTION, obj1));
+    }
+
+    @Test
+    public void testSingleLineStreamIgnoresFormatting() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        JsonEncoder json = JsonEncoder.createSingleLineJsonStream(sb,
+                new DefaultJsonSerializationContext(true, false, false));
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("a", Lists.newArrayList(1, 2));
+        m.put("b", "c");
+        json.writeValue(m);
+        json.writeValue(m);
+        assertEquals("{\"a\":[1,2],\"b\":\"c\"}{\"a\":[1,2],\"b\":\"c\"}", sb.toString());
+    }
+
     @Test
     public void testWriteMapBegin() throws IOException {
         JsonEncoder json = new JsonEncoder(new StringBuilder(), false, false);
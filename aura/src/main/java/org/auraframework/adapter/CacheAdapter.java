@@ -15,8 +15,23 @@
  */
 package org.auraframework.adapter;
 
+import org.auraframework.instance.Action;
+
 /**
+ * Hooks for the server side caches that depend on who is asking.
+ *
+ * Aura has no implementation of this, without one storable actions are never cached on the server.
  */
 public interface CacheAdapter extends AuraAdapter {
 
+    /**
+     * Get the partition that a storable action result is cached in.
+     *
+     * Results are only shared between requests with the same partition, so this should be whatever the result
+     * depends on besides the action parameters, typically a user or tenant id.
+     *
+     * @param action the storable action about to be run, in the context of the current request.
+     * @return the partition key, or null if the result of this action must not be cached.
+     */
+    String getActionCachePartition(Action action);
 }
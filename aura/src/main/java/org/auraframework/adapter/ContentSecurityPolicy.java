@@ -130,4 +130,16 @@ public interface ContentSecurityPolicy {
 
     /** Gets the URL for reporting. */
     String getReportUrl();
+
+    /**
+     * Gets a key under which the headers built from this policy can be reused. They are reused for every request
+     * to the same top level descriptor that gets a policy with an equal key, so the key must cover whatever the
+     * policy depends on in the request. Policies that depend on anything else, such as the current context, must
+     * return {@code null} to be asked again on every request.
+     *
+     * @return the cache key, or {@code null}, the default, if the headers can't be reused.
+     */
+    default String getCacheKey() {
+        return null;
+    }
 }
@@ -55,6 +55,17 @@ public interface ContextAdapter extends AuraAdapter {
             Map<String, GlobalValueProvider> globalProviders,
             DefDescriptor<? extends BaseComponentDef> appDesc);
 
+    /**
+     * Make an existing context current in this thread.
+     *
+     * This is for work done on another thread on behalf of the request that owns the context. The context is shared,
+     * not copied, so it must be released with {@link #release()} before the owning request ends.
+     *
+     * @param context the context established by the owning request.
+     * @return the context.
+     */
+    AuraContext attach(AuraContext context);
+
     /**
      * is a context established in this thread?.
      *
@@ -41,6 +41,8 @@ public class DefaultContentSecurityPolicy implements ContentSecurityPolicy {
 
     private boolean allowInline;
 
+    private final boolean cacheable;
+
     /**
      * Returns the content security report URL.
      */
@@ -55,7 +57,19 @@ public class DefaultContentSecurityPolicy implements ContentSecurityPolicy {
      * @param inline whether to allow inline script and style. It's better not to, but legacy is what legacy is.
      */
     public DefaultContentSecurityPolicy(boolean inline) {
+        this(inline, false);
+    }
+
+    /**
+     * Creates a default policy.
+     *
+     * @param inline whether to allow inline script and style. It's better not to, but legacy is what legacy is.
+     * @param cacheable whether the headers of this policy can be reused, see {@link #getCacheKey()}. Only pass true
+     *            if the policy does not depend on the request, which a subclass that overrides a term may.
+     */
+    public DefaultContentSecurityPolicy(boolean inline, boolean cacheable) {
         allowInline = inline;
+        this.cacheable = cacheable;
     }
 
     /**
@@ -153,6 +167,18 @@ public class DefaultContentSecurityPolicy implements ContentSecurityPolicy {
         return sameOrigin;
     }
 
+    /**
+     * The default policy depends on nothing but whether it allows inline, so it has a key if it was created as
+     * cacheable.
+     */
+    @Override
+    public String getCacheKey() {
+        if (!cacheable) {
+            return null;
+        }
+        return allowInline ? "default-inline" : "default";
+    }
+
     @Override
     public String getCspHeaderValue() {
         String header = allowInline ? inlineHeader : defaultHeader;
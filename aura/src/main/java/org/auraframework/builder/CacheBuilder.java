@@ -15,6 +15,8 @@
  */
 package org.auraframework.builder;
 
+import java.util.concurrent.TimeUnit;
+
 import org.auraframework.adapter.LoggingAdapter;
 import org.auraframework.cache.Cache;
 
@@ -80,6 +82,16 @@ public interface CacheBuilder<K, T> {
 	 */
 	CacheBuilder<K, T> setConcurrencyLevel(int concurrencyLevel);
 
+	/**
+	 * Set a time after which entries expire, counted from when they were
+	 * last written. Entries never expire by default.
+	 * 
+	 * @param duration how long an entry lives
+	 * @param unit the unit of duration
+	 * @return the same CacheBuilder with this property set
+	 */
+	CacheBuilder<K, T> setExpireAfterWrite(long duration, TimeUnit unit);
+
 	Cache<K, T> build();
 
 	/** Associates a human-readable name with the cache */
@@ -25,6 +25,7 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.http.HttpHeaders;
 import org.auraframework.adapter.ServletUtilAdapter;
 import org.auraframework.http.RequestParam.StringParam;
 import org.auraframework.system.AuraContext;
@@ -93,6 +94,32 @@ public abstract class AuraBaseServlet extends HttpServlet {
         return servletUtilAdapter.getContentType(format);
     }
 
+    /**
+     * Check whether the client takes gzipped content.
+     *
+     * @param request the request, may be null.
+     */
+    public static boolean acceptsGzip(HttpServletRequest request) {
+        String accept = request == null ? null : request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (accept == null) {
+            return false;
+        }
+        for (String entry : accept.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim();
+            if ("gzip".equalsIgnoreCase(coding) || "*".equals(coding)) {
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim().replace(" ", "");
+                    if (param.startsWith("q=") && param.substring(2).matches("0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public void init(ServletConfig config) throws ServletException {
         super.init(config);
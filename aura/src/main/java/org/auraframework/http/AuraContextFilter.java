@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import javax.inject.Inject;
 import javax.servlet.Filter;
@@ -29,6 +30,7 @@ import javax.servlet.FilterConfig;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -46,6 +48,7 @@ import org.auraframework.def.DefDescriptor.DefType;
 import org.auraframework.http.RequestParam.EnumParam;
 import org.auraframework.http.RequestParam.InvalidParamException;
 import org.auraframework.http.RequestParam.StringParam;
+import org.auraframework.service.CachingService;
 import org.auraframework.service.ContextService;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.service.LoggingService;
@@ -62,6 +65,27 @@ import org.springframework.web.context.support.SpringBeanAutowiringSupport;
 import com.google.common.collect.Maps;
 
 public class AuraContextFilter implements Filter {
+    /**
+     * Request attribute holding resource output found in the cache, in which case no context is established.
+     */
+    public static final String CACHED_RESOURCE = "aura.cachedResource";
+
+    /**
+     * Request attribute holding the application that {@link #CACHED_RESOURCE} belongs to.
+     */
+    public static final String CACHED_RESOURCE_APP = "aura.cachedResourceApp";
+
+    /**
+     * Request attribute holding the {@link ResourceCacheKey} that {@link #CACHED_RESOURCE} was found under.
+     */
+    public static final String CACHED_RESOURCE_KEY = "aura.cachedResourceKey";
+
+    /**
+     * Request attribute holding the parsed aura.context, so that it is only read once per request.
+     */
+    public static final String CONTEXT_CONFIG = "aura.contextConfig";
+    private static final String CONTEXT_CONFIG_SOURCE = "aura.contextConfigSource";
+
     public static final EnumParam<AuraContext.Mode> mode = new EnumParam<>(AuraServlet.AURA_PREFIX
             + "mode", false, AuraContext.Mode.class);
 
@@ -76,6 +100,8 @@ public class AuraContextFilter implements Filter {
     private static final StringParam num = new StringParam(AuraServlet.AURA_PREFIX + "num", 0, false);
     private static final StringParam contextConfig = new StringParam(AuraServlet.AURA_PREFIX + "context", 0, false);
 
+    private static final Pattern CHUNK_HASH = Pattern.compile("[0-9a-f]+");
+
     private String componentDir = null;
 
     private static final Log LOG = LogFactory.getLog(AuraContextFilter.class);
@@ -90,6 +116,7 @@ public class AuraContextFilter implements Filter {
     private ConfigAdapter configAdapter;
     protected SerializationService serializationService;
     private LocalizationAdapter localizationAdapter;
+    private CachingService cachingService;
 
     @Inject
     public void setContextService(ContextService service) {
@@ -126,6 +153,11 @@ public class AuraContextFilter implements Filter {
         this.localizationAdapter = localizationAdapter;
     }
 
+    @Inject
+    public void setCachingService(CachingService cachingService) {
+        this.cachingService = cachingService;
+    }
+
     public AuraTestFilter getAuraTestFilter() {
         return testFilter;
     }
@@ -139,6 +171,16 @@ public class AuraContextFilter implements Filter {
             return;
         }
 
+        if (ResourceCacheKey.CHUNKS && ResourceCacheKey.CHUNK.equals(getResourceName((HttpServletRequest) req))) {
+            serveChunk((HttpServletRequest) req, (HttpServletResponse) res, chain);
+            return;
+        }
+
+        if (ResourceCacheKey.ENABLED && findCachedResource((HttpServletRequest) req)) {
+            chain.doFilter(req, res);
+            return;
+        }
+
         try {
             startContext(req, res, chain);
             HttpServletRequest request = (HttpServletRequest) req;
@@ -154,7 +196,9 @@ public class AuraContextFilter implements Filter {
             return;
         } finally {
             try {
-                if (loggingService != null) {
+                // an async POST is still using the context on the pool, which logs and ends it with the response,
+                // so this thread only lets go of it.
+                if (loggingService != null && req.getAttribute(AuraServlet.ASYNC_POST) == null) {
                     try {
                         loggingService.setValue(LoggingService.STATUS,
                                 String.valueOf(((HttpServletResponse) res).getStatus()));
@@ -250,6 +294,177 @@ public class AuraContextFilter implements Filter {
         return context;
     }
 
+    /**
+     * Look for a cached app.js for this request.
+     *
+     * Only the fields that make up its {@link ResourceCacheKey} are read from the request, which is a lot cheaper than
+     * starting a context. Anything unusual (a conditional request, a stale framework, test modes, a malformed context)
+     * is left to the full request.
+     *
+     * @return true if the output was found and attached to the request.
+     */
+    private boolean findCachedResource(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod()) || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null
+                || request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            return false;
+        }
+        if (!"app.js".equals(getResourceName(request))) {
+            return false;
+        }
+        try {
+            Map<String, Object> configMap = getConfigMap(request);
+            if (configMap == null) {
+                return false;
+            }
+            Object fwuid = configMap.get("fwuid");
+            Object loaded = configMap.get("loaded");
+            if (!configAdapter.getAuraFrameworkNonce().equals(fwuid) || !(loaded instanceof Map)) {
+                return false;
+            }
+            String appName = app.get(request, null);
+            if (appName == null) {
+                appName = (String) configMap.get("app");
+            }
+            if (appName == null) {
+                return false;
+            }
+            Mode m = getMode(request, configMap);
+            if (m.isTestMode() || m.isDevMode()) {
+                return false;
+            }
+            DefDescriptor<ApplicationDef> appDesc = definitionService.getDefDescriptor(appName, ApplicationDef.class);
+            Object uid = ((Map<?, ?>) loaded).get(DefType.APPLICATION + "@" + appDesc.getQualifiedName());
+            if (!(uid instanceof String) || hasEarlierAppJs(request, appDesc.getQualifiedName(), (String) uid)) {
+                return false;
+            }
+            Authentication a = access.get(request, Authentication.AUTHENTICATED);
+            String key = ResourceCacheKey.appJs(m, a, appDesc.getQualifiedName(), (String) uid, (String) fwuid);
+            String cached = cachingService.getAltStringsCache().getIfPresent(key);
+            if (cached == null) {
+                return false;
+            }
+            request.setAttribute(CACHED_RESOURCE, cached);
+            request.setAttribute(CACHED_RESOURCE_APP, appDesc);
+            request.setAttribute(CACHED_RESOURCE_KEY, key);
+            return true;
+        } catch (RuntimeException e) {
+            // let the full request report it.
+            return false;
+        }
+    }
+
+    /**
+     * Whether the browser has the app.js of another uid, which AppJs brings up to date with a delta instead.
+     */
+    private boolean hasEarlierAppJs(HttpServletRequest request, String appName, String uid) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        String name = ResourceCacheKey.appJsCookie(appName);
+        for (Cookie cookie : cookies) {
+            if (name.equals(cookie.getName())) {
+                return !uid.equals(cookie.getValue());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The name of the resource requested through /l/, or null if this is not a resource request.
+     */
+    private String getResourceName(HttpServletRequest request) {
+        String uri = (String) request.getAttribute(AuraResourceServlet.ORIG_REQUEST_URI);
+        if (uri == null) {
+            return null;
+        }
+        int qIndex = uri.indexOf('?');
+        if (qIndex > -1) {
+            uri = uri.substring(0, qIndex);
+        }
+        return uri.substring(uri.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Serve a chunk of app.js, which only needs a context if it has to be made again.
+     *
+     * A chunk URL is named by the hash of its content, which is also its ETag. A chunk that is not in the cache (any
+     * more) is made again from the app it came from, and is only not found when that is not known either. Once the
+     * chunk is known, a revalidation is answered with a 304, since its content cannot change.
+     */
+    private void serveChunk(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        String hash = request.getParameter(AuraResourceRewriteFilter.LOOKUP_PARAM);
+        if (hash == null || !CHUNK_HASH.matcher(hash).matches()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        boolean cached = findChunk(request, hash);
+        Map<String, String> source = null;
+        if (!cached) {
+            source = cachingService.getDefinitionHashesCache().getIfPresent(ResourceCacheKey.chunkSource(hash));
+            if (source == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+        }
+        String etag = ResourceCacheKey.chunkEtag(hash);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null ? ResourceCacheKey.matchesEtag(ifNoneMatch, etag)
+                : request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        if (cached) {
+            chain.doFilter(request, response);
+            return;
+        }
+        try {
+            startChunkContext(request, source);
+            chain.doFilter(request, response);
+        } finally {
+            try {
+                loggingService.flush();
+            } finally {
+                endContext();
+            }
+        }
+    }
+
+    /**
+     * @return true if the chunk was found and attached to the request.
+     */
+    private boolean findChunk(HttpServletRequest request, String hash) {
+        String key = ResourceCacheKey.chunk(hash);
+        String cached = cachingService.getAltStringsCache().getIfPresent(key);
+        if (cached == null) {
+            return false;
+        }
+        request.setAttribute(CACHED_RESOURCE, cached);
+        request.setAttribute(CACHED_RESOURCE_KEY, key);
+        return true;
+    }
+
+    /**
+     * Start the context of the app that a chunk came from, for the chunk to be made again.
+     *
+     * A chunk request carries no context of its own, the chunk source has everything it depends on.
+     */
+    private AuraContext startChunkContext(HttpServletRequest request, Map<String, String> source) {
+        DefDescriptor<ApplicationDef> appDesc = definitionService.getDefDescriptor(
+                source.get(ResourceCacheKey.CHUNK_APP), ApplicationDef.class);
+        AuraContext context = contextService.startContext(Mode.valueOf(source.get(ResourceCacheKey.CHUNK_MODE)),
+                Format.JS, Authentication.valueOf(source.get(ResourceCacheKey.CHUNK_ACCESS)), appDesc);
+        String contextPath = request.getContextPath();
+        if (contextPath == null || "/".equals(contextPath)) {
+            contextPath = "";
+        }
+        context.setContextPath(contextPath);
+        context.setFrameworkUID(configAdapter.getAuraFrameworkNonce());
+        return context;
+    }
+
     /**
      * Pull in the map of loaded defDescriptors and uids from the context.
      */
@@ -295,13 +510,20 @@ public class AuraContextFilter implements Filter {
     @SuppressWarnings("unchecked")
     private Map<String, Object> getConfigMap(HttpServletRequest request) {
         Map<String, Object> configMap = null;
-        String config = contextConfig.get(request);
+        String source = contextConfig.get(request);
+        if (source != null && source.equals(request.getAttribute(CONTEXT_CONFIG_SOURCE))) {
+            // already read, and not forwarded with another context since.
+            return (Map<String, Object>) request.getAttribute(CONTEXT_CONFIG);
+        }
+        String config = source;
         if (!AuraTextUtil.isNullEmptyOrWhitespace(config)) {
             if (config.startsWith(AuraTextUtil.urlencode("{"))) {
                 // Decode encoded context json. Serialized AuraContext json always starts with "{"
                 config = AuraTextUtil.urldecode(config);
             }
             configMap = (Map<String, Object>) new JsonReader().read(config);
+            request.setAttribute(CONTEXT_CONFIG, configMap);
+            request.setAttribute(CONTEXT_CONFIG_SOURCE, source);
         }
         return configMap;
     }
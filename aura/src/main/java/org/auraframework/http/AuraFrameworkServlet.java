@@ -15,10 +15,17 @@
  */
 package org.auraframework.http;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 import javax.inject.Inject;
 import javax.servlet.ServletException;
@@ -42,8 +49,147 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
 
     public static final String RESOURCES_FORMAT = "%s/auraFW/resources/%s/%s";
 
+    /**
+     * Total size in bytes of the framework files kept in memory for the current nonce, 0 to turn the cache off.
+     */
+    private static final long CACHE_SIZE = Long.getLong("aura.framework.cacheSize", 32L * 1024 * 1024);
+
+    /**
+     * Larger files are always streamed, without being read into memory first.
+     */
+    private static final int MAX_CACHED_FILE_SIZE = 4 * 1024 * 1024;
+
     private ConfigAdapter configAdapter;
-    
+
+    private transient volatile ResourceCache resourceCache;
+
+    /**
+     * A framework file held in memory, with everything needed to answer for it.
+     */
+    private static final class CachedResource {
+        private final String mimeType;
+        private final byte[] bytes;
+        private final byte[] gzipped;
+
+        private CachedResource(String mimeType, byte[] bytes, byte[] gzipped) {
+            this.mimeType = mimeType;
+            this.bytes = bytes;
+            this.gzipped = gzipped;
+        }
+    }
+
+    /**
+     * Framework files for one nonce. Files under a nonce never change, so entries are never invalidated, the whole
+     * cache is replaced when the nonce changes.
+     */
+    private static final class ResourceCache {
+        private final String nonce;
+        private final ConcurrentMap<String, CachedResource> entries = new ConcurrentHashMap<>();
+        private final Set<String> tooLarge = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        private final AtomicLong size = new AtomicLong();
+
+        private ResourceCache(String nonce) {
+            this.nonce = nonce;
+        }
+
+        /**
+         * @return the size of the largest file that can still be cached under a key, or 0 if none can.
+         */
+        private long getLimit(String key) {
+            if (tooLarge.contains(key)) {
+                return 0;
+            }
+            return Math.max(0, Math.min(MAX_CACHED_FILE_SIZE, CACHE_SIZE - size.get()));
+        }
+
+        private void put(String key, CachedResource resource) {
+            long length = resource.bytes.length + (resource.gzipped != null ? resource.gzipped.length : 0);
+            if (size.addAndGet(length) > CACHE_SIZE) {
+                size.addAndGet(-length);
+                return;
+            }
+            if (entries.putIfAbsent(key, resource) != null) {
+                size.addAndGet(-length);
+            }
+        }
+    }
+
+    /**
+     * Get the cache for the current nonce, replacing a cache for a previous one.
+     */
+    private ResourceCache getResourceCache(String nonce) {
+        ResourceCache cache = resourceCache;
+        if (cache == null || !cache.nonce.equals(nonce)) {
+            cache = new ResourceCache(nonce);
+            resourceCache = cache;
+        }
+        return cache;
+    }
+
+    /**
+     * Read a whole resource, unless it is larger than a limit.
+     *
+     * @return true if the whole resource was read, false if it is larger, in which case out holds the start of it.
+     */
+    private static boolean readAtMost(InputStream in, ByteArrayOutputStream out, long limit) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            if (out.size() > limit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Make a resource held in memory, along with its gzipped form if it is text that compresses.
+     */
+    private static CachedResource toResource(byte[] bytes, String mimeType) throws IOException {
+        byte[] gzipped = null;
+        if (mimeType.startsWith("text/") || mimeType.endsWith("javascript") || mimeType.endsWith("json")
+                || mimeType.endsWith("xml")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 3 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(bytes);
+            }
+            if (compressed.size() < bytes.length) {
+                gzipped = compressed.toByteArray();
+            }
+        }
+        return new CachedResource(mimeType, bytes, gzipped);
+    }
+
+    private void writeResource(HttpServletRequest request, HttpServletResponse response, CachedResource resource)
+            throws IOException {
+        response.setContentType(resource.mimeType);
+        if (resource.mimeType.startsWith("text/")) {
+            response.setCharacterEncoding(AuraBaseServlet.UTF_ENCODING);
+        }
+        servletUtilAdapter.setLongCache(response);
+        byte[] body = resource.bytes;
+        if (resource.gzipped != null) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(request)) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                body = resource.gzipped;
+            }
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private String getMimeType(String path) {
+        // handle any MIME content type, using only file name (not contents)
+        String mimeType = mimeTypesMap.getContentType(path);
+
+        if (mimeType.equals("application/octet-stream") || mimeType.equals(JAVASCRIPT_CONTENT_TYPE)) /* unidentified */{
+            mimeType = JAVASCRIPT_CONTENT_TYPE;
+        }
+        return mimeType;
+    }
+
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         ResourceLoader resourceLoader = configAdapter.getResourceLoader();
@@ -65,11 +211,6 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
         InputStream in = null;
         try {
 
-            //
-            // Careful with race conditions here, we should only call regenerateAuraJS
-            // _before_ we get the nonce.
-            //
-            configAdapter.regenerateAuraJS();
             // framework uid is combination of aura js and resources uid
             String currentUid = configAdapter.getAuraFrameworkNonce();
             // match entire path once, looking for root, optional nonce, and
@@ -131,6 +272,17 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
             }
 
             boolean isProduction = configAdapter.isProduction();
+            ResourceCache cache = null;
+            String cacheKey = null;
+            if (matchedUid && CACHE_SIZE > 0) {
+                cache = getResourceCache(currentUid);
+                cacheKey = (isProduction ? "PROD:" : "") + root + file;
+                CachedResource cached = cache.entries.get(cacheKey);
+                if (cached != null) {
+                    writeResource(request, response, cached);
+                    return;
+                }
+            }
             StaticResource staticResource = new FileStaticResource(file, format, nonceUid, isProduction, resourceLoader);
 
             //
@@ -161,11 +313,21 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
                 return;
             }
 
-            // handle any MIME content type, using only file name (not contents)
-            String mimeType = mimeTypesMap.getContentType(path);
-
-            if (mimeType.equals("application/octet-stream") || mimeType.equals(JAVASCRIPT_CONTENT_TYPE)) /* unidentified */{
-                mimeType = JAVASCRIPT_CONTENT_TYPE;
+            String mimeType = getMimeType(path);
+            ByteArrayOutputStream head = null;
+            long limit = cache != null ? cache.getLimit(cacheKey) : 0;
+            if (limit > 0) {
+                // the nonce matched, so this is the file for good, keep it if it is small enough.
+                head = new ByteArrayOutputStream((int) Math.min(limit + 1, 64 * 1024));
+                if (readAtMost(in, head, limit)) {
+                    CachedResource resource = toResource(head.toByteArray(), mimeType);
+                    cache.put(cacheKey, resource);
+                    writeResource(request, response, resource);
+                    return;
+                }
+                if (limit == MAX_CACHED_FILE_SIZE) {
+                    cache.tooLarge.add(cacheKey);
+                }
             }
             response.setContentType(mimeType);
             if (mimeType.startsWith("text/")) {
@@ -197,6 +359,10 @@ public class AuraFrameworkServlet extends AuraBaseServlet {
                 servletUtilAdapter.setShortCache(response);
             }
 
+            if (head != null) {
+                // the start of a file that turned out too large to cache.
+                head.writeTo(response.getOutputStream());
+            }
             IOUtil.copyStream(in, response.getOutputStream());
         } finally {
             if (in != null) {
@@ -18,16 +18,23 @@ package org.auraframework.http;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.http.HttpHeaders;
+import org.auraframework.adapter.ConfigAdapter;
+import org.auraframework.def.DefDescriptor;
 import org.auraframework.service.ContextService;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraResource;
+import org.auraframework.system.Client;
+import org.auraframework.util.AuraTextUtil;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 
 /**
@@ -47,9 +54,21 @@ public class AuraResourceServlet extends AuraBaseServlet {
     private static final long serialVersionUID = -3642790050433142397L;
     public static final String ORIG_REQUEST_URI = "aura.origRequestURI";
 
+    /**
+     * Request attribute holding the ETag of the response, set by resources once they know it can be cached.
+     */
+    public static final String RESOURCE_ETAG = "aura.resourceETag";
+
+    private static final String SVG = "resources.svg";
+    private static final String LOOKUP = AURA_PREFIX + "lookup";
+    private static final Set<String> ETAG_RESOURCES = ImmutableSet.of("app.js", "appdelta.js", "app.css",
+            "inline.js", "bootstrap.js", SVG);
+    private static final Set<String> RENDERED_RESOURCES = ImmutableSet.of("inline.js", "bootstrap.js");
+
     private final Map<String,AuraResource> nameToResource = Maps.newHashMap();
 
     private ContextService contextService;
+    private ConfigAdapter configAdapter;
     
     private void addResource(AuraResource resource) {
         String name = resource.getName();
@@ -90,7 +109,6 @@ public class AuraResourceServlet extends AuraBaseServlet {
     @Override
     public void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         response.setCharacterEncoding(AuraBaseServlet.UTF_ENCODING);
-        AuraContext context = contextService.getCurrentContext();
         AuraResource resource = findResource((String) request.getAttribute(ORIG_REQUEST_URI));
         if (resource == null) {
             servletUtilAdapter.send404(getServletContext(), request, response);
@@ -99,12 +117,99 @@ public class AuraResourceServlet extends AuraBaseServlet {
         if (servletUtilAdapter.resourceServletGetPre(request, response, resource)) {
             return;
         }
+
+        // a cached resource was found by the context filter, and there is no context for this request.
+        String cached = (String) request.getAttribute(AuraContextFilter.CACHED_RESOURCE);
+        AuraContext context = null;
+        DefDescriptor<?> app;
+        if (cached != null) {
+            app = (DefDescriptor<?>) request.getAttribute(AuraContextFilter.CACHED_RESOURCE_APP);
+        } else {
+            context = contextService.getCurrentContext();
+            app = context.getApplicationDescriptor();
+        }
+
+        String etag = getETag(request, resource, context, app);
+        if (etag != null) {
+            if (isNotModified(request, resource, etag)) {
+                response.setHeader(HttpHeaders.ETAG, etag);
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+            request.setAttribute(RESOURCE_ETAG, etag);
+        }
+
         resource.setContentType(response);
+        if (cached != null) {
+            servletUtilAdapter.setCSPHeaders(app, request, response);
+            servletUtilAdapter.setLongCache(response);
+            if (etag != null) {
+                response.setHeader(HttpHeaders.ETAG, etag);
+            }
+            resource.writeCached(request, response, cached);
+            return;
+        }
+
         servletUtilAdapter.setCSPHeaders(context.getApplicationDescriptor(), request, response);
 
         resource.write(request, response, context);
     }
 
+    /**
+     * A strong ETag for the response.
+     *
+     * It is made from the application and framework uids that the client says it has, its client type and style
+     * context, so it can be checked before any definition is looked at. Those only identify the response when the
+     * framework uid is current and nothing is being recompiled, so dev and test modes never get one. SVGs from a
+     * lookup are not part of the application and keep their own ETag.
+     *
+     * @param context the context, or null if the resource was found in the cache without one.
+     * @return the ETag, or null if the response is not identified by the request.
+     */
+    protected String getETag(HttpServletRequest request, AuraResource resource, AuraContext context,
+            DefDescriptor<?> app) {
+        String name = resource.getName();
+        if (app == null || !ETAG_RESOURCES.contains(name)
+                || (context != null && (context.isDevMode() || context.isTestMode()))
+                || (SVG.equals(name) && !AuraTextUtil.isNullEmptyOrWhitespace(request.getParameter(LOOKUP)))) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> config = (Map<String, Object>) request.getAttribute(AuraContextFilter.CONTEXT_CONFIG);
+        if (config == null || !(config.get("loaded") instanceof Map)) {
+            return null;
+        }
+        Object appUid = ((Map<?, ?>) config.get("loaded")).get(app.getDefType() + "@" + app.getQualifiedName());
+        Object fwuid = config.get("fwuid");
+        if (appUid == null || !configAdapter.getAuraFrameworkNonce().equals(fwuid)) {
+            return null;
+        }
+        String locale = null;
+        if (context != null && RENDERED_RESOURCES.contains(name)) {
+            locale = request.getHeader(HttpHeaders.ACCEPT_LANGUAGE) + "|" + configAdapter.getCurrentTimezone();
+        }
+        String client = new Client(request.getHeader(HttpHeaders.USER_AGENT)).getType().name();
+        return ResourceCacheKey.etag((String) request.getAttribute(ORIG_REQUEST_URI), appUid.toString(),
+                (String) fwuid, client, config.get("styleContext"), locale);
+    }
+
+    /**
+     * Check If-None-Match against the ETag of the response, or of its gzipped variant.
+     */
+    private boolean isNotModified(HttpServletRequest request, AuraResource resource, String etag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null || (SVG.equals(resource.getName()) && request.getHeader(HttpHeaders.REFERER) == null)) {
+            // an svg fetched directly is always downloaded.
+            return false;
+        }
+        return ResourceCacheKey.matchesEtag(ifNoneMatch, etag);
+    }
+
+    @Inject
+    public void setConfigAdapter(ConfigAdapter configAdapter) {
+        this.configAdapter = configAdapter;
+    }
+
     @Inject
     public void setContextService(ContextService contextService) {
         this.contextService = contextService;
@@ -22,8 +22,17 @@ import java.net.URI;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -57,9 +66,11 @@ import org.auraframework.throwable.AuraRuntimeException;
 import org.auraframework.throwable.ClientOutOfSyncException;
 import org.auraframework.throwable.SystemErrorException;
 import org.auraframework.throwable.quickfix.QuickFixException;
+import org.auraframework.util.json.BinaryJsonEncoder;
 import org.auraframework.util.json.JsonStreamReader.JsonParseException;
 
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * The servlet for initialization and actions in Aura.
@@ -103,6 +114,12 @@ public class AuraServlet extends AuraBaseServlet {
     public final static String AURA_PREFIX = "aura.";
     private final static String CSRF_PROTECT = "while(1);\n";
 
+    /**
+     * Content type of the line delimited action response, see {@link ServerService#runStreaming}. Only used when
+     * {@link #STREAMING_ACTIONS_PROPERTY} is set.
+     */
+    public final static String STREAMING_CONTENT_TYPE = "application/x-ndjson";
+
     /**
      * "Long" pages (such as resources and cached HTML templates) expire in 45 days. We also use this to "pre-expire"
      * no-cache pages, setting their expiration a month and a half into the past for user agents that don't understand
@@ -129,10 +146,72 @@ public class AuraServlet extends AuraBaseServlet {
     private ServerService serverService;
     private ManifestUtil manifestUtil;
 
+    /**
+     * The number of threads for running action POSTs asynchronously. Without it, or if the servlet and its filters
+     * are not async-supported, actions run on the container thread.
+     */
+    private static final String ASYNC_THREADS_PROPERTY = "aura.servlet.asyncThreads";
+
+    /**
+     * The time budget of a request in milliseconds, see the server service. An async POST times out once the budget
+     * is used up and the response has had {@link #ASYNC_GRACE_MILLIS} more to be written. Without a budget, the
+     * container default applies.
+     */
+    private static final String REQUEST_TIMEOUT_PROPERTY = "aura.request.timeout";
+
+    private static final long ASYNC_GRACE_MILLIS = 5000;
+
+    /**
+     * Allow clients to ask for action responses in the binary format of BinaryJsonEncoder. The framework javascript
+     * has no decoder for it, so this is off unless a client that brings its own decoder is in play.
+     */
+    private static final String BINARY_ACTIONS_PROPERTY = "aura.servlet.binaryActions";
+
+    /**
+     * Allow clients to ask for action responses one line per action. The framework javascript reads the whole
+     * response as one value, so this is off unless a client that reads the lines is in play.
+     */
+    private static final String STREAMING_ACTIONS_PROPERTY = "aura.servlet.streamingActions";
+
+    /**
+     * Set on a request whose actions were handed to the async pool, so that the context filter leaves the context
+     * and the logging to the pool thread.
+     */
+    public static final String ASYNC_POST = "aura.asyncPost";
+
+    private ThreadPoolExecutor asyncExecutor;
+
+    private long asyncTimeout;
+
+    private boolean binaryActions;
+
+    private boolean streamingActions;
+
     @Override
     public void init(ServletConfig config) throws ServletException {
         super.init(config);
+        binaryActions = Boolean.getBoolean(BINARY_ACTIONS_PROPERTY);
+        streamingActions = Boolean.getBoolean(STREAMING_ACTIONS_PROPERTY);
         manifestUtil = new ManifestUtil(definitionService, contextService, configAdapter);
+        int threads = Integer.getInteger(ASYNC_THREADS_PROPERTY, 0);
+        if (threads > 0) {
+            asyncExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(threads * 4),
+                    new ThreadFactoryBuilder().setNameFormat("aura-post-%d").setDaemon(true).build());
+            asyncExecutor.allowCoreThreadTimeOut(true);
+            long requestTimeout = Long.getLong(REQUEST_TIMEOUT_PROPERTY, 0);
+            if (requestTimeout > 0) {
+                asyncTimeout = requestTimeout + ASYNC_GRACE_MILLIS;
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (asyncExecutor != null) {
+            asyncExecutor.shutdown();
+        }
+        super.destroy();
     }
 
     /**
@@ -414,7 +493,6 @@ public class AuraServlet extends AuraBaseServlet {
             throws ServletException, IOException {
         AuraContext context = contextService.getCurrentContext();
         response.setCharacterEncoding(UTF_ENCODING);
-        boolean written = false;
 
         servletUtilAdapter.setNoCache(response);
 
@@ -424,6 +502,155 @@ public class AuraServlet extends AuraBaseServlet {
         if (servletUtilAdapter.actionServletPostPre(request, response)) {
             return;
         }
+        if (asyncExecutor != null && request.isAsyncSupported()) {
+            AsyncContext async = request.startAsync();
+            if (asyncTimeout > 0) {
+                async.setTimeout(asyncTimeout);
+            }
+            AsyncPost post = new AsyncPost(async, context);
+            async.addListener(post);
+            request.setAttribute(ASYNC_POST, Boolean.TRUE);
+            try {
+                asyncExecutor.execute(post);
+                return;
+            } catch (RejectedExecutionException ree) {
+                // the pool is full, so this thread does the work after all.
+                request.removeAttribute(ASYNC_POST);
+                try {
+                    runActions(request, response, context);
+                } finally {
+                    post.completeInline();
+                }
+                return;
+            }
+        }
+        runActions(request, response, context);
+    }
+
+    /**
+     * The actions of a POST, run on an async pool thread.
+     *
+     * The context filter leaves the context of an async POST alone, so the context is attached to the pool thread
+     * here, with a logging context of its own, and both are ended once the response is done. A POST that times out
+     * before it gets a thread is answered with a 503 and never run, but is still logged once it gets one. A POST
+     * that times out while it runs is left to finish, as the pool thread is still writing the response.
+     */
+    private class AsyncPost implements Runnable, AsyncListener {
+        private static final int PENDING = 0;
+        private static final int RUNNING = 1;
+        private static final int TIMED_OUT = 2;
+
+        private final AsyncContext async;
+        private final AuraContext context;
+        private final String method;
+        private final String uri;
+        private final String query;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        private AsyncPost(AsyncContext async, AuraContext context) {
+            HttpServletRequest request = (HttpServletRequest) async.getRequest();
+            this.async = async;
+            this.context = context;
+            this.method = request.getMethod();
+            this.uri = request.getRequestURI();
+            this.query = request.getQueryString();
+        }
+
+        @Override
+        public void run() {
+            boolean started = state.compareAndSet(PENDING, RUNNING);
+            HttpServletResponse response = (HttpServletResponse) async.getResponse();
+            int status = HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+            contextService.attachContext(context);
+            try {
+                loggingService.setValue(LoggingService.REQUEST_METHOD, method);
+                loggingService.setValue(LoggingService.AURA_REQUEST_URI, uri);
+                loggingService.setValue(LoggingService.AURA_REQUEST_QUERY, query);
+                if (started) {
+                    runActions((HttpServletRequest) async.getRequest(), response, context);
+                }
+            } catch (Throwable t) {
+                exceptionAdapter.handleException(t);
+                if (!response.isCommitted()) {
+                    response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                }
+            } finally {
+                try {
+                    if (started) {
+                        status = response.getStatus();
+                    }
+                    loggingService.setValue(LoggingService.STATUS, String.valueOf(status));
+                    loggingService.flush();
+                } finally {
+                    contextService.endContext();
+                    if (started) {
+                        try {
+                            async.complete();
+                        } finally {
+                            finished.countDown();
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Complete a POST that was run on the container thread, because the pool had no room for it.
+         */
+        private void completeInline() {
+            try {
+                if (state.compareAndSet(PENDING, RUNNING)) {
+                    async.complete();
+                }
+            } finally {
+                finished.countDown();
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            if (state.compareAndSet(PENDING, TIMED_OUT)) {
+                HttpServletResponse response = (HttpServletResponse) async.getResponse();
+                if (!response.isCommitted()) {
+                    response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                }
+                async.complete();
+                return;
+            }
+            // the pool thread still writes to the response, which the container must not recycle before it is
+            // done. The actions give up at their deadline, which falls within the grace of the timeout.
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    finished.await();
+                    break;
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    private void runActions(HttpServletRequest request, HttpServletResponse response, AuraContext context)
+            throws IOException {
+        boolean written = false;
+        boolean binary = false;
         try {
             if (context.getFormat() != Format.JSON) {
                 throw new AuraRuntimeException("Invalid request, post must use JSON");
@@ -484,20 +711,74 @@ public class AuraServlet extends AuraBaseServlet {
                 attributes.put("token", configAdapter.getCSRFToken());
             }
 
+            if (acceptsBinary(request)) {
+                //
+                // The binary frame is not script, so there is nothing to protect with CSRF_PROTECT, and an error
+                // part way through leaves an unterminated frame that the client rejects.
+                //
+                binary = true;
+                response.setContentType(BinaryJsonEncoder.MIME_TYPE);
+                written = true;
+                serverService.runBinary(message, context, response.getOutputStream(), attributes);
+                return;
+            }
+
+            boolean streaming = acceptsStreaming(request);
+            if (streaming) {
+                response.setContentType(STREAMING_CONTENT_TYPE);
+            }
             PrintWriter out = response.getWriter();
             written = true;
             out.write(CSRF_PROTECT);
-            serverService.run(message, context, out, attributes);
+            if (streaming) {
+                serverService.runStreaming(message, context, out, attributes);
+            } else {
+                serverService.run(message, context, out, attributes);
+            }
         } catch (InvalidParamException | MissingParamException ipe) {
             servletUtilAdapter.handleServletException(new SystemErrorException(ipe), false, context, request, response, false);
             return;
         } catch (JsonParseException jpe) {
             servletUtilAdapter.handleServletException(new SystemErrorException(jpe), false, context, request, response, false);
         } catch (Exception e) {
+            if (binary) {
+                // the output stream is already in use, so there is no writer for an error payload.
+                exceptionAdapter.handleException(e);
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                return;
+            }
             servletUtilAdapter.handleServletException(e, false, context, request, response, written);
         }
     }
 
+    /**
+     * Did the client ask for the binary action response format?
+     *
+     * @param request the request.
+     * @return true if the binary format is enabled and the Accept header lists {@link BinaryJsonEncoder#MIME_TYPE}.
+     */
+    protected boolean acceptsBinary(HttpServletRequest request) {
+        if (!binaryActions) {
+            return false;
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept != null && accept.contains(BinaryJsonEncoder.MIME_TYPE);
+    }
+
+    /**
+     * Did the client ask for actions to be streamed back as they complete?
+     *
+     * @param request the request.
+     * @return true if streaming is enabled and the Accept header lists {@link #STREAMING_CONTENT_TYPE}.
+     */
+    protected boolean acceptsStreaming(HttpServletRequest request) {
+        if (!streamingActions) {
+            return false;
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept != null && accept.contains(STREAMING_CONTENT_TYPE);
+    }
+
     /**
      * Get tag name from params.
      *
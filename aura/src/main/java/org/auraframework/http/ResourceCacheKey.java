@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.http;
+
+import org.auraframework.system.AuraContext.Authentication;
+import org.auraframework.system.AuraContext.Mode;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Keys and ETags for resources that can be answered before a context is established.
+ *
+ * The server stores the output under this key once it has been generated for a context, and
+ * {@link AuraContextFilter} rebuilds the same key from the few fields of the request that the output depends on. Both
+ * sides must go through here so that they can never disagree.
+ */
+public final class ResourceCacheKey {
+    /**
+     * Set aura.resources.fastPath to false to always build a full context for resource requests.
+     */
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("aura.resources.fastPath", "true"));
+
+    /**
+     * Set aura.appJs.chunks to true to split the component code of app.js into content addressed chunks, shared by
+     * every application that has the same components. Chunks are served from the cache by the context filter, so this
+     * needs the fast path.
+     */
+    public static final boolean CHUNKS = ENABLED && Boolean.getBoolean("aura.appJs.chunks");
+
+    /**
+     * The resource name of a chunk, served from /l/chunk/{hash}/chunk.js.
+     */
+    public static final String CHUNK = "chunk.js";
+
+    /**
+     * The entries of {@link #chunkSource(String)}: the mode, access and qualified name of an application that has the
+     * chunk.
+     */
+    public static final String CHUNK_MODE = "mode";
+    public static final String CHUNK_ACCESS = "access";
+    public static final String CHUNK_APP = "app";
+
+    private ResourceCacheKey() {
+    }
+
+    /**
+     * The key for app.js.
+     *
+     * @param mode the context mode.
+     * @param access the context access.
+     * @param app the qualified name of the loading application.
+     * @param uid the uid of the loading application.
+     * @param fwuid the framework uid.
+     */
+    public static String appJs(Mode mode, Authentication access, String app, String uid, String fwuid) {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("RESOURCE:app.js:").append(mode).append(':').append(access).append(':');
+        sb.append(fwuid).append(':').append(uid).append('$').append(app);
+        return sb.toString();
+    }
+
+    /**
+     * The key for a chunk of app.js.
+     *
+     * @param hash the hash of the chunk content.
+     */
+    public static String chunk(String hash) {
+        return "RESOURCE:" + CHUNK + ":" + hash;
+    }
+
+    /**
+     * The key, in the definition hashes cache, of where a chunk of app.js came from. It outlives the chunk, so that a
+     * chunk that was evicted can be made again.
+     *
+     * @param hash the hash of the chunk content.
+     */
+    public static String chunkSource(String hash) {
+        return "RESOURCE:" + CHUNK + ":source:" + hash;
+    }
+
+    /**
+     * The URL of a chunk of app.js. It depends on nothing but the content, so that the browser caches it once for all
+     * applications.
+     *
+     * @param contextPath the servlet context path.
+     * @param hash the hash of the chunk content.
+     */
+    public static String chunkUrl(String contextPath, String hash) {
+        return contextPath + "/l/chunk/" + hash + "/" + CHUNK;
+    }
+
+    /**
+     * The name of the cookie that holds the uid of the app.js that the browser has for an application, so that a
+     * later uid can be loaded as a delta on top of it. app.js sets it for /l/ requests only.
+     *
+     * @param app the qualified name of the application.
+     */
+    public static String appJsCookie(String app) {
+        return "auraAppJs_" + app.replaceAll("[^A-Za-z0-9]", "_");
+    }
+
+    /**
+     * The key for a rendered bootstrap.js payload.
+     *
+     * @param app the qualified name of the loading application.
+     * @param etag the strong ETag of the response, which covers the app uid, locale, style context and the attributes
+     *            in the URL.
+     */
+    public static String bootstrap(String app, String etag) {
+        return "RESOURCE:bootstrap.js:" + etag + '$' + app;
+    }
+
+    /**
+     * The key for a rendered inline.js body.
+     *
+     * @param app the qualified name of the loading application.
+     * @param etag the strong ETag of the response, which covers the app uid, framework uid, mode, locale and timezone.
+     *            The body is kept without the CSRF token, which is spliced in for each request.
+     */
+    public static String inlineJs(String app, String etag) {
+        return "RESOURCE:inline.js:" + etag + '$' + app;
+    }
+
+    /**
+     * A strong ETag for a resource response.
+     *
+     * Everything the response depends on beyond its URL has to be passed in: the uids the client has loaded, its
+     * client type, its style context (tokens and their uid) and, for rendered resources, its locale.
+     *
+     * @return the quoted ETag.
+     */
+    public static String etag(String uri, String appUid, String fwuid, String client, Object styleContext,
+            String locale) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (Object part : new Object[] { uri, appUid, fwuid, client, styleContext, locale }) {
+            hasher.putString(String.valueOf(part)).putChar('\0');
+        }
+        return '"' + hasher.hash().toString() + '"';
+    }
+
+    /**
+     * The ETag of a chunk of app.js, which is named by the hash of its content.
+     */
+    public static String chunkEtag(String hash) {
+        return '"' + hash + '"';
+    }
+
+    /**
+     * Does an If-None-Match header list an ETag, or the ETag of its gzipped variant?
+     *
+     * @param ifNoneMatch the value of the header.
+     * @param etag the quoted ETag of the response.
+     */
+    public static boolean matchesEtag(String ifNoneMatch, String etag) {
+        String gzipEtag = gzipEtag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                // If-None-Match uses the weak comparison.
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag) || candidate.equals(gzipEtag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The ETag of the gzipped variant of a response, which must differ from the plain one.
+     */
+    public static String gzipEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+}
@@ -41,6 +41,13 @@ public class AppCss extends AuraResourceImpl {
             return;
         }
         try {
+            if (acceptsGzip(request)) {
+                byte[] compressed = serverService.getCompressedAppCss(dependencies);
+                if (compressed != null) {
+                    writeGzip(response, compressed);
+                    return;
+                }
+            }
             serverService.writeAppCss(dependencies, response.getWriter());
         } catch (Throwable t) {
             servletUtilAdapter.handleServletException(t, false, context, request, response, false);
@@ -20,19 +20,29 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Set;
 
+import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.auraframework.annotations.Annotations.ServiceComponent;
 import org.auraframework.def.DefDescriptor;
+import org.auraframework.http.AuraContextFilter;
+import org.auraframework.http.ResourceCacheKey;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Format;
+import org.auraframework.util.AuraTextUtil;
+import org.auraframework.util.json.JsonEncoder;
+
+import com.google.common.collect.ImmutableList;
 
 
 @ServiceComponent
 public class AppJs extends AuraResourceImpl {
-	private static final String APPJS_PREPEND = "\"undefined\"===typeof Aura&&(Aura={});Aura.bootstrap||(Aura.bootstrap={});Aura.frameworkJsReady||(Aura.ApplicationDefs={cmpExporter:{},libExporter:{}},$A={componentService:{addComponent:function(a,b){Aura.ApplicationDefs.cmpExporter[a]=b},addLibraryExporter:function(a,b){Aura.ApplicationDefs.libExporter[a]=b},initEventDefs:function(a){Aura.ApplicationDefs.eventDefs=a},initLibraryDefs:function(a){Aura.ApplicationDefs.libraryDefs=a},initControllerDefs:function(a){Aura.ApplicationDefs.controllerDefs=a}}});\n";
-	private static final String APPJS_APPEND = "\nAura.appJsReady = true;Aura.appDefsReady&&Aura.appDefsReady();";
+	private static final String APPJS_PREPEND = "\"undefined\"===typeof Aura&&(Aura={});Aura.bootstrap||(Aura.bootstrap={});Aura.frameworkJsReady||(Aura.ApplicationDefs={cmpExporter:{},libExporter:{}},$A={componentService:{addComponent:function(a,b){Aura.ApplicationDefs.cmpExporter[a]=b},removeDefinition:function(a){delete Aura.ApplicationDefs.cmpExporter[a];delete Aura.ApplicationDefs.libExporter[a]},addLibraryExporter:function(a,b){Aura.ApplicationDefs.libExporter[a]=b},initEventDefs:function(a){Aura.ApplicationDefs.eventDefs=a},initLibraryDefs:function(a){Aura.ApplicationDefs.libraryDefs=a},initControllerDefs:function(a){Aura.ApplicationDefs.controllerDefs=a}}});\n";
+	// a chunked app.js sets Aura.appJsPending, and is ready once its chunks have run.
+	private static final String APPJS_APPEND = "\nif(!Aura.appJsPending){Aura.appJsReady = true;Aura.appDefsReady&&Aura.appDefsReady();}";
+	// runs the app.js the browser already has and the delta on top of it, one after the other, then marks app.js ready.
+	private static final String DELTA_LOADER = "\"undefined\"===typeof Aura&&(Aura={});Aura.appJsPending=(Aura.appJsPending|0)+1;(function(u){var i=0;function n(){if(i<u.length){var s=document.createElement(\"script\");s.src=u[i++];s.onload=n;s.onerror=f;document.head.appendChild(s);}else if(!--Aura.appJsPending){Aura.appJsReady=true;Aura.appDefsReady&&Aura.appDefsReady();}}function f(){Aura.appJsFailed=true;throw new Error(\"Failed to load \"+this.src);}n();})(";
 	
     public AppJs() {
         super("app.js", Format.JS);
@@ -45,6 +55,18 @@ public class AppJs extends AuraResourceImpl {
             return;
         }
         try {
+            String previousUid = getPreviousUid(request, context);
+            if (previousUid != null && serverService.hasDefinitionsDelta(previousUid)) {
+                writeDeltaLoader(response, context, previousUid);
+                return;
+            }
+            if (acceptsGzip(request)) {
+                byte[] compressed = serverService.getCompressedDefinitions(dependencies, APPJS_PREPEND, APPJS_APPEND);
+                if (compressed != null) {
+                    writeGzip(response, compressed);
+                    return;
+                }
+            }
             PrintWriter writer = response.getWriter();
             writer.append(APPJS_PREPEND);
             serverService.writeDefinitions(dependencies, writer);
@@ -54,4 +76,63 @@ public class AppJs extends AuraResourceImpl {
         }
     }
 
+    /**
+     * The uid of the app.js that the browser has, from the cookie that app.js sets.
+     */
+    private String getPreviousUid(HttpServletRequest request, AuraContext context) {
+        DefDescriptor<?> app = context == null ? null : context.getApplicationDescriptor();
+        Cookie[] cookies = request == null ? null : request.getCookies();
+        if (app == null || cookies == null) {
+            return null;
+        }
+        String name = ResourceCacheKey.appJsCookie(app.getQualifiedName());
+        for (Cookie cookie : cookies) {
+            if (name.equals(cookie.getName())) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Have the browser run the app.js of the uid it has, and then the delta up to this uid, instead of downloading
+     * the whole app.js again. Both come from its cache once they have been loaded, but this answer depends on the
+     * cookie, so it is not cached itself.
+     */
+    private void writeDeltaLoader(HttpServletResponse response, AuraContext context, String previousUid)
+            throws IOException {
+        DefDescriptor<?> app = context.getApplicationDescriptor();
+        String uid = context.getUid(app);
+        String appJsUrl = servletUtilAdapter.getAppJsUrl(context, null);
+        String previousUrl;
+        context.addLoaded(app, previousUid);
+        try {
+            previousUrl = servletUtilAdapter.getAppJsUrl(context, null);
+        } finally {
+            context.addLoaded(app, uid);
+        }
+        String deltaUrl = appJsUrl.substring(0, appJsUrl.lastIndexOf('/') + 1) + AppJsDelta.NAME + "?"
+                + AppJsDelta.PREVIOUS_UID + "=" + AuraTextUtil.urlencode(previousUid);
+
+        servletUtilAdapter.setNoCache(response);
+        PrintWriter writer = response.getWriter();
+        writer.append(DELTA_LOADER);
+        writer.append(JsonEncoder.serialize(ImmutableList.of(previousUrl, deltaUrl)));
+        writer.append(");\n");
+    }
+
+    @Override
+    public void writeCached(HttpServletRequest request, HttpServletResponse response, String cached)
+            throws IOException {
+        String key = (String) request.getAttribute(AuraContextFilter.CACHED_RESOURCE_KEY);
+        if (key != null && acceptsGzip(request)) {
+            writeGzip(response, getCompressed(key, APPJS_PREPEND, cached, APPJS_APPEND));
+            return;
+        }
+        PrintWriter writer = response.getWriter();
+        writer.append(APPJS_PREPEND);
+        writer.append(cached);
+        writer.append(APPJS_APPEND);
+    }
+
 }
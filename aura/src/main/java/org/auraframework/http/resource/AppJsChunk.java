@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.http.resource;
+
+import java.io.IOException;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.auraframework.annotations.Annotations.ServiceComponent;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.http.AuraResourceRewriteFilter;
+import org.auraframework.http.ResourceCacheKey;
+import org.auraframework.system.AuraContext;
+import org.auraframework.system.AuraContext.Format;
+
+/**
+ * Handles /l/chunk/{hash}/chunk.js requests for the component code that app.js loads in chunks.
+ *
+ * Chunks are written by the server service along with app.js and served from the cache by the context filter, see
+ * {@link ResourceCacheKey#CHUNKS}. A chunk that was evicted gets the context of the app it came from, and is made
+ * again here.
+ */
+@ServiceComponent
+public class AppJsChunk extends AuraResourceImpl {
+
+    public AppJsChunk() {
+        super(ResourceCacheKey.CHUNK, Format.JS);
+    }
+
+    @Override
+    public void write(HttpServletRequest request, HttpServletResponse response, AuraContext context)
+            throws IOException {
+        Set<DefDescriptor<?>> dependencies = servletUtilAdapter.verifyTopLevel(request, response, context);
+        if (dependencies == null) {
+            return;
+        }
+        try {
+            // nothing is written unless the chunk is found.
+            if (!serverService.writeChunk(dependencies, request.getParameter(AuraResourceRewriteFilter.LOOKUP_PARAM),
+                    response.getWriter())) {
+                servletUtilAdapter.setNoCache(response);
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            }
+        } catch (Throwable t) {
+            servletUtilAdapter.handleServletException(t, false, context, request, response, false);
+        }
+    }
+}
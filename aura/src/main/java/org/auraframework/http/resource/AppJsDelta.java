@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.http.resource;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.auraframework.annotations.Annotations.ServiceComponent;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.http.RequestParam.StringParam;
+import org.auraframework.system.AuraContext;
+import org.auraframework.system.AuraContext.Format;
+
+/**
+ * Handles /l/{}/appdelta.js?aura.previousUid={} requests for the definitions that changed since an earlier uid of
+ * the app.
+ *
+ * app.js loads this right after the app.js of the previous uid, which the browser still has, when the cookie that
+ * app.js sets says the browser has an earlier uid. If the server no longer knows the previous uid it answers with all
+ * of the definitions, uncached, which also brings the app up to date.
+ */
+@ServiceComponent
+public class AppJsDelta extends AuraResourceImpl {
+    static final String NAME = "appdelta.js";
+    static final String PREVIOUS_UID = "aura.previousUid";
+
+    private final StringParam previousUidParam = new StringParam(PREVIOUS_UID, 0, false);
+
+    public AppJsDelta() {
+        super(NAME, Format.JS);
+    }
+
+    @Override
+    public void write(HttpServletRequest request, HttpServletResponse response, AuraContext context)
+            throws IOException {
+        Set<DefDescriptor<?>> dependencies = servletUtilAdapter.verifyTopLevel(request, response, context);
+        if (dependencies == null) {
+            return;
+        }
+        try {
+            StringWriter delta = new StringWriter();
+            if (!serverService.writeDefinitionsDelta(dependencies, previousUidParam.get(request), delta)) {
+                // the previous definitions were dropped since app.js loaded this, so all of them are sent again.
+                servletUtilAdapter.setNoCache(response);
+                serverService.writeDefinitions(dependencies, response.getWriter());
+                return;
+            }
+            response.getWriter().append(delta.getBuffer());
+        } catch (Throwable t) {
+            servletUtilAdapter.handleServletException(t, false, context, request, response, false);
+        }
+    }
+}
@@ -16,18 +16,30 @@
 
 package org.auraframework.http.resource;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPOutputStream;
 
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.http.HttpHeaders;
 import org.auraframework.adapter.ConfigAdapter;
 import org.auraframework.adapter.ServletUtilAdapter;
 import org.auraframework.annotations.Annotations.ServiceComponent;
+import org.auraframework.http.AuraBaseServlet;
+import org.auraframework.http.AuraResourceServlet;
 import org.auraframework.http.RequestParam.StringParam;
+import org.auraframework.http.ResourceCacheKey;
+import org.auraframework.service.CachingService;
 import org.auraframework.service.DefinitionService;
 import org.auraframework.service.InstanceService;
 import org.auraframework.service.ServerService;
@@ -37,6 +49,7 @@ import org.auraframework.system.AuraResource;
 import org.auraframework.util.AuraTextUtil;
 import org.auraframework.util.json.JsonReader;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.Maps;
 
 @ServiceComponent
@@ -49,6 +62,7 @@ public abstract class AuraResourceImpl implements AuraResource {
     protected ConfigAdapter configAdapter;
     protected ServerService serverService;
     protected InstanceService instanceService;
+    protected CachingService cachingService;
 
     public AuraResourceImpl(String name, Format format) {
         this(name, format, false);
@@ -134,6 +148,84 @@ public abstract class AuraResourceImpl implements AuraResource {
         this.instanceService = instanceService;
     }
 
+    /**
+     * Injection override.
+     *
+     * @param cachingService the CachingService to set
+     */
+    @Inject
+    public void setCachingService(CachingService cachingService) {
+        this.cachingService = cachingService;
+    }
+
+    /**
+     * Check whether the client takes gzipped content.
+     *
+     * @param request the request, may be null.
+     */
+    protected boolean acceptsGzip(HttpServletRequest request) {
+        return AuraBaseServlet.acceptsGzip(request);
+    }
+
+    /**
+     * Set the ETag worked out by {@link AuraResourceServlet}, for a response that can be cached.
+     */
+    protected void setETag(HttpServletRequest request, HttpServletResponse response) {
+        String etag = (String) request.getAttribute(AuraResourceServlet.RESOURCE_ETAG);
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+        }
+    }
+
+    /**
+     * Write gzipped bytes, made by the server service, as the body of the response.
+     */
+    protected void writeGzip(HttpServletResponse response, byte[] compressed) throws IOException {
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, ResourceCacheKey.gzipEtag(etag));
+        }
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setContentLength(compressed.length);
+        response.getOutputStream().write(compressed);
+    }
+
+    /**
+     * Gzip output that is kept in the cache, once.
+     *
+     * @param cacheKey the key the output is cached under.
+     * @param parts the output, in order.
+     */
+    protected byte[] getCompressed(String cacheKey, final String... parts) throws IOException {
+        try {
+            return cachingService.getCompressedStringsCache().get("GZIP:" + cacheKey, new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws Exception {
+                    return compress(parts);
+                }
+            });
+        } catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Gzip output that is not kept.
+     *
+     * @param parts the output, in order.
+     */
+    protected byte[] compress(String... parts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytes, 8192), StandardCharsets.UTF_8)) {
+            for (String part : parts) {
+                writer.write(part);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
     private final StringParam attributesParam = new StringParam("aura.attributes", 0, false);
 
     protected Map<String, Object> getComponentAttributes(HttpServletRequest request) {
@@ -33,6 +33,8 @@ import org.auraframework.def.BaseComponentDef;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.DefDescriptor.DefType;
 import org.auraframework.def.Definition;
+import org.auraframework.http.AuraResourceServlet;
+import org.auraframework.http.ResourceCacheKey;
 import org.auraframework.instance.Instance;
 import org.auraframework.service.ContextService;
 import org.auraframework.system.AuraContext;
@@ -89,19 +91,30 @@ public class Bootstrap extends AuraResourceImpl {
 
     protected void setCacheHeaders(HttpServletResponse response, DefDescriptor<? extends BaseComponentDef> appDesc)
             throws QuickFixException {
-        Integer cacheExpiration = null;
-        if (appDesc.getDefType() == DefType.APPLICATION) {
-            // only app has bootstrap cache capability
-            ApplicationDef appDef = (ApplicationDef) definitionService.getDefinition(appDesc);
-            cacheExpiration = appDef.getBootstrapPublicCacheExpiration();
-        }
-        if (cacheExpiration != null && cacheExpiration > 0) {
+        Integer cacheExpiration = getPublicCacheExpiration(appDesc);
+        if (cacheExpiration != null) {
             servletUtilAdapter.setCacheTimeout(response, cacheExpiration.longValue() * 1000);
         } else {
             servletUtilAdapter.setNoCache(response);
         }
     }
 
+    /**
+     * @return the public cache expiration of the app in seconds, or null if bootstrap.js must not be cached.
+     */
+    private Integer getPublicCacheExpiration(DefDescriptor<? extends BaseComponentDef> appDesc)
+            throws QuickFixException {
+        if (appDesc.getDefType() == DefType.APPLICATION) {
+            // only app has bootstrap cache capability
+            ApplicationDef appDef = (ApplicationDef) definitionService.getDefinition(appDesc);
+            Integer cacheExpiration = appDef.getBootstrapPublicCacheExpiration();
+            if (cacheExpiration != null && cacheExpiration > 0) {
+                return cacheExpiration;
+            }
+        }
+        return null;
+    }
+
     @Override
     public void write(HttpServletRequest request, HttpServletResponse response, AuraContext context)
             throws IOException {
@@ -119,28 +132,25 @@ public class Bootstrap extends AuraResourceImpl {
                 throw new Exception("Invalid jwt parameter");
             }
             setCacheHeaders(response, app);
+            String cacheKey = null;
+            if (getPublicCacheExpiration(app) != null) {
+                setETag(request, response);
+                cacheKey = getPayloadKey(request, app);
+            }
 
-            Instance<?> appInstance = instanceService.getInstance(desc, getComponentAttributes(request));
-            definitionService.updateLoaded(desc);
-            loadLabels();
-
-            JsonSerializationContext serializationContext = context.getJsonSerializationContext();
-
-            WrappedPrintWriter out = new WrappedPrintWriter(response.getWriter());
-            out.append(PREPEND_JS);
-            JsonEncoder json = JsonEncoder.createJsonStream(out, serializationContext);
-            json.writeMapBegin();
-            json.writeMapKey("data");
-            json.writeMapBegin();
-            json.writeMapEntry("app", appInstance);
-            context.getInstanceStack().serializeAsPart(json);
-            json.writeMapEnd();
-            serializationContext.pushRefSupport(false);
-            json.writeMapEntry("md5", out.getMD5());
-            json.writeMapEntry("context", context);
-            serializationContext.popRefSupport();
-            json.writeMapEnd();
-            out.append(APPEND_JS);
+            // a publicly cacheable bootstrap is the same for every request with the same ETag, so render it once.
+            if (cacheKey != null) {
+                String payload = cachingService.getAltStringsCache().getIfPresent(cacheKey);
+                if (payload == null) {
+                    StringBuilder sb = new StringBuilder(8192);
+                    writePayload(sb, request, context, desc);
+                    payload = sb.toString();
+                    cachingService.getAltStringsCache().put(cacheKey, payload);
+                }
+                response.getWriter().write(payload);
+            } else {
+                writePayload(response.getWriter(), request, context, desc);
+            }
         } catch (Throwable t) {
             if (gackOnException) {
                 t = exceptionAdapter.handleException(t);                
@@ -149,47 +159,151 @@ public class Bootstrap extends AuraResourceImpl {
         }
     }
 
-    private static class WrappedPrintWriter implements Appendable {
-    	private final PrintWriter inner;
-    	private final MessageDigest m;
-
-    	WrappedPrintWriter(PrintWriter inner) {
-			try {
-				m = MessageDigest.getInstance("MD5");
-			} catch (NoSuchAlgorithmException e) {
-				throw new RuntimeException(e);
-			}
-
-    		this.inner = inner;
-    	}
-
-		@Override
-		public Appendable append(CharSequence csq) throws IOException {
-			updateMD5(csq, 0, csq.length());
-			return inner.append(csq);
-		}
-
-		@Override
-		public Appendable append(CharSequence csq, int start, int end) throws IOException {
-			updateMD5(csq, start, end);
-			return inner.append(csq, start, end);
-		}
-
-		@Override
-		public Appendable append(char c) throws IOException {
-			updateMD5(String.valueOf(c), 0, 1);
-			return inner.append(c);
-		}
-
-		public void updateMD5(CharSequence csq, int start, int end) {
-			byte[] data = csq.toString().getBytes();
-			m.update(data, 0, data.length);
-		}
-
-		public String getMD5() {
-			BigInteger i = new BigInteger(1, m.digest());
-			return String.format("%1$032X", i);
-		}
+    /**
+     * The key the rendered payload is cached under, or null if it must be rendered for every request.
+     *
+     * The strong ETag of the response already covers everything the payload depends on, so only responses that have
+     * one are cached.
+     */
+    private String getPayloadKey(HttpServletRequest request, DefDescriptor<? extends BaseComponentDef> app) {
+        String etag = (String) request.getAttribute(AuraResourceServlet.RESOURCE_ETAG);
+        if (etag == null) {
+            return null;
+        }
+        return ResourceCacheKey.bootstrap(app.getQualifiedName(), etag);
+    }
+
+    private void writePayload(Appendable target, HttpServletRequest request, AuraContext context,
+            DefDescriptor<?> desc) throws IOException, QuickFixException {
+        Instance<?> appInstance = instanceService.getInstance(desc, getComponentAttributes(request));
+        definitionService.updateLoaded(desc);
+        loadLabels();
+
+        JsonSerializationContext serializationContext = context.getJsonSerializationContext();
+
+        WrappedPrintWriter out = new WrappedPrintWriter(target);
+        out.append(PREPEND_JS);
+        JsonEncoder json = JsonEncoder.createJsonStream(out, serializationContext);
+        json.writeMapBegin();
+        json.writeMapKey("data");
+        json.writeMapBegin();
+        json.writeMapEntry("app", appInstance);
+        context.getInstanceStack().serializeAsPart(json);
+        json.writeMapEnd();
+        serializationContext.pushRefSupport(false);
+        json.writeMapEntry("md5", out.getMD5());
+        json.writeMapEntry("context", context);
+        serializationContext.popRefSupport();
+        json.writeMapEnd();
+        out.append(APPEND_JS);
+    }
+
+    /**
+     * Passes everything through to the target, and computes the md5 of its UTF-8 encoding on the way.
+     *
+     * Characters are encoded into a small reusable buffer rather than copied into a new String and byte array on every
+     * append, which is what most of the output is made of.
+     */
+    static class WrappedPrintWriter implements Appendable {
+        private final Appendable inner;
+        private final MessageDigest m;
+        private final byte[] buffer = new byte[1024];
+        private int count;
+        private char pendingHighSurrogate;
+
+        WrappedPrintWriter(Appendable inner) {
+            try {
+                m = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+
+            this.inner = inner;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            if (csq == null) {
+                csq = "null";
+            }
+            updateMD5(csq, 0, csq.length());
+            inner.append(csq);
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            if (csq == null) {
+                csq = "null";
+            }
+            updateMD5(csq, start, end);
+            inner.append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            update(c);
+            inner.append(c);
+            return this;
+        }
+
+        public void updateMD5(CharSequence csq, int start, int end) {
+            for (int i = start; i < end; i++) {
+                update(csq.charAt(i));
+            }
+        }
+
+        /**
+         * The md5 of everything appended so far. Appending more afterwards starts a new digest.
+         */
+        public String getMD5() {
+            if (pendingHighSurrogate != 0) {
+                buffer[count++] = '?';
+                pendingHighSurrogate = 0;
+            }
+            m.update(buffer, 0, count);
+            count = 0;
+            BigInteger i = new BigInteger(1, m.digest());
+            return String.format("%1$032X", i);
+        }
+
+        /**
+         * Encode one char as UTF-8, with '?' for an unpaired surrogate like {@link String#getBytes(String)} does.
+         */
+        private void update(char c) {
+            if (count > buffer.length - 4) {
+                m.update(buffer, 0, count);
+                count = 0;
+            }
+            if (pendingHighSurrogate != 0) {
+                char high = pendingHighSurrogate;
+                pendingHighSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int cp = Character.toCodePoint(high, c);
+                    buffer[count++] = (byte) (0xF0 | (cp >> 18));
+                    buffer[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buffer[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buffer[count++] = (byte) (0x80 | (cp & 0x3F));
+                    return;
+                }
+                buffer[count++] = '?';
+            }
+            if (c < 0x80) {
+                buffer[count++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[count++] = (byte) (0xC0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c)) {
+                pendingHighSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                buffer[count++] = '?';
+            } else {
+                buffer[count++] = (byte) (0xE0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
     }
 
     private void writeError(Throwable t, HttpServletResponse response, AuraContext context) throws IOException {
@@ -19,7 +19,6 @@ package org.auraframework.http.resource;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PrintWriter;
 import java.util.Map;
 
 import javax.annotation.PostConstruct;
@@ -32,7 +31,9 @@ import org.auraframework.def.ApplicationDef;
 import org.auraframework.def.BaseComponentDef;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.http.AuraResourceServlet;
 import org.auraframework.http.ManifestUtil;
+import org.auraframework.http.ResourceCacheKey;
 import org.auraframework.instance.Component;
 import org.auraframework.service.ContextService;
 import org.auraframework.service.RenderingService;
@@ -132,21 +133,64 @@ public class InlineJs extends AuraResourceImpl {
             definitionService.getDefRegistry().assertAccess(referencingDescriptor, def);
         }
 
+        String cacheKey = null;
         if (shouldCacheHTMLTemplate(defDescriptor, request, context)) {
             servletUtilAdapter.setLongCache(response);
+            setETag(request, response);
+            cacheKey = getBodyKey(request, defDescriptor);
         } else {
             servletUtilAdapter.setNoCache(response);
         }
         
+        // a cacheable inline.js is the same for every request with the same ETag but for the CSRF token, so render
+        // it once without the token, and splice in the token of each request.
+        if (cacheKey != null) {
+            String body = cachingService.getAltStringsCache().getIfPresent(cacheKey);
+            if (body == null) {
+                StringBuilder sb = new StringBuilder(8192);
+                writeBody(sb, request, context, def, true);
+                body = sb.toString();
+                cachingService.getAltStringsCache().put(cacheKey, body);
+            }
+            StringBuilder page = new StringBuilder(body.length() + 64);
+            serverService.writeWithToken(body, page);
+            if (!acceptsGzip(request)) {
+                response.getWriter().append(page);
+            } else if (body.contentEquals(page)) {
+                writeGzip(response, getCompressed(cacheKey, body));
+            } else {
+                // with the token in it, the gzipped body differs by user.
+                writeGzip(response, compress(page.toString()));
+            }
+        } else {
+            writeBody(response.getWriter(), request, context, def, false);
+        }
+    }
+    
+    private <T extends BaseComponentDef> void writeBody(Appendable out, HttpServletRequest request,
+            AuraContext context, T def, boolean shared) throws IOException, QuickFixException {
         // Prevents Mhtml Xss exploit:
-        PrintWriter out = response.getWriter();
-        out.write("\n    ");
+        out.append("\n    ");
         
-        
-        Component template = serverService.writeTemplate(context, def, getComponentAttributes(request), out);
+        Map<String, Object> attributes = getComponentAttributes(request);
+        Component template = shared ? serverService.getSharedTemplate(context, def, attributes)
+                : serverService.writeTemplate(context, def, attributes, out);
         appendInlineJS(template, out);
         renderingService.render(template, null, out);
-
+    }
+    
+    /**
+     * The key the rendered body is cached under, or null if it must be rendered for every request.
+     *
+     * The strong ETag of the response covers everything the body depends on but the CSRF token, which is not in the
+     * cached body, so only responses that have one are cached.
+     */
+    private String getBodyKey(HttpServletRequest request, DefDescriptor<? extends BaseComponentDef> app) {
+        String etag = (String) request.getAttribute(AuraResourceServlet.RESOURCE_ETAG);
+        if (etag == null) {
+            return null;
+        }
+        return ResourceCacheKey.inlineJs(app.getQualifiedName(), etag);
     }
     
     private boolean shouldCacheHTMLTemplate(DefDescriptor<? extends BaseComponentDef> appDefDesc,
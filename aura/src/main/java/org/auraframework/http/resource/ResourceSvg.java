@@ -24,6 +24,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.auraframework.annotations.Annotations.ServiceComponent;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.SVGDef;
+import org.auraframework.http.AuraResourceServlet;
 import org.auraframework.http.AuraServlet;
 import org.auraframework.http.RequestParam.StringParam;
 import org.auraframework.system.AuraContext;
@@ -54,8 +55,11 @@ public class ResourceSvg extends AuraResourceImpl {
 
             //Get the original etag if exists
             String etag = request.getHeader("If-None-Match");
-            //generate the new etag from the definitions hash
-            String hash = def.getOwnHash();
+            //use the strong etag of the app if there is one, otherwise generate the new etag from the definitions hash
+            String hash = (String) request.getAttribute(AuraResourceServlet.RESOURCE_ETAG);
+            if (hash == null) {
+                hash = def.getOwnHash();
+            }
             //For security reasons, if the user fetches the svg from the browser directly we
             //force the browser to download the file
             if (request.getHeader("Referer") == null) {
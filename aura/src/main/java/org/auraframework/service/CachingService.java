@@ -17,6 +17,7 @@ package org.auraframework.service;
 
 import java.lang.ref.WeakReference;
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.Lock;
 
@@ -59,6 +60,18 @@ public interface CachingService extends AuraService {
 
     Cache<String, String> getAltStringsCache();
 
+    /**
+     * Gzipped copies of altStringsCache entries, made once and written as is to clients that accept them. Dropped
+     * along with altStringsCache.
+     */
+    Cache<String, byte[]> getCompressedStringsCache();
+
+    /**
+     * The hash of the code of each definition that app.js was made of, by application and uid. A uid always stands
+     * for the same definitions, so this is kept across source changes, to work out what changed since an older uid.
+     */
+    Cache<String, Map<String, String>> getDefinitionHashesCache();
+
     Cache<String, Set<DefDescriptor<?>>> getDescriptorFilterCache();
 
     Cache<String, DependencyEntry> getDepsCache();
@@ -67,6 +80,12 @@ public interface CachingService extends AuraService {
 
     Cache<DefDescriptor.DescriptorKey, DefDescriptor<? extends Definition>> getDefDescriptorByNameCache();
 
+    /**
+     * Results of storable server actions, keyed as described by ActionResultCache. Entries expire after a fixed
+     * time, and the whole cache is dropped on source changes.
+     */
+    Cache<String, Optional<Object>> getActionCache();
+
     Lock getReadLock();
 
     Lock getWriteLock();
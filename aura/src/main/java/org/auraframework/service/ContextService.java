@@ -65,6 +65,40 @@ public interface ContextService extends AuraService {
     AuraContext startContext(Mode mode, Set<SourceLoader> loaders, Format format, Authentication access)
             throws QuickFixException;
 
+    /**
+     * Use a context established on another thread from this thread.
+     *
+     * A fresh logging context is established along with it, so timers and counts of this thread do not mix with
+     * those of the owning request. Close with {@link #endContext()} before the owning request ends.
+     *
+     * @param context the context of the request this thread is working for.
+     * @return the context.
+     */
+    AuraContext attachContext(AuraContext context);
+
+    /**
+     * Make a context for running part of a request on another thread.
+     *
+     * The fork has the settings, registries and source loaders of the request and what it has loaded so far, but its
+     * own state, so it can be used while the request goes on with the original. It is not made current here: attach it with
+     * {@link #attachContext(AuraContext)} on the thread that uses it, and hand what it added back to the original
+     * with {@link #joinContext(AuraContext, AuraContext)}. Call this on the thread that owns the original.
+     *
+     * @param context the context of the request.
+     * @return the new context.
+     */
+    AuraContext forkContext(AuraContext context);
+
+    /**
+     * Take what a context made by {@link #forkContext(AuraContext)} added back into the original.
+     *
+     * Call this on the thread that owns the original, once the fork is no longer in use.
+     *
+     * @param context the context of the request.
+     * @param fork the context forked from it.
+     */
+    void joinContext(AuraContext context, AuraContext fork);
+
     /**
      * Close the current AuraContext, no matter which type it is.
      */
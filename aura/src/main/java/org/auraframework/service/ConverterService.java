@@ -19,6 +19,13 @@ import org.auraframework.util.AuraLocale;
 
 public interface ConverterService {
 
+    /**
+     * A conversion to a fixed type, with the converter lookup done once per source class rather than per value.
+     */
+    interface ResolvedConverter<T> {
+        T convert(Object value);
+    }
+
     <F, T> T convert(F value, Class<T> to);
 
     <F, T> T convert(F value, Class<T> to, AuraLocale locale);
@@ -29,6 +36,15 @@ public interface ConverterService {
 
     <F, T> T convert(F value, Class<T> to, String of, boolean trim, boolean hasLocale);
 
+    /**
+     * Get a converter to the given type that callers can hold on to, for values converted on every request such as
+     * attribute values and action parameters.
+     *
+     * The handle behaves exactly like {@link #convert(Object, Class, String, boolean, boolean)} with the same
+     * arguments, the locale being looked up at conversion time if hasLocale is set.
+     */
+    <T> ResolvedConverter<T> getConverter(Class<T> to, String of, boolean trim, boolean hasLocale);
+
     /* Mostly for testing? */
     boolean hasConverter(Class<?> from, Class<?> to);
 
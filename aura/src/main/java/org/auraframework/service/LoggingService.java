@@ -36,6 +36,10 @@ public interface LoggingService extends AuraService {
     public static final String DEF_COUNT = "defCount";
     public static final String DEF_VISIT_COUNT = "defVisitCount";
     public static final String DEF_DESCRIPTOR_COUNT = "defDescriptorCount";
+    public static final String JSON_REF_HITS = "jsonRefHits";
+    public static final String ACTION_CACHE_HITS = "actionCacheHits";
+    public static final String ACTION_COALESCED = "actionCoalesced";
+    public static final String ACTION_DEADLINE_EXCEEDED = "actionDeadlineExceeded";
     public static final String TIMER_DESERIALIZATION = "deSerialization";
     public static final String AURA_REQUEST_QUERY = "auraRequestQuery";
     public static final String AURA_REQUEST_URI = "auraRequestURI";
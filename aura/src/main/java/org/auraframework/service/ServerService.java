@@ -16,6 +16,7 @@
 package org.auraframework.service;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.util.Map;
 import java.util.Set;
@@ -59,6 +60,45 @@ public interface ServerService extends AuraService {
     void run(Message message, AuraContext context, Writer out, Map<?, ?> extras)
             throws QuickFixException, IOException;
 
+    /**
+     * Run a set of actions and write out the results in the compact binary format.
+     * 
+     * This is the same response as {@link #run(Message, AuraContext, Writer, Map)}, encoded by
+     * {@link org.auraframework.util.json.BinaryJsonEncoder} for clients that asked for it. The whole response is
+     * written as a single length-prefixed frame once the actions have completed.
+     * 
+     * @param message non-null, The message containing the actions.
+     * @param context non-null, the context to use.
+     * @param out non-null, where to write the output.
+     * @param extras (can be null) the extras to write.
+     * @throws QuickFixException if there was a problem instantiating components.
+     * @throws IOException if it is unable to write the output.
+     */
+    void runBinary(Message message, AuraContext context, OutputStream out, Map<?, ?> extras)
+            throws QuickFixException, IOException;
+
+    /**
+     * Run a set of actions, writing each result as soon as it completes.
+     * 
+     * The output is a sequence of JSON maps, one per line, flushed as they are written:
+     * <ol>
+     * <li>the extras, if there are any</li>
+     * <li>one <code>{"action":...}</code> line per action, in the order they ran</li>
+     * <li>a trailer with the "context", "events" and metrics that {@link #run(Message, AuraContext, Writer, Map)}
+     * writes after the actions</li>
+     * </ol>
+     * References are numbered across the whole response, so a client has to resolve them over all lines.
+     * 
+     * @param message non-null, The message containing the actions.
+     * @param context non-null, the context to use.
+     * @param out non-null, where to write the output.
+     * @param extras (can be null) the extras to write.
+     * @throws QuickFixException if there was a problem instantiating components.
+     * @throws IOException if it is unable to write the output.
+     */
+    void runStreaming(Message message, AuraContext context, Writer out, Map<?, ?> extras)
+            throws QuickFixException, IOException;
+
     /**
      * write out CSS.
      * 
@@ -72,6 +112,39 @@ public interface ServerService extends AuraService {
     
     <T extends BaseComponentDef> Component writeTemplate(AuraContext context, T value, Map<String, Object> componentAttributes, Appendable out) throws IOException, QuickFixException;
 
+    /**
+     * get the template of an application or component, with a placeholder in place of the CSRF token.
+     * 
+     * What it renders can be kept for every user, and is written with the token of a request by
+     * {@link #writeWithToken(String, Appendable)}.
+     * 
+     * @throws IOException if unable to write the template attributes
+     * @throws QuickFixException if the template could not be instantiated.
+     */
+    <T extends BaseComponentDef> Component getSharedTemplate(AuraContext context, T value, Map<String, Object> componentAttributes) throws IOException, QuickFixException;
+
+    /**
+     * write out output rendered from {@link #getSharedTemplate(AuraContext, BaseComponentDef, Map)}, with the CSRF
+     * token of the current request in place of the placeholder.
+     * 
+     * @param rendered the kept output
+     * @param out the appendable
+     * @throws IOException if unable to write to the response
+     */
+    void writeWithToken(String rendered, Appendable out) throws IOException;
+
+    /**
+     * write out the HTML page of an application or component.
+     * 
+     * The rendered template is kept for pages that differ only by the CSRF token and the context, which are spliced
+     * into it.
+     * 
+     * @param out the appendable
+     * @throws IOException if unable to write to the response
+     * @throws QuickFixException if the template could not be instantiated.
+     */
+    <T extends BaseComponentDef> void writeTemplateHtml(AuraContext context, T value, Map<String, Object> componentAttributes, Appendable out) throws IOException, QuickFixException;
+
     /**
      * write out SVG.
      * 
@@ -91,6 +164,60 @@ public interface ServerService extends AuraService {
      */
     void writeDefinitions(Set<DefDescriptor<?>> dependencies, Writer out) throws IOException, QuickFixException;
 
+    /**
+     * Get the definitions written by {@link #writeDefinitions(Set, Writer)}, wrapped in prefix and suffix and gzipped.
+     *
+     * The compressed bytes are made once per app uid and kept next to the cached definitions, so the prefix and
+     * suffix must be the same on every call.
+     *
+     * @return the gzipped bytes, or null if the definitions are not cached, in which case they should be written with
+     *         writeDefinitions.
+     */
+    byte[] getCompressedDefinitions(Set<DefDescriptor<?>> dependencies, String prefix, String suffix)
+            throws IOException, QuickFixException;
+
+    /**
+     * write out a chunk of the component code that {@link #writeDefinitions(Set, Writer)} moved out of app.js.
+     *
+     * A chunk that is no longer cached is made again from the definitions of the app.
+     *
+     * @param hash the hash of the chunk content.
+     * @return false if the definitions have no chunk with this hash, in which case nothing was written.
+     */
+    boolean writeChunk(Set<DefDescriptor<?>> dependencies, String hash, Writer out)
+            throws IOException, QuickFixException;
+
+    /**
+     * write out the definitions that changed since an earlier uid of the app.
+     *
+     * This writes the same JS as {@link #writeDefinitions(Set, Writer)} for just the definitions whose code is new or
+     * different, and drops the ones that are gone. It is meant to run right after the app.js of the earlier uid, from
+     * the browser cache, instead of downloading the whole app.js again.
+     *
+     * @param previousUid the uid of the app that the client has the app.js of.
+     * @return false if the definitions of the previous uid are not known here, in which case nothing was written and
+     *         the client needs the full app.js.
+     */
+    boolean writeDefinitionsDelta(Set<DefDescriptor<?>> dependencies, String previousUid, Writer out)
+            throws IOException, QuickFixException;
+
+    /**
+     * Check whether the app.js of an earlier uid of the loading app can be brought up to date with
+     * {@link #writeDefinitionsDelta(Set, String, Writer)}, rather than downloading the whole app.js again.
+     *
+     * @param previousUid the uid of the app that the client has the app.js of.
+     * @return true if the definitions of the previous uid are known here, and differ from the current ones.
+     */
+    boolean hasDefinitionsDelta(String previousUid);
+
+    /**
+     * Get the CSS written by {@link #writeAppCss(Set, Writer)}, gzipped.
+     *
+     * @return the gzipped bytes, or null if the CSS is not cached, in which case it should be written with
+     *         writeAppCss.
+     */
+    byte[] getCompressedAppCss(Set<DefDescriptor<?>> dependencies) throws IOException, QuickFixException;
+
     /**
      * Write out a set of components in JSON.
      * 
@@ -242,6 +242,38 @@ public interface AuraContext {
      */
     Action setCurrentAction(Action nextAction);
 
+    /**
+     * Set the time by which the action running on this thread should be done.
+     *
+     * @param deadline a {@link System#nanoTime()} value, or 0 for none.
+     */
+    void setActionDeadline(long deadline);
+
+    /**
+     * Set the time by which all the actions of the request should be done.
+     *
+     * @param deadline a {@link System#nanoTime()} value, or 0 for none.
+     */
+    void setRequestDeadline(long deadline);
+
+    /**
+     * @return true if the current action or the request has run out of time.
+     */
+    boolean isDeadlineExceeded();
+
+    /**
+     * @return the time left before the current action or the request runs out, in nanoseconds: zero or less once a
+     *         deadline has passed, or {@link Long#MAX_VALUE} if there is none.
+     */
+    long getRemainingNanos();
+
+    /**
+     * Stop the current action if it has run out of time, for controllers doing long or repeated work.
+     *
+     * @throws org.auraframework.throwable.DeadlineExceededException if either the action or the request deadline has passed.
+     */
+    void checkDeadline();
+
     void pushCallingDescriptor(DefDescriptor<?> descriptor);
 
     void popCallingDescriptor();
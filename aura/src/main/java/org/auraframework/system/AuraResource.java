@@ -29,6 +29,19 @@ public interface AuraResource {
      */
     void write(HttpServletRequest request, HttpServletResponse response, AuraContext context) throws IOException;
 
+    /**
+     * Write out output that was found in the cache before any context was established.
+     *
+     * @param request the request, with the key the output was found under in
+     *            {@link org.auraframework.http.AuraContextFilter#CACHED_RESOURCE_KEY}.
+     * @param response the response, with headers already set.
+     * @param cached the cached output, as stored under a {@link org.auraframework.http.ResourceCacheKey}.
+     */
+    default void writeCached(HttpServletRequest request, HttpServletResponse response, String cached)
+            throws IOException {
+        response.getWriter().append(cached);
+    }
+
     /**
      * The name of the resource.
      */
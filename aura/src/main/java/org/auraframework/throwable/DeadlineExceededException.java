@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.throwable;
+
+/**
+ * Thrown when an action has run past its time budget.
+ *
+ * Controllers doing long work can get this from {@link org.auraframework.system.AuraContext#checkDeadline()}, and
+ * actions that finish late are failed with it. The rest of the request carries on.
+ */
+public class DeadlineExceededException extends AuraHandledException {
+    private static final long serialVersionUID = 2967436187473602364L;
+
+    public DeadlineExceededException() {
+        super("The action took too long to complete");
+    }
+}
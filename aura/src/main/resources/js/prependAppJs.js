@@ -24,6 +24,7 @@ if (!Aura.frameworkJsReady) {
 
     $A = { componentService : {
         addComponent: function (d, e) { Aura.ApplicationDefs.cmpExporter[d] = e; },
+        removeDefinition: function (d) { delete Aura.ApplicationDefs.cmpExporter[d]; delete Aura.ApplicationDefs.libExporter[d]; },
         addLibraryExporter: function (d, e) { Aura.ApplicationDefs.libExporter[d] = e; },
         initEventDefs: function (e) { Aura.ApplicationDefs.eventDefs = e; },
         initLibraryDefs: function (e) { Aura.ApplicationDefs.libraryDefs = e; },
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.http;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.auraframework.adapter.ConfigAdapter;
+import org.auraframework.adapter.ServletUtilAdapter;
+import org.auraframework.def.ApplicationDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.service.ContextService;
+import org.auraframework.system.AuraContext;
+import org.auraframework.system.AuraResource;
+import org.auraframework.util.json.JsonReader;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Unit tests for the ETag handling in {@link AuraResourceServlet}.
+ */
+public class AuraResourceServletTest extends UnitTestCase {
+    private final ServletUtilAdapter servletUtilAdapter = mock(ServletUtilAdapter.class);
+    private final AuraResource resource = mock(AuraResource.class);
+    private final AuraContext context = mock(AuraContext.class);
+
+    @SuppressWarnings("unchecked")
+    private AuraResourceServlet getServlet() {
+        ContextService contextService = mock(ContextService.class);
+        ConfigAdapter configAdapter = mock(ConfigAdapter.class);
+        DefDescriptor<ApplicationDef> app = mock(DefDescriptor.class);
+        when(app.getDefType()).thenReturn(DefType.APPLICATION);
+        when(app.getQualifiedName()).thenReturn("markup://test:app");
+        when(contextService.getCurrentContext()).thenReturn(context);
+        when(context.getApplicationDescriptor()).thenReturn((DefDescriptor) app);
+        when(configAdapter.getAuraFrameworkNonce()).thenReturn("fwuid");
+        when(resource.getName()).thenReturn("app.js");
+
+        AuraResourceServlet servlet = new AuraResourceServlet();
+        servlet.setContextService(contextService);
+        servlet.setConfigAdapter(configAdapter);
+        servlet.setServletUtilAdapter(servletUtilAdapter);
+        servlet.setAuraResources(Lists.newArrayList(resource));
+        return servlet;
+    }
+
+    @SuppressWarnings("unchecked")
+    private MockHttpServletRequest getRequest(String fwuid) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/auraResource");
+        request.setAttribute(AuraResourceServlet.ORIG_REQUEST_URI, "/l/ctx/app.js");
+        request.setAttribute(AuraContextFilter.CONTEXT_CONFIG, (Map<String, Object>) new JsonReader().read(
+                "{\"fwuid\":\"" + fwuid + "\",\"loaded\":{\"APPLICATION@markup://test:app\":\"appUid\"}}"));
+        return request;
+    }
+
+    @Test
+    public void testETagSetForWrite() throws Exception {
+        MockHttpServletRequest request = getRequest("fwuid");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        getServlet().doGet(request, response);
+
+        assertNotNull(request.getAttribute(AuraResourceServlet.RESOURCE_ETAG));
+        verify(resource).write(request, response, context);
+    }
+
+    @Test
+    public void testIfNoneMatchAnsweredBeforeWrite() throws Exception {
+        AuraResourceServlet servlet = getServlet();
+        MockHttpServletRequest first = getRequest("fwuid");
+        servlet.doGet(first, new MockHttpServletResponse());
+        String etag = (String) first.getAttribute(AuraResourceServlet.RESOURCE_ETAG);
+
+        MockHttpServletRequest request = getRequest("fwuid");
+        request.addHeader("If-None-Match", "\"other\", " + etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        servlet.doGet(request, response);
+
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        assertEquals(etag, response.getHeader("ETag"));
+        verify(resource, never()).write(request, response, context);
+        verify(servletUtilAdapter, never()).setCSPHeaders(any(DefDescriptor.class), any(HttpServletRequest.class),
+                any(HttpServletResponse.class));
+    }
+
+    @Test
+    public void testNoETagForStaleFramework() throws Exception {
+        MockHttpServletRequest request = getRequest("oldFwuid");
+
+        getServlet().doGet(request, new MockHttpServletResponse());
+
+        assertNull(request.getAttribute(AuraResourceServlet.RESOURCE_ETAG));
+    }
+
+    @Test
+    public void testNoETagInDevMode() throws Exception {
+        AuraResourceServlet servlet = getServlet();
+        when(context.isDevMode()).thenReturn(true);
+        MockHttpServletRequest request = getRequest("fwuid");
+
+        servlet.doGet(request, new MockHttpServletResponse());
+
+        assertNull(request.getAttribute(AuraResourceServlet.RESOURCE_ETAG));
+    }
+}
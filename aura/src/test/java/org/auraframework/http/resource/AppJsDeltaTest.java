@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2013 salesforce.com, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.auraframework.http.resource;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.auraframework.adapter.ServletUtilAdapter;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.service.ServerService;
+import org.auraframework.system.AuraContext;
+import org.auraframework.util.test.util.UnitTestCase;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class AppJsDeltaTest extends UnitTestCase {
+    /**
+     * Name is API!.
+     */
+    @Test
+    public void testName() {
+        assertEquals("appdelta.js", new AppJsDelta().getName());
+    }
+
+    @Test
+    public void testWritesDelta() throws Exception {
+        ServletUtilAdapter servletUtilAdapter = mock(ServletUtilAdapter.class);
+        ServerService serverService = mock(ServerService.class);
+        AuraContext context = mock(AuraContext.class);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setParameter("aura.previousUid", "oldUid");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Set<DefDescriptor<?>> dependencies = new HashSet<>();
+
+        when(servletUtilAdapter.verifyTopLevel(request, response, context)).thenReturn(dependencies);
+        when(serverService.writeDefinitionsDelta(same(dependencies), eq("oldUid"), any(Writer.class)))
+                .thenAnswer(new Answer<Boolean>() {
+                    @Override
+                    public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                        ((Writer) invocation.getArguments()[2]).append("$A.componentService.addComponent();");
+                        return Boolean.TRUE;
+                    }
+                });
+
+        AppJsDelta appJsDelta = new AppJsDelta();
+        appJsDelta.setServletUtilAdapter(servletUtilAdapter);
+        appJsDelta.setServerService(serverService);
+        appJsDelta.write(request, response, context);
+
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals("$A.componentService.addComponent();", response.getContentAsString());
+    }
+
+    @Test
+    public void testUnknownPreviousUidWritesAllDefinitions() throws Exception {
+        ServletUtilAdapter servletUtilAdapter = mock(ServletUtilAdapter.class);
+        ServerService serverService = mock(ServerService.class);
+        AuraContext context = mock(AuraContext.class);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setParameter("aura.previousUid", "unknownUid");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Set<DefDescriptor<?>> dependencies = new HashSet<>();
+
+        when(servletUtilAdapter.verifyTopLevel(request, response, context)).thenReturn(dependencies);
+        when(serverService.writeDefinitionsDelta(same(dependencies), eq("unknownUid"), any(Writer.class)))
+                .thenReturn(Boolean.FALSE);
+
+        AppJsDelta appJsDelta = new AppJsDelta();
+        appJsDelta.setServletUtilAdapter(servletUtilAdapter);
+        appJsDelta.setServerService(serverService);
+        appJsDelta.write(request, response, context);
+
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        verify(servletUtilAdapter).setNoCache(response);
+        verify(serverService).writeDefinitions(same(dependencies), any(Writer.class));
+    }
+}
@@ -20,6 +20,8 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -28,21 +30,38 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPInputStream;
 
+import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.auraframework.adapter.ServletUtilAdapter;
+import org.auraframework.cache.Cache;
+import org.auraframework.def.ApplicationDef;
 import org.auraframework.def.DefDescriptor;
+import org.auraframework.http.AuraContextFilter;
+import org.auraframework.http.ResourceCacheKey;
+import org.auraframework.service.CachingService;
 import org.auraframework.service.ServerService;
 import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Format;
+import org.auraframework.util.IOUtil;
 import org.auraframework.util.test.util.UnitTestCase;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
+import com.google.common.base.Charsets;
+
 /**
  * Simple (non-integration) test case for {@link AppJs}, most useful for exercising hard-to-reach error
  * conditions. I would like this test to be in the "aura" module (vice "aura-impl"), but the configuration there isn't
@@ -147,6 +166,168 @@ public class AppJsTest extends UnitTestCase {
         verifyNoMoreInteractions(servletUtilAdapter);
     }
 
+    /**
+     * Clients that take gzip get the precompressed bytes as they are.
+     */
+    @Test
+    public void testWriteCompressed() throws Exception {
+        ServletUtilAdapter servletUtilAdapter = mock(ServletUtilAdapter.class);
+        ServerService serverService = mock(ServerService.class);
+        HashSet<DefDescriptor<?>> dependencies = new HashSet<>();
+        byte[] compressed = new byte[] { 0x1f, (byte) 0x8b, 1, 2, 3 };
+        when(servletUtilAdapter.verifyTopLevel(any(HttpServletRequest.class),
+                any(HttpServletResponse.class), any(AuraContext.class)))
+            .thenReturn(dependencies);
+        when(serverService.getCompressedDefinitions(same(dependencies), any(String.class), any(String.class)))
+            .thenReturn(compressed);
+        AppJs appJs = new AppJs();
+        appJs.setServletUtilAdapter(servletUtilAdapter);
+        appJs.setServerService(serverService);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", "deflate, gzip;q=0.8");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        appJs.write(request, response, null);
+
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals(compressed.length, response.getContentLength());
+        assertTrue(Arrays.equals(compressed, response.getContentAsByteArray()));
+        verify(serverService, never()).writeDefinitions(any(), any(PrintWriter.class));
+    }
+
+    /**
+     * gzip;q=0 means the client does not want it.
+     */
+    @Test
+    public void testWriteUncompressedWhenGzipRefused() throws Exception {
+        ServletUtilAdapter servletUtilAdapter = mock(ServletUtilAdapter.class);
+        ServerService serverService = mock(ServerService.class);
+        HashSet<DefDescriptor<?>> dependencies = new HashSet<>();
+        when(servletUtilAdapter.verifyTopLevel(any(HttpServletRequest.class),
+                any(HttpServletResponse.class), any(AuraContext.class)))
+            .thenReturn(dependencies);
+        AppJs appJs = new AppJs();
+        appJs.setServletUtilAdapter(servletUtilAdapter);
+        appJs.setServerService(serverService);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", "gzip;q=0, identity");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        appJs.write(request, response, null);
+
+        assertNull(response.getHeader("Content-Encoding"));
+        verify(serverService, never()).getCompressedDefinitions(any(), any(String.class), any(String.class));
+        verify(serverService, times(1)).writeDefinitions(same(dependencies), any(PrintWriter.class));
+    }
+
+    /**
+     * A browser with the app.js of an earlier uid loads it and the delta from there instead of the whole app.js.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testWriteDeltaLoader() throws Exception {
+        ServletUtilAdapter servletUtilAdapter = mock(ServletUtilAdapter.class);
+        ServerService serverService = mock(ServerService.class);
+        AuraContext context = mock(AuraContext.class);
+        DefDescriptor<ApplicationDef> app = mock(DefDescriptor.class);
+        HashSet<DefDescriptor<?>> dependencies = new HashSet<>();
+        final String[] uid = { "newUid" };
+        when(app.getQualifiedName()).thenReturn("markup://ns:app");
+        doReturn(app).when(context).getApplicationDescriptor();
+        when(context.getUid(app)).thenReturn("newUid");
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                uid[0] = (String) invocation.getArguments()[1];
+                return null;
+            }
+        }).when(context).addLoaded(same(app), any(String.class));
+        when(servletUtilAdapter.getAppJsUrl(context, null)).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                return "/l/" + uid[0] + "/app.js";
+            }
+        });
+        when(servletUtilAdapter.verifyTopLevel(any(HttpServletRequest.class),
+                any(HttpServletResponse.class), any(AuraContext.class)))
+            .thenReturn(dependencies);
+        when(serverService.hasDefinitionsDelta("oldUid")).thenReturn(true);
+        AppJs appJs = new AppJs();
+        appJs.setServletUtilAdapter(servletUtilAdapter);
+        appJs.setServerService(serverService);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie(ResourceCacheKey.appJsCookie("markup://ns:app"), "oldUid"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        appJs.write(request, response, context);
+
+        String content = response.getContentAsString();
+        assertTrue(content, content.contains("[\"/l/oldUid/app.js\",\"/l/newUid/appdelta.js?aura.previousUid=oldUid\"]"));
+        assertEquals("newUid", uid[0]);
+        verify(servletUtilAdapter).setNoCache(response);
+        verify(serverService, never()).writeDefinitions(any(), any(PrintWriter.class));
+        verify(serverService, never()).getCompressedDefinitions(any(), any(String.class), any(String.class));
+    }
+
+    /**
+     * Cached definitions are wrapped like the ones written with a context, and nothing else is called.
+     */
+    @Test
+    public void testWriteCached() throws Exception {
+        ServletUtilAdapter servletUtilAdapter = mock(ServletUtilAdapter.class);
+        ServerService serverService = mock(ServerService.class);
+        AppJs appJs = new AppJs();
+        appJs.setServletUtilAdapter(servletUtilAdapter);
+        appJs.setServerService(serverService);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(AuraContextFilter.CACHED_RESOURCE_KEY, "RESOURCE:app.js:key");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        appJs.writeCached(request, response, "var defs;");
+
+        String content = response.getContentAsString();
+        assertTrue(content, content.startsWith("\"undefined\"===typeof Aura"));
+        assertTrue(content, content.contains("\nvar defs;\nif(!Aura.appJsPending){Aura.appJsReady = true;"));
+        verifyNoMoreInteractions(serverService);
+        verifyNoMoreInteractions(servletUtilAdapter);
+    }
+
+    /**
+     * Clients that take gzip get cached definitions gzipped, and they are only compressed once.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testWriteCachedGzip() throws Exception {
+        Cache<String, byte[]> compressedStringsCache = mock(Cache.class);
+        when(compressedStringsCache.get(eq("GZIP:RESOURCE:app.js:key"), any(Callable.class)))
+                .thenAnswer(new Answer<byte[]>() {
+                    @Override
+                    public byte[] answer(InvocationOnMock invocation) throws Throwable {
+                        return ((Callable<byte[]>) invocation.getArguments()[1]).call();
+                    }
+                });
+        CachingService cachingService = mock(CachingService.class);
+        when(cachingService.getCompressedStringsCache()).thenReturn(compressedStringsCache);
+        AppJs appJs = new AppJs();
+        appJs.setCachingService(cachingService);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", "gzip");
+        request.setAttribute(AuraContextFilter.CACHED_RESOURCE_KEY, "RESOURCE:app.js:key");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setHeader("ETag", "\"etag\"");
+
+        appJs.writeCached(request, response, "var defs;");
+
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals(ResourceCacheKey.gzipEtag("\"etag\""), response.getHeader("ETag"));
+        String content = IOUtil.readText(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())), Charsets.UTF_8));
+        assertTrue(content, content.startsWith("\"undefined\"===typeof Aura"));
+        assertTrue(content, content.contains("\nvar defs;\nif(!Aura.appJsPending){Aura.appJsReady = true;"));
+        verify(compressedStringsCache, times(1)).get(eq("GZIP:RESOURCE:app.js:key"), any(Callable.class));
+    }
+
     /**
      * Verify that we set the correct contentType to response
      */
@@ -15,18 +15,33 @@
  */
 package org.auraframework.http.resource;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.auraframework.adapter.ConfigAdapter;
 import org.auraframework.adapter.ServletUtilAdapter;
+import org.auraframework.cache.Cache;
 import org.auraframework.def.ApplicationDef;
 import org.auraframework.def.DefDescriptor;
 import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.http.AuraResourceServlet;
+import org.auraframework.http.ResourceCacheKey;
+import org.auraframework.service.CachingService;
 import org.auraframework.service.DefinitionService;
+import org.auraframework.service.InstanceService;
+import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.util.test.util.UnitTestCase;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.google.common.base.Charsets;
+
 public class BootstrapUnitTest extends UnitTestCase {
     @Test
     public void testName() {
@@ -86,4 +101,61 @@ public class BootstrapUnitTest extends UnitTestCase {
         }
         Mockito.verifyNoMoreInteractions(servletUtilAdapter);
     }
+
+    @Test
+    public void testMD5OfAppendedRanges() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Bootstrap.WrappedPrintWriter out = new Bootstrap.WrappedPrintWriter(sb);
+        out.append("window.Aura = ");
+        out.append("xx{\"label\":\"caf\u00e9 \u4e2d \ud83d\ude00\"}yy", 2, 30);
+        out.append(';');
+
+        String expected = sb.toString();
+        assertEquals("window.Aura = {\"label\":\"caf\u00e9 \u4e2d \ud83d\ude00\"};", expected);
+        byte[] digest = MessageDigest.getInstance("MD5").digest(expected.getBytes(Charsets.UTF_8));
+        assertEquals(String.format("%1$032X", new BigInteger(1, digest)), out.getMD5());
+    }
+
+    @Test
+    public void testCachedPayloadIsWrittenWithoutRendering() throws Exception {
+        @SuppressWarnings("unchecked")
+        DefDescriptor<ApplicationDef> appDefDesc = Mockito.mock(DefDescriptor.class);
+        ApplicationDef appDef = Mockito.mock(ApplicationDef.class);
+        DefinitionService definitionService = Mockito.mock(DefinitionService.class);
+        InstanceService instanceService = Mockito.mock(InstanceService.class);
+        ConfigAdapter configAdapter = Mockito.mock(ConfigAdapter.class);
+        CachingService cachingService = Mockito.mock(CachingService.class);
+        AuraContext context = Mockito.mock(AuraContext.class);
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        @SuppressWarnings("unchecked")
+        Cache<String, String> cache = Mockito.mock(Cache.class);
+        StringWriter body = new StringWriter();
+
+        Bootstrap bootstrap = new Bootstrap();
+        bootstrap.setServletUtilAdapter(Mockito.mock(ServletUtilAdapter.class));
+        bootstrap.setDefinitionService(definitionService);
+        bootstrap.setInstanceService(instanceService);
+        bootstrap.setConfigAdapter(configAdapter);
+        bootstrap.setCachingService(cachingService);
+
+        Mockito.doReturn(appDefDesc).when(context).getApplicationDescriptor();
+        Mockito.when(appDefDesc.getDefType()).thenReturn(DefType.APPLICATION);
+        Mockito.when(appDefDesc.getQualifiedName()).thenReturn("markup://test:app");
+        Mockito.when(definitionService.getDefinition(appDefDesc)).thenReturn(appDef);
+        Mockito.when(appDef.getBootstrapPublicCacheExpiration()).thenReturn(600);
+        Mockito.when(configAdapter.validateBootstrap(Mockito.anyString())).thenReturn(true);
+        Mockito.when(cachingService.getAltStringsCache()).thenReturn(cache);
+        Mockito.when(request.getAttribute(AuraResourceServlet.RESOURCE_ETAG)).thenReturn("\"etag\"");
+        Mockito.when(response.getWriter()).thenReturn(new PrintWriter(body));
+        Mockito.when(cache.getIfPresent(ResourceCacheKey.bootstrap("markup://test:app", "\"etag\"")))
+                .thenReturn("cached bootstrap");
+
+        bootstrap.write(request, response, context);
+
+        assertEquals("cached bootstrap", body.toString());
+        Mockito.verify(response).setHeader("ETag", "\"etag\"");
+        Mockito.verifyZeroInteractions(instanceService);
+        Mockito.verify(context, Mockito.never()).getInstanceStack();
+    }
 }
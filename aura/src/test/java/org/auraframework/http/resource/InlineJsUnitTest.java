@@ -15,14 +15,38 @@
  */
 package org.auraframework.http.resource;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPInputStream;
+
 import javax.servlet.http.HttpServletResponse;
 
+import org.auraframework.adapter.ConfigAdapter;
 import org.auraframework.adapter.ServletUtilAdapter;
+import org.auraframework.cache.Cache;
+import org.auraframework.def.ApplicationDef;
+import org.auraframework.def.DefDescriptor;
+import org.auraframework.def.DefDescriptor.DefType;
+import org.auraframework.http.AuraResourceServlet;
+import org.auraframework.http.ResourceCacheKey;
+import org.auraframework.service.CachingService;
+import org.auraframework.service.DefinitionService;
+import org.auraframework.service.ServerService;
+import org.auraframework.system.AuraContext;
 import org.auraframework.system.AuraContext.Format;
 import org.auraframework.system.AuraResource;
+import org.auraframework.util.IOUtil;
 import org.auraframework.util.test.util.UnitTestCase;
 import org.junit.Test;
+import org.mockito.Matchers;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.google.common.base.Charsets;
 
 public class InlineJsUnitTest extends UnitTestCase {
 
@@ -53,4 +77,140 @@ public class InlineJsUnitTest extends UnitTestCase {
         resource.setContentType(mockResponse);
         Mockito.verify(mockResponse, Mockito.times(1)).setContentType(expected);
     }
+
+    /**
+     * A cacheable inline.js that was rendered before is written from the cache, gzipped once for clients that take
+     * it when the token is not in it.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testCachedBodyIsWrittenWithoutRendering() throws Exception {
+        String body = "\n    var auraConfig = {};";
+        String etag = "\"etag\"";
+
+        DefDescriptor<ApplicationDef> desc = Mockito.mock(DefDescriptor.class);
+        Mockito.when(desc.getDefType()).thenReturn(DefType.APPLICATION);
+        Mockito.when(desc.getQualifiedName()).thenReturn("markup://test:app");
+        ApplicationDef def = Mockito.mock(ApplicationDef.class);
+        Mockito.when(def.isOnePageApp()).thenReturn(Boolean.TRUE);
+        DefinitionService definitionService = Mockito.mock(DefinitionService.class);
+        Mockito.when(definitionService.getDefinition(desc)).thenReturn(def);
+        AuraContext context = Mockito.mock(AuraContext.class);
+        Mockito.doReturn(desc).when(context).getLoadingApplicationDescriptor();
+        Mockito.when(context.isTestMode()).thenReturn(true);
+        ConfigAdapter configAdapter = Mockito.mock(ConfigAdapter.class);
+
+        Cache<String, String> altStringsCache = Mockito.mock(Cache.class);
+        Mockito.when(altStringsCache.getIfPresent(ResourceCacheKey.inlineJs("markup://test:app", etag)))
+                .thenReturn(body);
+        Cache<String, byte[]> compressedStringsCache = Mockito.mock(Cache.class);
+        Mockito.when(compressedStringsCache.get(Matchers.anyString(), Matchers.any(Callable.class)))
+                .thenAnswer(new Answer<byte[]>() {
+                    @Override
+                    public byte[] answer(InvocationOnMock invocation) throws Throwable {
+                        return ((Callable<byte[]>) invocation.getArguments()[1]).call();
+                    }
+                });
+        CachingService cachingService = Mockito.mock(CachingService.class);
+        Mockito.when(cachingService.getAltStringsCache()).thenReturn(altStringsCache);
+        Mockito.when(cachingService.getCompressedStringsCache()).thenReturn(compressedStringsCache);
+        ServerService serverService = Mockito.mock(ServerService.class);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ((Appendable) invocation.getArguments()[1]).append((String) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(serverService).writeWithToken(Matchers.anyString(), Matchers.any(Appendable.class));
+
+        InlineJs inlineJs = new InlineJs();
+        inlineJs.setDefinitionService(definitionService);
+        inlineJs.setConfigAdapter(configAdapter);
+        inlineJs.setServletUtilAdapter(Mockito.mock(ServletUtilAdapter.class));
+        inlineJs.setServerService(serverService);
+        inlineJs.setCachingService(cachingService);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(AuraResourceServlet.RESOURCE_ETAG, etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        inlineJs.write(request, response, context);
+        assertEquals(body, response.getContentAsString());
+        assertEquals(etag, response.getHeader("ETag"));
+
+        request.addHeader("Accept-Encoding", "gzip");
+        response = new MockHttpServletResponse();
+        inlineJs.write(request, response, context);
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals(ResourceCacheKey.gzipEtag(etag), response.getHeader("ETag"));
+        assertEquals(body, IOUtil.readText(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())), Charsets.UTF_8)));
+
+        Mockito.verify(compressedStringsCache).get(Matchers.anyString(), Matchers.any(Callable.class));
+        Mockito.verify(serverService, Mockito.times(2)).writeWithToken(Matchers.eq(body),
+                Matchers.any(Appendable.class));
+        Mockito.verifyNoMoreInteractions(serverService);
+    }
+
+    /**
+     * The cached body is shared by all users, so the token of each request is spliced into it, and it is not kept
+     * gzipped with the token in it.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testTokenIsSplicedIntoCachedBody() throws Exception {
+        String body = "\n    var auraConfig = {token:TOKEN};";
+        String etag = "\"etag\"";
+
+        DefDescriptor<ApplicationDef> desc = Mockito.mock(DefDescriptor.class);
+        Mockito.when(desc.getDefType()).thenReturn(DefType.APPLICATION);
+        Mockito.when(desc.getQualifiedName()).thenReturn("markup://test:app");
+        ApplicationDef def = Mockito.mock(ApplicationDef.class);
+        Mockito.when(def.isOnePageApp()).thenReturn(Boolean.TRUE);
+        DefinitionService definitionService = Mockito.mock(DefinitionService.class);
+        Mockito.when(definitionService.getDefinition(desc)).thenReturn(def);
+        AuraContext context = Mockito.mock(AuraContext.class);
+        Mockito.doReturn(desc).when(context).getLoadingApplicationDescriptor();
+        Mockito.when(context.isTestMode()).thenReturn(true);
+
+        Cache<String, String> altStringsCache = Mockito.mock(Cache.class);
+        Mockito.when(altStringsCache.getIfPresent(ResourceCacheKey.inlineJs("markup://test:app", etag)))
+                .thenReturn(body);
+        Cache<String, byte[]> compressedStringsCache = Mockito.mock(Cache.class);
+        CachingService cachingService = Mockito.mock(CachingService.class);
+        Mockito.when(cachingService.getAltStringsCache()).thenReturn(altStringsCache);
+        Mockito.when(cachingService.getCompressedStringsCache()).thenReturn(compressedStringsCache);
+        final String[] token = { "\"first\"" };
+        ServerService serverService = Mockito.mock(ServerService.class);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ((Appendable) invocation.getArguments()[1])
+                        .append(((String) invocation.getArguments()[0]).replace("TOKEN", token[0]));
+                return null;
+            }
+        }).when(serverService).writeWithToken(Matchers.anyString(), Matchers.any(Appendable.class));
+
+        InlineJs inlineJs = new InlineJs();
+        inlineJs.setDefinitionService(definitionService);
+        inlineJs.setConfigAdapter(Mockito.mock(ConfigAdapter.class));
+        inlineJs.setServletUtilAdapter(Mockito.mock(ServletUtilAdapter.class));
+        inlineJs.setServerService(serverService);
+        inlineJs.setCachingService(cachingService);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(AuraResourceServlet.RESOURCE_ETAG, etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        inlineJs.write(request, response, context);
+        assertEquals("\n    var auraConfig = {token:\"first\"};", response.getContentAsString());
+
+        token[0] = "\"second\"";
+        request.addHeader("Accept-Encoding", "gzip");
+        response = new MockHttpServletResponse();
+        inlineJs.write(request, response, context);
+        assertEquals("\n    var auraConfig = {token:\"second\"};", IOUtil.readText(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())), Charsets.UTF_8)));
+
+        Mockito.verify(altStringsCache, Mockito.never()).put(Matchers.anyString(), Matchers.anyString());
+        Mockito.verifyZeroInteractions(compressedStringsCache);
+    }
 }